@@ -7,7 +7,7 @@ public class AstPrinter implements Expr.Visitor<String> {
 
     @Override
     public String visitAssignExpr(Expr.Assign expr) {
-        return null;
+        return parenthesize("= " + expr.name.lexeme, expr.value);
     }
 
     @Override
@@ -37,12 +37,12 @@ public class AstPrinter implements Expr.Visitor<String> {
 
     @Override
     public String visitVariableExpr(Expr.Variable expr) {
-        return null;
+        return expr.name.lexeme;
     }
 
     @Override
     public String visitPostfixExpr(Expr.Postfix expr) {
-        return null;
+        return parenthesize("post" + expr.operator.lexeme, expr.expression);
     }
 
 
@@ -50,7 +50,8 @@ public class AstPrinter implements Expr.Visitor<String> {
     private String parenthesize(String name, Expr... exprs) {
         StringBuilder builder = new StringBuilder();
 
-        builder.append("(").append(name);
+        //the lexeme of a keyword keeps the space after it
+        builder.append("(").append(name.trim());
         for (Expr expr : exprs) {
             builder.append(" ");
             builder.append(expr.accept(this));
@@ -1,97 +1,130 @@
 package bisaya;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
+import java.util.Arrays;
 
+//The command line: a BisayaEngine and one BisayaContext on the console
 public class Bisaya {
-    private static final Interpreter interpreter = new Interpreter();
-    static boolean hadError = false;
-    static boolean hadRuntimeError = false;
-
     public static void main(String[] args) throws IOException {
+        //--vm, --closures or --jvm pick the engine instead of the tree-walking Interpreter
+        BisayaEngine.Backend backend = BisayaEngine.Backend.INTERPRETER;
+
+        //--out <file> sends IPAKITA to a file instead of the console
+        Output output = Output.console();
+
+        //--batch reads DAWAT input without prompts or echo, for piped data
+        boolean interactive = true;
+
+        //--parallel lexes a large script on the common ForkJoinPool
+        boolean parallel = false;
+
+        //--cache <dir> keeps parsed scripts there, so an unchanged script is not scanned and parsed again
+        Path cache = null;
+
+        //--max-steps <n> and --timeout <ms> end a run after that many loop iterations or that long, 0 for no limit
+        long maxSteps = 0;
+        long timeout = 0;
+
+        //--max-memory <bytes> and --max-string <chars> end a run that takes more, 0 for no limit
+        long maxMemory = 0;
+        int maxString = 0;
+
+        //--memory prints the peak and total bytes of the run when it ends
+        boolean memory = false;
+
+        int first = 0;
+        while (first < args.length && args[first].startsWith("--")) {
+            if (args[first].equals("--vm")) {
+                backend = BisayaEngine.Backend.VM;
+                first++;
+            } else if (args[first].equals("--closures")) {
+                backend = BisayaEngine.Backend.CLOSURES;
+                first++;
+            } else if (args[first].equals("--jvm")) {
+                backend = BisayaEngine.Backend.JVM;
+                first++;
+            } else if (args[first].equals("--batch")) {
+                interactive = false;
+                first++;
+            } else if (args[first].equals("--parallel")) {
+                parallel = true;
+                first++;
+            } else if (args[first].equals("--cache") && first + 1 < args.length) {
+                cache = Paths.get(args[first + 1]);
+                first += 2;
+            } else if (args[first].equals("--max-steps") && first + 1 < args.length) {
+                maxSteps = Long.parseLong(args[first + 1]);
+                first += 2;
+            } else if (args[first].equals("--timeout") && first + 1 < args.length) {
+                timeout = Long.parseLong(args[first + 1]);
+                first += 2;
+            } else if (args[first].equals("--max-memory") && first + 1 < args.length) {
+                maxMemory = Long.parseLong(args[first + 1]);
+                first += 2;
+            } else if (args[first].equals("--max-string") && first + 1 < args.length) {
+                maxString = Integer.parseInt(args[first + 1]);
+                first += 2;
+            } else if (args[first].equals("--memory")) {
+                memory = true;
+                first++;
+            } else if (args[first].equals("--out") && first + 1 < args.length) {
+                output = Output.file(Paths.get(args[first + 1]));
+                first += 2;
+            } else {
+                break;
+            }
+        }
+        args = Arrays.copyOfRange(args, first, args.length);
+
+        Input input = Input.console(interactive);
+        BisayaContext context = new BisayaEngine(backend, parallel, cache).newContext(output, input, ErrorReporter.console());
+        context.setStepLimit(maxSteps);
+        context.setTimeLimit(timeout);
+        context.setMemoryLimit(maxMemory);
+        context.setStringLimit(maxString);
+
         if (args.length > 1) {
             //if more than 1 argument error message is printed
-            System.out.println("Usage: Bisaya [script]");
+            System.out.println("Usage: Bisaya [--vm | --closures | --jvm] [--batch] [--parallel] [--cache dir] [--max-steps n] [--timeout ms] [--max-memory bytes] [--max-string chars] [--memory] [--out file] [script]");
             System.exit(64);
         } else if (args.length == 1) {
             //runs one single file
-            runFile(args[0]);
+            runFile(context, output, args[0], memory);
         } else {
             //interavtive prompt where user can type commands a time
-            runPrompt();
+            runPrompt(context, input);
         }
     }
 
 
-    private static void runFile(String path) throws IOException {
-        byte[] bytes = Files.readAllBytes(Paths.get(path));
-        run(new String(bytes, Charset.defaultCharset()));
+    private static void runFile(BisayaContext context, Output output, String path, boolean memory) throws IOException {
+        //mapped, not read: the Scanner works on the file bytes directly
+        BisayaProgram program = context.compile(Source.map(Paths.get(path)), true);
+        boolean ran = program != null && context.run(program);
+        output.close();
+
+        //on stderr, so it never mixes with what the program printed
+        if (memory && program != null) {
+            System.err.println("[Memory: peak " + context.peakMemory() + " bytes, allocated " + context.allocatedMemory() + " bytes]");
+        }
 
         // Indicate an error in the exit code.
-        if (hadError) System.exit(65);
-        if (hadRuntimeError) System.exit(70);
+        if (program == null) System.exit(65);
+        if (!ran) System.exit(70);
     }
 
-    private static void runPrompt() throws IOException {
-        InputStreamReader input = new InputStreamReader(System.in);
-        BufferedReader reader = new BufferedReader(input);
-
+    private static void runPrompt(BisayaContext context, Input input) {
+        //same reader as DAWAT, so a line typed for the program is not swallowed here
         for (;;) {
             System.out.print("> ");
-            String line = reader.readLine();
+            String line = input.readLine();
             if (line == null) break;
-            run(line);
-            hadError = false;
-        }
-    }
 
-    private static void run(String source) {
-
-        //Don't execute a code with known errors
-        if(hadError) {
-            System.exit(65);
+            //a line at the prompt is not worth a file in the cache
+            BisayaProgram program = context.compile(Source.of(line), false);
+            if (program != null) context.run(program);
         }
-
-        //1. TOKENIZATION ***********************************************
-        Scanner scanner = new Scanner(source);
-        List<Token> tokens = scanner.scanTokens();
-
-        Parser parser = new Parser(tokens);
-
-        //2. PARSING ****************************************************
-//        Expr expression = parser.parse();
-        List<Stmt> statements = parser.parse();
-
-        // Stop if there was a syntax error.
-        if (hadError) return;
-
-        //3. EVALUATION *************************************************
-        //print expression before parsing. just to check lang
-//        System.out.println(new AstPrinter().print(statements));
-
-        interpreter.interpret(statements);
-    }
-
-    //Suggestion:
-    //Create interface ErrorReporter to achieve different implementations of error reporting
-    //Example: ConsoleErrorReporter, FileErrorReporter (way gamit ba ang mo console log ug errors????)
-    //Or Create separate class for the ErrorHandler
-    static void error(int line, String message){
-        report(line, "", message);
-    }
-
-    private static void report(int line, String where, String message){
-        System.err.println("[line " + line + "] Error " + where + ": " + message);
-        hadError = true;
-    }
-
-    static void runtimeError(RuntimeError error) {
-        System.err.println(error.getMessage() + "\n[line " + error.token.line + "]");
-        hadRuntimeError = true;
     }
 }
@@ -0,0 +1,141 @@
+package bisaya;
+
+//One place programs run in: its own Output, Input, ErrorReporter and global environment
+//A context runs one program at a time; use one context per thread to run programs concurrently
+public final class BisayaContext {
+    private final BisayaEngine engine;
+    private final Output output;
+    private final Input input;
+    private final ErrorReporter errors;
+
+    //limits every run in this context, checked by all backends at the end of each loop iteration
+    private final Budget budget = new Budget();
+
+    //made on first use and kept for the next run, the global frame of a run lives in them
+    private Interpreter interpreter = null;
+    private VM vm = null;
+
+    BisayaContext(BisayaEngine engine, Output output, Input input, ErrorReporter errors) {
+        this.engine = engine;
+        this.output = output;
+        this.input = input;
+        this.errors = errors;
+    }
+
+    //null when the source has errors, they went to this context's ErrorReporter
+    public BisayaProgram compile(String source) {
+        return compile(Source.of(source), true);
+    }
+
+    BisayaProgram compile(Source source, boolean cached) {
+        return engine.compile(source, errors, cached);
+    }
+
+    //Ends every later run after this many loop iterations with a RuntimeError at that loop, 0 for no limit
+    public void setStepLimit(long steps) {
+        budget.setStepLimit(steps);
+    }
+
+    //Ends every later run that takes longer than this with a RuntimeError at the loop it was in, 0 for no limit
+    public void setTimeLimit(long millis) {
+        budget.setTimeLimit(millis);
+    }
+
+    //Ends every later run whose strings and frames take more than this many bytes with a RuntimeError,
+    //0 for no limit. The bytes are an estimate, see Budget
+    public void setMemoryLimit(long bytes) {
+        budget.setMemoryLimit(bytes);
+    }
+
+    //Ends every later run that builds a string longer than this with a RuntimeError at its & or +, 0 for no limit
+    public void setStringLimit(int length) {
+        budget.setStringLimit(length);
+    }
+
+    //the most bytes the last run held at once, and all it allocated
+    public long peakMemory() {
+        return budget.peakBytes();
+    }
+
+    public long allocatedMemory() {
+        return budget.totalBytes();
+    }
+
+    //Ends the run in progress at its next loop iteration with a RuntimeError, from any thread
+    //Made between runs it ends the next run at its first loop iteration instead
+    //A program that is blocked on DAWAT only sees it after the line comes in
+    public void cancel() {
+        budget.cancel();
+    }
+
+    //Runs the program on the engine's backend, then prints [No Error]
+    //false when a runtime error ended it, the error went to this context's ErrorReporter
+    public boolean run(BisayaProgram program) {
+        try {
+            budget.start();
+            execute(program);
+            output.print("\n[No Error]\n");
+            return true;
+        } catch (RuntimeError error) {
+            //whatever was printed before the error comes first
+            output.flush();
+            errors.runtimeError(error.token.line, error.getMessage());
+            return false;
+        } finally {
+            budget.end();
+            output.flush();
+        }
+    }
+
+    //compile() and run() in one, false when either had an error
+    public boolean eval(String source) {
+        BisayaProgram program = compile(source);
+        return program != null && run(program);
+    }
+
+    private void execute(BisayaProgram program) {
+        switch (engine.backend) {
+            case VM:
+                vm().interpret(program.chunk());
+                break;
+            case JVM: {
+                JvmCompiler.Script script = program.script();
+                if (script != null) {
+                    script.newProgram(output, input, budget).run();
+                    break;
+                }
+
+                //too large for one class file, the closures run it instead
+                ClosureCompiler.run(new ClosureCompiler(output, input, budget).compile(program.statements));
+                break;
+            }
+            case CLOSURES:
+                ClosureCompiler.run(new ClosureCompiler(output, input, budget).compile(program.statements));
+                break;
+            default:
+                interpreter().interpret(program.statements);
+                break;
+        }
+    }
+
+    private Interpreter interpreter() {
+        if (interpreter == null) {
+            interpreter = new Interpreter();
+            interpreter.setOutput(output);
+            interpreter.setInput(input);
+            interpreter.setBudget(budget);
+            interpreter.setLoopCompiler(new LoopCompiler(output, input, budget));
+        }
+        return interpreter;
+    }
+
+    private VM vm() {
+        if (vm == null) {
+            vm = new VM();
+            vm.setOutput(output);
+            vm.setInput(input);
+            vm.setBudget(budget);
+        }
+        return vm;
+    }
+}
@@ -0,0 +1,95 @@
+package bisaya;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+//Entry point for running Bisaya from Java, without the command line
+//An engine only holds settings and is safe to share: compile a BisayaProgram once, then run it in
+//as many BisayaContexts as needed. Each context has its own output, input, errors and globals, so
+//contexts on different threads never see each other
+//  BisayaEngine engine = new BisayaEngine();
+//  BisayaContext context = engine.newContext(in, out, errors);
+//  BisayaProgram program = context.compile(source);
+//  if (program != null) context.run(program);
+public final class BisayaEngine {
+    //what runs a program, the command line flags --vm, --closures and --jvm
+    public enum Backend {
+        INTERPRETER, VM, CLOSURES, JVM
+    }
+
+    final Backend backend;
+
+    //lexes a large script on this pool, null to lex on the calling thread
+    private final ForkJoinPool scanPool;
+
+    //parsed scripts are kept here, null when there is no cache
+    private final ProgramCache cache;
+
+    public BisayaEngine() {
+        this(Backend.INTERPRETER, false, null);
+    }
+
+    //parallelScan lexes scripts of a few MB or more on the common ForkJoinPool
+    //cacheDirectory keeps parsed scripts there, so an unchanged script is not scanned and parsed again
+    public BisayaEngine(Backend backend, boolean parallelScan, Path cacheDirectory) {
+        this.backend = backend;
+        this.scanPool = parallelScan ? ForkJoinPool.commonPool() : null;
+        this.cache = cacheDirectory != null ? new ProgramCache(cacheDirectory) : null;
+    }
+
+    //DAWAT reads lines from in without prompts, IPAKITA writes to out
+    //out is flushed at the end of every run, closing it is up to the caller
+    public BisayaContext newContext(Reader in, Writer out, ErrorReporter errors) {
+        return new BisayaContext(this, Output.to(out), new Input(in, false), errors);
+    }
+
+    BisayaContext newContext(Output output, Input input, ErrorReporter errors) {
+        return new BisayaContext(this, output, input, errors);
+    }
+
+    //Every pass of the pipeline, null when any of them reported an error
+    //cached is false for source that is not worth a file in the cache, like a line at the prompt
+    BisayaProgram compile(Source source, ErrorReporter reporter, boolean cached) {
+        Errors errors = new Errors(reporter);
+
+        //a script parsed before skips the scanning and parsing below
+        String key = cached && cache != null ? cache.key(source) : null;
+        List<Stmt> statements = key != null ? cache.load(key) : null;
+
+        if (statements == null) {
+            //1. TOKENIZATION ***********************************************
+            Scanner scanner = new Scanner(source, scanPool, errors);
+            TokenBuffer tokens = scanner.scanTokens();
+
+            Parser parser = new Parser(tokens, errors);
+
+            //2. PARSING ****************************************************
+            statements = parser.parse();
+
+            // Stop if there was a syntax error.
+            if (errors.hadError) return null;
+
+            //stored before the passes below fill in the trees
+            if (key != null) cache.store(key, statements);
+        }
+
+        //Bind every variable use to its declaration before running anything
+        new Resolver(errors).resolve(statements);
+
+        // Stop if a variable is undeclared or declared twice.
+        if (errors.hadError) return null;
+
+        new TypeChecker(errors).check(statements);
+
+        // Stop if a value does not fit its MUGNA type or a variable is read before it has a value.
+        if (errors.hadError) return null;
+
+        //constant subexpressions are computed once here instead of every time they run
+        new Optimizer().optimize(statements);
+
+        return new BisayaProgram(statements);
+    }
+}
@@ -0,0 +1,34 @@
+package bisaya;
+
+import java.util.Collections;
+import java.util.List;
+
+//A compiled program: scanned, parsed, resolved, checked and optimized by BisayaEngine.compile()
+//The trees never change after that, so one program can run in any number of BisayaContexts at
+//once, on any threads. What the VM and JVM engines turn it into is made on first use and shared
+public final class BisayaProgram {
+    final List<Stmt> statements;
+
+    //filled in by the first run on the VM or JVM engine
+    private Chunk chunk = null;
+    private JvmCompiler.Script script = null;
+    private boolean scriptCompiled = false;
+
+    BisayaProgram(List<Stmt> statements) {
+        this.statements = Collections.unmodifiableList(statements);
+    }
+
+    synchronized Chunk chunk() {
+        if (chunk == null) chunk = new Compiler().compile(statements);
+        return chunk;
+    }
+
+    //null when the program is too large for one class
+    synchronized JvmCompiler.Script script() {
+        if (!scriptCompiled) {
+            script = new JvmCompiler().compile(statements);
+            scriptCompiled = true;
+        }
+        return script;
+    }
+}
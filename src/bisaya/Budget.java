@@ -0,0 +1,165 @@
+package bisaya;
+
+//Limits on one run: a number of steps, a wall-clock deadline, a cancel flag another thread can set,
+//and the memory the run takes
+//A step is one loop iteration. Every engine calls backEdge() at the end of each iteration of every
+//SAMTANG and ALANG SA, so a program counts the same steps on all of them. Without functions only a
+//loop can keep a program running, so the back-edges are the only place a run has to be stopped
+//Steps are counted down in batches of up to CHECK_INTERVAL, the clock and the flag are only looked
+//at when a batch runs out: backEdge() itself is one decrement and one compare
+//Memory is an estimate in bytes of what the program asks for: the strings built by & and +
+//(checked against the string limit right where they are made) and the scopes of its blocks and
+//ALANG SA loops. A string is gone once IPAKITA printed it, so it only adds to the peak and the
+//total. A scope costs frameBytes() of its slot count from the time it is entered until it ends,
+//every time it is entered, a loop body once per iteration. That is what it is charged on every
+//engine, whether it has an Environment, pooled or not, VM slots or JVM locals, so a program uses
+//the same memory everywhere. The global scope is not counted
+//One Budget per BisayaContext, owned by the thread running it except for cancel()
+final class Budget {
+    private static final int CHECK_INTERVAL = 1024;
+
+    //0 means no limit, set between runs
+    private long stepLimit = 0;
+    private long timeLimitNanos = 0;
+    private long memoryLimit = 0;
+    private int stringLimit = 0;
+
+    //set by cancel() until a run has ended with it
+    private volatile boolean cancelled = false;
+
+    //the run in progress: back-edges counted so far, back-edges left in this batch and its size
+    private long steps = 0;
+    private int countdown = CHECK_INTERVAL;
+    private int batch = CHECK_INTERVAL;
+    private long deadline = 0;
+
+    //bytes of the run in progress, or of the last run once it ended
+    private long liveBytes = 0;
+    private long peakBytes = 0;
+    private long totalBytes = 0;
+
+    void setStepLimit(long steps) {
+        this.stepLimit = Math.max(0, steps);
+    }
+
+    void setTimeLimit(long millis) {
+        this.timeLimitNanos = Math.max(0, millis) * 1_000_000;
+    }
+
+    void setMemoryLimit(long bytes) {
+        this.memoryLimit = Math.max(0, bytes);
+    }
+
+    //in characters
+    void setStringLimit(int length) {
+        this.stringLimit = Math.max(0, length);
+    }
+
+    long peakBytes() {
+        return peakBytes;
+    }
+
+    long totalBytes() {
+        return totalBytes;
+    }
+
+    //the run in progress stops at its next check, or the next run when none is in progress
+    void cancel() {
+        cancelled = true;
+    }
+
+    //at the start of every run. A cancel() from before it is kept for it, and then the very first
+    //back-edge checks
+    void start() {
+        steps = 0;
+        deadline = timeLimitNanos > 0 ? System.nanoTime() + timeLimitNanos : 0;
+        liveBytes = 0;
+        peakBytes = 0;
+        totalBytes = 0;
+        nextBatch();
+        if (cancelled) {
+            batch = 1;
+            countdown = 1;
+        }
+    }
+
+    //at the end of every run, however it ended: a cancel() was meant for this run, not the next
+    void end() {
+        cancelled = false;
+    }
+
+    //loop is the SAMTANG or ALANG SA keyword, its line goes in the error
+    void backEdge(Token loop) {
+        if (--countdown <= 0) check(loop);
+    }
+
+    private void check(Token loop) {
+        steps += batch;
+        if (stepLimit > 0 && steps > stepLimit) {
+            throw new RuntimeError(loop, "Step limit of " + stepLimit + " loop iterations reached.");
+        }
+        if (memoryLimit > 0 && peakBytes > memoryLimit) {
+            throw memoryLimitReached(loop);
+        }
+        if (cancelled) {
+            throw new RuntimeError(loop, "Program was cancelled.");
+        }
+        if (deadline != 0 && System.nanoTime() - deadline > 0) {
+            throw new RuntimeError(loop, "Time limit of " + timeLimitNanos / 1_000_000 + " ms reached.");
+        }
+        nextBatch();
+    }
+
+    //A string made by & or +, at its operator
+    String string(Token operator, String text) {
+        if (stringLimit > 0 && text.length() > stringLimit) {
+            throw new RuntimeError(operator, "String of " + text.length() + " characters is over the limit of " + stringLimit + ".");
+        }
+
+        long bytes = stringBytes(text.length());
+        totalBytes += bytes;
+        peakBytes = Math.max(peakBytes, liveBytes + bytes);
+        if (memoryLimit > 0 && liveBytes + bytes > memoryLimit) throw memoryLimitReached(operator);
+        return text;
+    }
+
+    //A frame or anything else that stays until release(), nothing has a token to report here,
+    //so going over the limit ends the run at the next loop iteration instead, even if the frame
+    //is gone by then
+    void allocate(long bytes) {
+        liveBytes += bytes;
+        totalBytes += bytes;
+        peakBytes = Math.max(peakBytes, liveBytes);
+
+        if (memoryLimit > 0 && liveBytes > memoryLimit) {
+            //the steps of this batch so far are counted now, the very next back-edge checks
+            steps += batch - countdown;
+            batch = 1;
+            countdown = 1;
+        }
+    }
+
+    void release(long bytes) {
+        liveBytes -= bytes;
+    }
+
+    //object header and fields of the Environment, then its three arrays
+    static long frameBytes(int slots) {
+        return 32 + (16 + slots) + (16 + 8L * slots) + (16 + 4L * slots);
+    }
+
+    //the String and its array, two bytes a character at most
+    private static long stringBytes(int length) {
+        return 24 + 16 + 2L * length;
+    }
+
+    private RuntimeError memoryLimitReached(Token at) {
+        return new RuntimeError(at, "Memory limit of " + memoryLimit + " bytes reached.");
+    }
+
+    //the batch ends right at the step past the limit, so the limit is exact
+    private void nextBatch() {
+        batch = stepLimit > 0 ? (int) Math.min(CHECK_INTERVAL, stepLimit - steps + 1) : CHECK_INTERVAL;
+        countdown = batch;
+    }
+}
@@ -0,0 +1,26 @@
+package bisaya;
+
+//Compiled form of a whole program: the bytecode, the registers it starts with and the
+//token of every instruction (used when the VM has to throw a RuntimeError)
+//Made once by the Compiler and never written after that, so a BisayaProgram shares it between
+//threads: every instruction is already in the form picked from the TypeChecker's types
+final class Chunk {
+    final int[] code;
+    final Token[] tokens;
+
+    //every register of the program, with the constants already in theirs and the rest 0/null
+    //Each run works on copies. There are as many as the Compiler worked out the code needs
+    final long[] registers;
+    final String[] strings;
+
+    //the DAWAT statements, INPUT refers to them by index
+    final Stmt.Input[] inputs;
+
+    Chunk(int[] code, Token[] tokens, long[] registers, String[] strings, Stmt.Input[] inputs) {
+        this.code = code;
+        this.tokens = tokens;
+        this.registers = registers;
+        this.strings = strings;
+        this.inputs = inputs;
+    }
+}
@@ -0,0 +1,475 @@
+package bisaya;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Writes a JVM class file by hand, only the parts the JvmCompiler needs: one class with no fields,
+//its constructors and methods, and the constant pool they use
+//The version is 49 (Java 5), so the JVM verifies it by type inference and no StackMapTable frames
+//have to be computed. Code keeps track of the operand stack depth for max_stack instead
+//Branch offsets are 16 bit: a method longer than 32767 bytes throws TooLarge, as does a pool
+//with more than 65535 entries
+final class ClassFile {
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PROTECTED = 0x0004;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    static final int ICONST_0 = 0x03;
+    static final int DCONST_0 = 0x0e;
+    static final int DCONST_1 = 0x0f;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC = 0x12;
+    static final int LDC_W = 0x13;
+    static final int LDC2_W = 0x14;
+    static final int ILOAD = 0x15;
+    static final int DLOAD = 0x18;
+    static final int ALOAD = 0x19;
+    static final int ISTORE = 0x36;
+    static final int DSTORE = 0x39;
+    static final int ASTORE = 0x3a;
+    static final int POP = 0x57;
+    static final int POP2 = 0x58;
+    static final int DUP = 0x59;
+    static final int DUP2 = 0x5c;
+    static final int IADD = 0x60;
+    static final int DADD = 0x63;
+    static final int DSUB = 0x67;
+    static final int DMUL = 0x6b;
+    static final int DDIV = 0x6f;
+    static final int IREM = 0x70;
+    static final int DREM = 0x73;
+    static final int DNEG = 0x77;
+    static final int IXOR = 0x82;
+    static final int I2D = 0x87;
+    static final int D2I = 0x8e;
+    static final int LCMP = 0x94;
+    static final int DCMPL = 0x97;
+    static final int DCMPG = 0x98;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IFLT = 0x9b;
+    static final int IFGE = 0x9c;
+    static final int IFGT = 0x9d;
+    static final int IFLE = 0x9e;
+    static final int IF_ICMPEQ = 0x9f;
+    static final int IF_ICMPNE = 0xa0;
+    static final int IF_ICMPLT = 0xa1;
+    static final int IF_ICMPGE = 0xa2;
+    static final int IF_ICMPGT = 0xa3;
+    static final int IF_ICMPLE = 0xa4;
+    static final int GOTO = 0xa7;
+    static final int RETURN = 0xb1;
+    static final int INVOKEVIRTUAL = 0xb6;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKESTATIC = 0xb8;
+    static final int ATHROW = 0xbf;
+    private static final int WIDE = 0xc4;
+
+    //how much each instruction without operands changes the stack depth
+    private static final int[] STACK_EFFECT = new int[256];
+    static {
+        STACK_EFFECT[ICONST_0] = 1;
+        STACK_EFFECT[DCONST_0] = 2;
+        STACK_EFFECT[DCONST_1] = 2;
+        STACK_EFFECT[POP] = -1;
+        STACK_EFFECT[POP2] = -2;
+        STACK_EFFECT[DUP] = 1;
+        STACK_EFFECT[DUP2] = 2;
+        STACK_EFFECT[IADD] = -1;
+        STACK_EFFECT[DADD] = -2;
+        STACK_EFFECT[DSUB] = -2;
+        STACK_EFFECT[DMUL] = -2;
+        STACK_EFFECT[DDIV] = -2;
+        STACK_EFFECT[IREM] = -1;
+        STACK_EFFECT[DREM] = -2;
+        STACK_EFFECT[DNEG] = 0;
+        STACK_EFFECT[IXOR] = -1;
+        STACK_EFFECT[I2D] = 1;
+        STACK_EFFECT[D2I] = -1;
+        STACK_EFFECT[LCMP] = -3;
+        STACK_EFFECT[DCMPL] = -3;
+        STACK_EFFECT[DCMPG] = -3;
+        STACK_EFFECT[RETURN] = 0;
+        STACK_EFFECT[ATHROW] = -1;
+    }
+
+    //Thrown when the program does not fit the limits of one class file
+    static final class TooLarge extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        TooLarge() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final String name;
+    private final String superName;
+
+    //the constant pool, entries are numbered from 1 and a double takes two
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut = new DataOutputStream(pool);
+    private final Map<String, Integer> constants = new HashMap<>();
+    private int poolCount = 1;
+
+    private final List<byte[]> methods = new ArrayList<>();
+
+    //name and superName are internal names, e.g. "java/lang/Object"
+    ClassFile(String name, String superName) {
+        this.name = name;
+        this.superName = superName;
+    }
+
+    Code code() {
+        return new Code();
+    }
+
+    void addMethod(int access, String methodName, String descriptor, Code code) {
+        if (code.length > 32767) throw new TooLarge();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(code.length + 32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeShort(access);
+            out.writeShort(utf8(methodName));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(1);
+
+            //Code attribute: max_stack, max_locals, the code, no exception table, no attributes
+            out.writeShort(utf8("Code"));
+            out.writeInt(12 + code.length);
+            out.writeShort(code.maxStack);
+            out.writeShort(code.maxLocals);
+            out.writeInt(code.length);
+            out.write(code.bytes, 0, code.length);
+            out.writeShort(0);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        methods.add(bytes.toByteArray());
+    }
+
+    byte[] toBytes() {
+        int thisClass = classRef(name);
+        int superClass = classRef(superName);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(pool.size() + 256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            out.writeShort(poolCount);
+            pool.writeTo(out);
+
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+            out.writeShort(0);
+
+            out.writeShort(methods.size());
+            for (byte[] method : methods) {
+                out.write(method);
+            }
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    //CONSTANT POOL-------------------------------------------------------------------------------
+    int utf8(String value) {
+        Integer index = constants.get("U" + value);
+        if (index != null) return index;
+
+        //writeUTF is the modified UTF-8 of class files, it throws past 65535 bytes
+        try {
+            poolOut.writeByte(1);
+            poolOut.writeUTF(value);
+        } catch (IOException e) {
+            throw new TooLarge();
+        }
+        return add("U" + value, 1);
+    }
+
+    int classRef(String internalName) {
+        Integer index = constants.get("C" + internalName);
+        if (index != null) return index;
+
+        int nameIndex = utf8(internalName);
+        write(7, nameIndex);
+        return add("C" + internalName, 1);
+    }
+
+    int string(String value) {
+        Integer index = constants.get("S" + value);
+        if (index != null) return index;
+
+        int valueIndex = utf8(value);
+        write(8, valueIndex);
+        return add("S" + value, 1);
+    }
+
+    int integer(int value) {
+        Integer index = constants.get("I" + value);
+        if (index != null) return index;
+
+        try {
+            poolOut.writeByte(3);
+            poolOut.writeInt(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return add("I" + value, 1);
+    }
+
+    //keyed on the raw bits, so 0.0 and -0.0 are two constants
+    int doubleConstant(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        Integer index = constants.get("D" + bits);
+        if (index != null) return index;
+
+        try {
+            poolOut.writeByte(6);
+            poolOut.writeLong(bits);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return add("D" + bits, 2);
+    }
+
+    int method(String owner, String methodName, String descriptor) {
+        String key = "M" + owner + "." + methodName + descriptor;
+        Integer index = constants.get(key);
+        if (index != null) return index;
+
+        int ownerIndex = classRef(owner);
+        int nameAndType = nameAndType(methodName, descriptor);
+        write(10, ownerIndex, nameAndType);
+        return add(key, 1);
+    }
+
+    private int nameAndType(String methodName, String descriptor) {
+        String key = "N" + methodName + descriptor;
+        Integer index = constants.get(key);
+        if (index != null) return index;
+
+        int nameIndex = utf8(methodName);
+        int descriptorIndex = utf8(descriptor);
+        write(12, nameIndex, descriptorIndex);
+        return add(key, 1);
+    }
+
+    private void write(int tag, int... indexes) {
+        try {
+            poolOut.writeByte(tag);
+            for (int index : indexes) {
+                poolOut.writeShort(index);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int add(String key, int size) {
+        int index = poolCount;
+        poolCount += size;
+        if (poolCount > 65535) throw new TooLarge();
+
+        constants.put(key, index);
+        return index;
+    }
+
+    //CODE----------------------------------------------------------------------------------------
+
+    //A position in the code, bound by Code.mark() before or after the branches to it
+    //stack is the operand stack depth there, -1 until a branch or the mark sets it
+    static final class Label {
+        private int position = -1;
+        private int stack = -1;
+        private int[] branches = new int[2];
+        private int branchCount = 0;
+    }
+
+    //The body of one method
+    final class Code {
+        private byte[] bytes = new byte[256];
+        private int length = 0;
+
+        private int stack = 0;
+        private int maxStack = 0;
+        int maxLocals = 0;
+
+        void op(int opcode) {
+            emit(opcode);
+            adjust(STACK_EFFECT[opcode]);
+        }
+
+        void pushInt(int value) {
+            if (value >= -1 && value <= 5) {
+                emit(ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                emit(BIPUSH);
+                emit(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                emit(SIPUSH);
+                emitShort(value);
+            } else {
+                ldc(integer(value));
+            }
+            adjust(1);
+        }
+
+        //dconst_0 only for +0.0, -0.0 comes from the pool
+        void pushDouble(double value) {
+            if (Double.doubleToRawLongBits(value) == 0) {
+                emit(DCONST_0);
+            } else if (value == 1) {
+                emit(DCONST_1);
+            } else {
+                emit(LDC2_W);
+                emitShort(doubleConstant(value));
+            }
+            adjust(2);
+        }
+
+        void pushString(String value) {
+            ldc(string(value));
+            adjust(1);
+        }
+
+        private void ldc(int index) {
+            if (index <= 255) {
+                emit(LDC);
+                emit(index);
+            } else {
+                emit(LDC_W);
+                emitShort(index);
+            }
+        }
+
+        //ILOAD, DLOAD, ALOAD or the matching STORE, with WIDE for locals past 255
+        void local(int opcode, int index) {
+            if (index > 255) {
+                emit(WIDE);
+                emit(opcode);
+                emitShort(index);
+            } else {
+                emit(opcode);
+                emit(index);
+            }
+
+            int size = opcode == DLOAD || opcode == DSTORE ? 2 : 1;
+            adjust(opcode >= ISTORE ? -size : size);
+        }
+
+        void invoke(int opcode, String owner, String methodName, String descriptor) {
+            emit(opcode);
+            emitShort(method(owner, methodName, descriptor));
+
+            int effect = opcode == INVOKESTATIC ? 0 : -1;
+            int i = 1;
+            while (descriptor.charAt(i) != ')') {
+                char c = descriptor.charAt(i);
+                if (c == 'D' || c == 'J') {
+                    effect -= 2;
+                } else {
+                    effect -= 1;
+                }
+
+                if (c == 'L') i = descriptor.indexOf(';', i);
+                i++;
+            }
+            char result = descriptor.charAt(i + 1);
+            effect += result == 'V' ? 0 : result == 'D' || result == 'J' ? 2 : 1;
+            adjust(effect);
+        }
+
+        //any IF*, IF_ICMP* or GOTO
+        void jump(int opcode, Label label) {
+            int start = length;
+            emit(opcode);
+            emitShort(0);
+
+            if (opcode >= IF_ICMPEQ && opcode <= IF_ICMPLE) {
+                adjust(-2);
+            } else if (opcode != GOTO) {
+                adjust(-1);
+            }
+            label.stack = stack;
+
+            if (label.position >= 0) {
+                patch(start, label.position);
+            } else {
+                if (label.branchCount == label.branches.length) {
+                    label.branches = Arrays.copyOf(label.branches, label.branchCount * 2);
+                }
+                label.branches[label.branchCount++] = start;
+            }
+        }
+
+        void mark(Label label) {
+            label.position = length;
+            if (label.stack >= 0) {
+                stack = label.stack;
+            } else {
+                label.stack = stack;
+            }
+
+            for (int i = 0; i < label.branchCount; i++) {
+                patch(label.branches[i], length);
+            }
+            label.branchCount = 0;
+        }
+
+        //the bytes of code after these, code is done and its labels are all bound
+        void append(Code code) {
+            ensure(code.length);
+            System.arraycopy(code.bytes, 0, bytes, length, code.length);
+            length += code.length;
+            maxStack = Math.max(maxStack, stack + code.maxStack);
+            maxLocals = Math.max(maxLocals, code.maxLocals);
+        }
+
+        private void patch(int branch, int target) {
+            int offset = target - branch;
+            if (target > 32767 || branch > 32767) throw new TooLarge();
+            bytes[branch + 1] = (byte) (offset >> 8);
+            bytes[branch + 2] = (byte) offset;
+        }
+
+        private void adjust(int effect) {
+            stack += effect;
+            if (stack > maxStack) maxStack = stack;
+        }
+
+        private void emit(int b) {
+            ensure(1);
+            bytes[length++] = (byte) b;
+        }
+
+        private void emitShort(int s) {
+            ensure(2);
+            bytes[length++] = (byte) (s >> 8);
+            bytes[length++] = (byte) s;
+        }
+
+        private void ensure(int more) {
+            if (length + more > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + more));
+            }
+            if (length + more > 65535) throw new TooLarge();
+        }
+    }
+}
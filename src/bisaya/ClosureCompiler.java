@@ -0,0 +1,771 @@
+package bisaya;
+
+import java.util.List;
+
+//The closure engine (--closures): compiles the checked AST once into a tree of small Java objects,
+//one per node, already bound to its operands, its variable slot and the types the TypeChecker found
+//Running the program then calls straight from closure to closure: no visitor double dispatch, no
+//switch on the operator and no tag checks per evaluation. Same results as the Interpreter
+//An expression compiles to the closure of its static type: NUMERO and LETRA to IntCode, TIPIK
+//to DoubleCode, TINUOD to BoolCode and strings to StringCode, so numbers are never boxed
+//Variables live in the same Environment frames as in the Interpreter
+class ClosureCompiler implements Expr.Visitor<Object>, Stmt.Visitor<ClosureCompiler.Code> {
+    interface Code {
+        void run(Environment environment);
+    }
+
+    interface IntCode {
+        int eval(Environment environment);
+    }
+
+    interface DoubleCode {
+        double eval(Environment environment);
+    }
+
+    interface BoolCode {
+        boolean eval(Environment environment);
+    }
+
+    interface StringCode {
+        String eval(Environment environment);
+    }
+
+    private static final Code NOTHING = environment -> {};
+
+    //IPAKITA and DAWAT are bound to these when the program is compiled
+    private final Output output;
+    private final Input input;
+
+    //and every loop to this, checked at the end of each iteration; strings and frames are counted in it
+    private final Budget budget;
+
+    ClosureCompiler(Output output, Input input, Budget budget) {
+        this.output = output;
+        this.input = input;
+        this.budget = budget;
+    }
+
+    Code compile(List<Stmt> statements) {
+        return sequence(statements);
+    }
+
+    //The rest of a SAMTANG or ALANG SA the Interpreter is in the middle of, for the LoopCompiler
+    //It starts with the condition check, in the frame the Interpreter evaluates that condition in
+    Code compileLoop(Stmt loop) {
+        if (loop instanceof Stmt.For) return iterations((Stmt.For) loop);
+        return compile(loop);
+    }
+
+    //Runs a compiled program the way Interpreter.interpret() runs the AST
+    static void run(Code program) {
+        //every program starts from an empty global frame, the Resolver numbered its slots from 0
+        program.run(new Environment());
+    }
+
+    private Code compile(Stmt stmt) {
+        return stmt.accept(this);
+    }
+
+    private Object compile(Expr expr) {
+        return expr.accept(this);
+    }
+
+    //STATEMENTS----------------------------------------------------------------------------------
+    @Override
+    public Code visitBlockStmt(Stmt.Block stmt) {
+        Code body = sequence(stmt.statements);
+
+        //blocks without MUGNA run right in the enclosing scope, the Resolver left them out of the depths
+        if (!stmt.scoped) return body;
+
+        int slotCount = stmt.slotCount;
+        long bytes = Budget.frameBytes(slotCount);
+        return environment -> {
+            budget.allocate(bytes);
+            body.run(new Environment(environment, slotCount));
+            budget.release(bytes);
+        };
+    }
+
+    @Override
+    public Code visitExpressionStmt(Stmt.Expression stmt) {
+        return effect(compile(stmt.expression));
+    }
+
+    @Override
+    public Code visitIfStmt(Stmt.If stmt) {
+        BoolCode condition = truthy(stmt.condition);
+        Code thenBranch = compile(stmt.thenBranch);
+
+        if (stmt.elseBranch == null) {
+            return environment -> {
+                if (condition.eval(environment)) thenBranch.run(environment);
+            };
+        }
+
+        Code elseBranch = compile(stmt.elseBranch);
+        return environment -> {
+            if (condition.eval(environment)) {
+                thenBranch.run(environment);
+            } else {
+                elseBranch.run(environment);
+            }
+        };
+    }
+
+    @Override
+    public Code visitPrintStmt(Stmt.Print stmt) {
+        StringCode text = stringify(stmt.expression);
+        return environment -> output.print(text.eval(environment));
+    }
+
+    @Override
+    public Code visitVarStmt(Stmt.Var stmt) {
+        return NOTHING;
+    }
+
+    @Override
+    public Code visitForStmt(Stmt.For stmt) {
+        boolean scoped = stmt.scoped;
+        int slotCount = stmt.slotCount;
+        Code initializer = stmt.initializer != null ? compile(stmt.initializer) : NOTHING;
+        Code iterations = iterations(stmt);
+
+        //one scope for the whole loop, not one per iteration
+        if (!scoped) {
+            return environment -> {
+                initializer.run(environment);
+                iterations.run(environment);
+            };
+        }
+
+        long bytes = Budget.frameBytes(slotCount);
+        return environment -> {
+            budget.allocate(bytes);
+            Environment loop = new Environment(environment, slotCount);
+            initializer.run(loop);
+            iterations.run(loop);
+            budget.release(bytes);
+        };
+    }
+
+    //The condition, body and increment of an ALANG SA, run in the frame its initializer ran in
+    private Code iterations(Stmt.For stmt) {
+        BoolCode condition = stmt.condition != null ? truthy(stmt.condition) : environment -> true;
+        Code increment = stmt.increment != null ? effect(compile(stmt.increment)) : NOTHING;
+        Token keyword = stmt.keyword;
+
+        //the PUNDOK frame is reused too: every MUGNA in it runs again before its variable is read
+        Stmt.Block block = stmt.body instanceof Stmt.Block && ((Stmt.Block) stmt.body).scoped ? (Stmt.Block) stmt.body : null;
+        if (block != null) {
+            Code body = sequence(block.statements);
+            int bodySlotCount = block.slotCount;
+            long bytes = Budget.frameBytes(bodySlotCount);
+            return loop -> {
+                Environment bodyFrame = new Environment(loop, bodySlotCount);
+                while (condition.eval(loop)) {
+                    //a scope of its own every iteration for the budget, as in visitBlockStmt
+                    budget.allocate(bytes);
+                    body.run(bodyFrame);
+                    budget.release(bytes);
+                    increment.run(loop);
+                    budget.backEdge(keyword);
+                }
+            };
+        }
+
+        Code body = compile(stmt.body);
+        return loop -> {
+            while (condition.eval(loop)) {
+                body.run(loop);
+                increment.run(loop);
+                budget.backEdge(keyword);
+            }
+        };
+    }
+
+    @Override
+    public Code visitWhileStmt(Stmt.While stmt) {
+        BoolCode condition = truthy(stmt.condition);
+        Token keyword = stmt.keyword;
+
+        //the PUNDOK frame is made once per loop, as in visitForStmt
+        if (stmt.body instanceof Stmt.Block && ((Stmt.Block) stmt.body).scoped) {
+            Stmt.Block block = (Stmt.Block) stmt.body;
+            Code body = sequence(block.statements);
+            int slotCount = block.slotCount;
+            long bytes = Budget.frameBytes(slotCount);
+            return environment -> {
+                Environment bodyFrame = null;
+                while (condition.eval(environment)) {
+                    if (bodyFrame == null) bodyFrame = new Environment(environment, slotCount);
+                    budget.allocate(bytes);
+                    body.run(bodyFrame);
+                    budget.release(bytes);
+                    budget.backEdge(keyword);
+                }
+            };
+        }
+
+        Code body = compile(stmt.body);
+        return environment -> {
+            while (condition.eval(environment)) {
+                body.run(environment);
+                budget.backEdge(keyword);
+            }
+        };
+    }
+
+    @Override
+    public Code visitMultiVarStmt(Stmt.MultiVar stmt) {
+        Code[] definitions = new Code[stmt.vars.size()];
+        for (int i = 0; i < definitions.length; i++) {
+            definitions[i] = define(stmt.vars.get(i));
+        }
+        return sequence(definitions);
+    }
+
+    @Override
+    public Code visitInputStmt(Stmt.Input stmt) {
+        List<Token> names = stmt.names;
+        int[] depths = stmt.depths;
+        int[] slots = stmt.slots;
+        Stmt.Var[] declarations = stmt.declarations;
+
+        return environment -> {
+            input.read(names, output);
+
+            for (int i = 0; i < names.size(); i++) {
+                Token name = names.get(i);
+                TokenType dataType = declarations[i].dataType;
+
+                byte tag;
+                long bits;
+                Object ref = null;
+                if (dataType == TokenType.NUMBER) {
+                    tag = Value.INT;
+                    bits = input.intValue(i, name);
+                } else if (dataType == TokenType.DOUBLE) {
+                    tag = Value.DOUBLE;
+                    bits = Double.doubleToRawLongBits(input.doubleValue(i, name));
+                } else {
+                    ref = input.value(i, dataType, name);
+                    tag = Value.tagOf(ref);
+                    bits = Value.bitsOf(ref);
+                }
+
+                if (input.interactive) output.print("THE VALUE IS: " + Value.box(tag, bits, ref) + "\n");
+
+                environment.assign(depths[i], slots[i], tag, bits, ref);
+            }
+        };
+    }
+
+    //MUGNA of one variable, a variable without a value starts out as nil
+    private Code define(Stmt.Var var) {
+        int slot = var.slot;
+        if (var.initializer == null) {
+            return environment -> environment.define(slot, Value.NIL, 0, null);
+        }
+
+        Expr initializer = var.initializer;
+        switch (initializer.type) {
+            case NUMBER: {
+                IntCode value = ints(initializer);
+                if (var.widen) {
+                    return environment -> environment.define(slot, Value.DOUBLE, Double.doubleToRawLongBits(value.eval(environment)), null);
+                }
+                return environment -> environment.define(slot, Value.INT, value.eval(environment), null);
+            }
+            case CHARACTER: {
+                IntCode value = ints(initializer);
+                return environment -> environment.define(slot, Value.CHARACTER, value.eval(environment), null);
+            }
+            case DOUBLE: {
+                DoubleCode value = doubles(initializer);
+                if (var.truncate) {
+                    return environment -> environment.define(slot, Value.INT, (int) value.eval(environment), null);
+                }
+                return environment -> environment.define(slot, Value.DOUBLE, Double.doubleToRawLongBits(value.eval(environment)), null);
+            }
+            case BOOLEAN: {
+                BoolCode value = bools(initializer);
+                return environment -> environment.define(slot, Value.BOOLEAN, value.eval(environment) ? 1 : 0, null);
+            }
+            default: {
+                StringCode value = strings(initializer);
+                return environment -> environment.define(slot, Value.STRING, 0, value.eval(environment));
+            }
+        }
+    }
+
+    //EXPRESSIONS---------------------------------------------------------------------------------
+    @Override
+    public Object visitAssignExpr(Expr.Assign expr) {
+        int depth = expr.depth;
+        int slot = expr.slot;
+
+        //the assignment evaluates to the value given, not the stored one
+        switch (expr.value.type) {
+            case NUMBER:
+            case CHARACTER: {
+                IntCode value = ints(expr.value);
+                if (expr.widen) {
+                    return (IntCode) environment -> {
+                        int given = value.eval(environment);
+                        environment.assign(depth, slot, Value.DOUBLE, Double.doubleToRawLongBits(given), null);
+                        return given;
+                    };
+                }
+                byte tag = expr.value.type == TokenType.NUMBER ? Value.INT : Value.CHARACTER;
+                return (IntCode) environment -> {
+                    int given = value.eval(environment);
+                    environment.assign(depth, slot, tag, given, null);
+                    return given;
+                };
+            }
+            case DOUBLE: {
+                DoubleCode value = doubles(expr.value);
+                if (expr.truncate) {
+                    return (DoubleCode) environment -> {
+                        double given = value.eval(environment);
+                        environment.assign(depth, slot, Value.INT, (int) given, null);
+                        return given;
+                    };
+                }
+                return (DoubleCode) environment -> {
+                    double given = value.eval(environment);
+                    environment.assign(depth, slot, Value.DOUBLE, Double.doubleToRawLongBits(given), null);
+                    return given;
+                };
+            }
+            case BOOLEAN: {
+                BoolCode value = bools(expr.value);
+                return (BoolCode) environment -> {
+                    boolean given = value.eval(environment);
+                    environment.assign(depth, slot, Value.BOOLEAN, given ? 1 : 0, null);
+                    return given;
+                };
+            }
+            default: {
+                StringCode value = strings(expr.value);
+                return (StringCode) environment -> {
+                    String given = value.eval(environment);
+                    environment.assign(depth, slot, Value.STRING, 0, given);
+                    return given;
+                };
+            }
+        }
+    }
+
+    @Override
+    public Object visitUnaryExpr(Expr.Unary expr) {
+        if (expr.operator.type == TokenType.MINUS) {
+            DoubleCode right = doubles(expr.right);
+            return (DoubleCode) environment -> -right.eval(environment);
+        }
+
+        BoolCode right = truthy(expr.right);
+        return (BoolCode) environment -> !right.eval(environment);
+    }
+
+    @Override
+    public Object visitBinaryExpr(Expr.Binary expr) {
+        Token operator = expr.operator;
+
+        switch (expr.operation) {
+            case INT_ADD: {
+                IntCode left = ints(expr.left);
+                if (expr.right instanceof Expr.Literal) {
+                    //x + 1, the most common one in loops
+                    int right = (int) ((Expr.Literal) expr.right).bits;
+                    return (IntCode) environment -> left.eval(environment) + right;
+                }
+                IntCode right = ints(expr.right);
+                return (IntCode) environment -> left.eval(environment) + right.eval(environment);
+            }
+            case DOUBLE_ADD: {
+                DoubleCode left = doubles(expr.left);
+                DoubleCode right = doubles(expr.right);
+                return (DoubleCode) environment -> left.eval(environment) + right.eval(environment);
+            }
+            case STRING_ADD: {
+                //a number on either side is added with its Java form (1.0 stays 1.0)
+                StringCode left = text(expr.left);
+                StringCode right = text(expr.right);
+                return (StringCode) environment -> budget.string(operator, left.eval(environment) + right.eval(environment));
+            }
+            case SUBTRACT: {
+                DoubleCode left = doubles(expr.left);
+                DoubleCode right = doubles(expr.right);
+                return (DoubleCode) environment -> left.eval(environment) - right.eval(environment);
+            }
+            case MULTIPLY: {
+                DoubleCode left = doubles(expr.left);
+                DoubleCode right = doubles(expr.right);
+                return (DoubleCode) environment -> left.eval(environment) * right.eval(environment);
+            }
+            case DIVIDE: {
+                DoubleCode left = doubles(expr.left);
+                DoubleCode right = doubles(expr.right);
+                return (DoubleCode) environment -> {
+                    double dividend = left.eval(environment);
+                    double divisor = right.eval(environment);
+                    if (divisor == 0) throw new RuntimeError(operator, "Cannot divide by zero.");
+                    return dividend / divisor;
+                };
+            }
+            case INT_MODULO: {
+                IntCode left = ints(expr.left);
+                IntCode right = ints(expr.right);
+                return (DoubleCode) environment -> {
+                    int dividend = left.eval(environment);
+                    int divisor = right.eval(environment);
+                    if (divisor == 0) throw new RuntimeError(operator, "Cannot modulo by zero.");
+
+                    //integer remainder is exact, only the sign of a zero result needs care (-4 % 2 is -0.0)
+                    int remainder = dividend % divisor;
+                    return remainder == 0 && dividend < 0 ? -0.0 : remainder;
+                };
+            }
+            case DOUBLE_MODULO: {
+                DoubleCode left = doubles(expr.left);
+                DoubleCode right = doubles(expr.right);
+                return (DoubleCode) environment -> {
+                    double dividend = left.eval(environment);
+                    double divisor = right.eval(environment);
+                    if (divisor == 0) throw new RuntimeError(operator, "Cannot modulo by zero.");
+                    return dividend % divisor;
+                };
+            }
+            case INT_GREATER: {
+                IntCode left = ints(expr.left);
+                IntCode right = ints(expr.right);
+                return (BoolCode) environment -> left.eval(environment) > right.eval(environment);
+            }
+            case INT_GREATER_EQUAL: {
+                IntCode left = ints(expr.left);
+                IntCode right = ints(expr.right);
+                return (BoolCode) environment -> left.eval(environment) >= right.eval(environment);
+            }
+            case INT_LESSER: {
+                IntCode left = ints(expr.left);
+                if (expr.right instanceof Expr.Literal) {
+                    //i < 10, the usual loop condition
+                    int right = (int) ((Expr.Literal) expr.right).bits;
+                    return (BoolCode) environment -> left.eval(environment) < right;
+                }
+                IntCode right = ints(expr.right);
+                return (BoolCode) environment -> left.eval(environment) < right.eval(environment);
+            }
+            case INT_LESSER_EQUAL: {
+                IntCode left = ints(expr.left);
+                IntCode right = ints(expr.right);
+                return (BoolCode) environment -> left.eval(environment) <= right.eval(environment);
+            }
+            case DOUBLE_GREATER: {
+                DoubleCode left = doubles(expr.left);
+                DoubleCode right = doubles(expr.right);
+                return (BoolCode) environment -> left.eval(environment) > right.eval(environment);
+            }
+            case DOUBLE_GREATER_EQUAL: {
+                DoubleCode left = doubles(expr.left);
+                DoubleCode right = doubles(expr.right);
+                return (BoolCode) environment -> left.eval(environment) >= right.eval(environment);
+            }
+            case DOUBLE_LESSER: {
+                DoubleCode left = doubles(expr.left);
+                DoubleCode right = doubles(expr.right);
+                return (BoolCode) environment -> left.eval(environment) < right.eval(environment);
+            }
+            case DOUBLE_LESSER_EQUAL: {
+                DoubleCode left = doubles(expr.left);
+                DoubleCode right = doubles(expr.right);
+                return (BoolCode) environment -> left.eval(environment) <= right.eval(environment);
+            }
+            case EQUAL:
+                return equal(expr.left, expr.right);
+            case NOT_EQUAL: {
+                BoolCode equal = equal(expr.left, expr.right);
+                return (BoolCode) environment -> !equal.eval(environment);
+            }
+            case CONCAT: {
+                StringCode left = stringify(expr.left);
+                StringCode right = stringify(expr.right);
+                return (StringCode) environment -> budget.string(operator, left.eval(environment) + right.eval(environment));
+            }
+        }
+
+        //Unreachable, the TypeChecker picked an Operation for every Binary
+        throw new IllegalStateException("No operation for " + operator.lexeme);
+    }
+
+    @Override
+    public Object visitGroupingExpr(Expr.Grouping expr) {
+        return compile(expr.expression);
+    }
+
+    @Override
+    public Object visitLiteralExpr(Expr.Literal expr) {
+        switch (expr.tag) {
+            case Value.INT:
+            case Value.CHARACTER: {
+                int value = (int) expr.bits;
+                return (IntCode) environment -> value;
+            }
+            case Value.DOUBLE: {
+                double value = Double.longBitsToDouble(expr.bits);
+                return (DoubleCode) environment -> value;
+            }
+            case Value.BOOLEAN: {
+                boolean value = expr.bits != 0;
+                return (BoolCode) environment -> value;
+            }
+            default: {
+                String value = (String) expr.value;
+                return (StringCode) environment -> value;
+            }
+        }
+    }
+
+    @Override
+    public Object visitLogicalExpr(Expr.Logical expr) {
+        boolean or = expr.operator.type == TokenType.OR;
+
+        //both sides have the same type, the TypeChecker made sure
+        if (expr.left.type == TokenType.BOOLEAN) {
+            BoolCode left = bools(expr.left);
+            BoolCode right = bools(expr.right);
+            if (or) return (BoolCode) environment -> left.eval(environment) || right.eval(environment);
+            return (BoolCode) environment -> left.eval(environment) && right.eval(environment);
+        }
+
+        //anything else is truthy: O gives back the left value, UG the right one
+        if (or) return compile(expr.left);
+        return then(effect(compile(expr.left)), compile(expr.right));
+    }
+
+    @Override
+    public Object visitVariableExpr(Expr.Variable expr) {
+        int depth = expr.depth;
+        int slot = expr.slot;
+
+        //most variables are read in the scope they are declared in, no ancestor() walk for those
+        switch (expr.declaration.dataType) {
+            case NUMBER:
+            case CHARACTER:
+                if (depth == 0) return (IntCode) environment -> (int) environment.bits[slot];
+                return (IntCode) environment -> (int) environment.ancestor(depth).bits[slot];
+            case DOUBLE:
+                if (depth == 0) return (DoubleCode) environment -> Double.longBitsToDouble(environment.bits[slot]);
+                return (DoubleCode) environment -> Double.longBitsToDouble(environment.ancestor(depth).bits[slot]);
+            case BOOLEAN:
+                if (depth == 0) return (BoolCode) environment -> environment.bits[slot] != 0;
+                return (BoolCode) environment -> environment.ancestor(depth).bits[slot] != 0;
+            default:
+                return (StringCode) environment -> (String) environment.ancestor(depth).refs[slot];
+        }
+    }
+
+    @Override
+    public Object visitPostfixExpr(Expr.Postfix expr) {
+        Expr.Variable variable = (Expr.Variable) expr.expression;
+        int depth = variable.depth;
+        int slot = variable.slot;
+        double step = expr.operator.type == TokenType.INCREMENT ? 1 : -1;
+
+        //a NUMERO keeps its type, the original value comes back as a TIPIK (postfix behavior)
+        if (variable.declaration.dataType == TokenType.NUMBER) {
+            return (DoubleCode) environment -> {
+                Environment frame = environment.ancestor(depth);
+                double current = (int) frame.bits[slot];
+                frame.tags[slot] = Value.INT;
+                frame.bits[slot] = (int) (current + step);
+                return current;
+            };
+        }
+
+        return (DoubleCode) environment -> {
+            Environment frame = environment.ancestor(depth);
+            double current = Double.longBitsToDouble(frame.bits[slot]);
+            frame.tags[slot] = Value.DOUBLE;
+            frame.bits[slot] = Double.doubleToRawLongBits(current + step);
+            return current;
+        };
+    }
+
+    //HELPER FUNCTIONS----------------------------------------------------------------------------
+    private Code sequence(List<Stmt> statements) {
+        Code[] codes = new Code[statements.size()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = compile(statements.get(i));
+        }
+        return sequence(codes);
+    }
+
+    private static Code sequence(Code[] codes) {
+        if (codes.length == 1) return codes[0];
+        return environment -> {
+            for (Code code : codes) {
+                code.run(environment);
+            }
+        };
+    }
+
+    private IntCode ints(Expr expr) {
+        return (IntCode) compile(expr);
+    }
+
+    //a NUMERO where a TIPIK is needed is widened
+    private DoubleCode doubles(Expr expr) {
+        Object code = compile(expr);
+        if (code instanceof IntCode) {
+            IntCode value = (IntCode) code;
+            return environment -> value.eval(environment);
+        }
+        return (DoubleCode) code;
+    }
+
+    private BoolCode bools(Expr expr) {
+        return (BoolCode) compile(expr);
+    }
+
+    private StringCode strings(Expr expr) {
+        return (StringCode) compile(expr);
+    }
+
+    //false is falsey, and a checked program never reads nil, so every other value is truthy
+    private BoolCode truthy(Expr expr) {
+        if (expr.type == TokenType.BOOLEAN) return bools(expr);
+
+        Code value = effect(compile(expr));
+        return environment -> {
+            value.run(environment);
+            return true;
+        };
+    }
+
+    //evaluates code for its side effects only
+    private static Code effect(Object code) {
+        if (code instanceof IntCode) return ((IntCode) code)::eval;
+        if (code instanceof DoubleCode) return ((DoubleCode) code)::eval;
+        if (code instanceof BoolCode) return ((BoolCode) code)::eval;
+        return ((StringCode) code)::eval;
+    }
+
+    //first, then the value of code
+    private static Object then(Code first, Object code) {
+        if (code instanceof IntCode) {
+            IntCode value = (IntCode) code;
+            return (IntCode) environment -> {
+                first.run(environment);
+                return value.eval(environment);
+            };
+        }
+        if (code instanceof DoubleCode) {
+            DoubleCode value = (DoubleCode) code;
+            return (DoubleCode) environment -> {
+                first.run(environment);
+                return value.eval(environment);
+            };
+        }
+        if (code instanceof BoolCode) {
+            BoolCode value = (BoolCode) code;
+            return (BoolCode) environment -> {
+                first.run(environment);
+                return value.eval(environment);
+            };
+        }
+
+        StringCode value = (StringCode) code;
+        return (StringCode) environment -> {
+            first.run(environment);
+            return value.eval(environment);
+        };
+    }
+
+    //same as Interpreter.isEqual: values of different types are never equal (1 <> 1.0)
+    private BoolCode equal(Expr leftExpr, Expr rightExpr) {
+        if (leftExpr.type != rightExpr.type) {
+            Code left = effect(compile(leftExpr));
+            Code right = effect(compile(rightExpr));
+            return environment -> {
+                left.run(environment);
+                right.run(environment);
+                return false;
+            };
+        }
+
+        switch (leftExpr.type) {
+            case NUMBER:
+            case CHARACTER: {
+                IntCode left = ints(leftExpr);
+                IntCode right = ints(rightExpr);
+                return environment -> left.eval(environment) == right.eval(environment);
+            }
+            case DOUBLE: {
+                DoubleCode left = doubles(leftExpr);
+                DoubleCode right = doubles(rightExpr);
+                return environment -> Double.doubleToLongBits(left.eval(environment)) == Double.doubleToLongBits(right.eval(environment));
+            }
+            case BOOLEAN: {
+                BoolCode left = bools(leftExpr);
+                BoolCode right = bools(rightExpr);
+                return environment -> left.eval(environment) == right.eval(environment);
+            }
+            default: {
+                StringCode left = strings(leftExpr);
+                StringCode right = strings(rightExpr);
+                return environment -> left.eval(environment).equals(right.eval(environment));
+            }
+        }
+    }
+
+    //the Java form of a number or string, for STRING_ADD
+    private StringCode text(Expr expr) {
+        switch (expr.type) {
+            case NUMBER: {
+                IntCode value = ints(expr);
+                return environment -> Integer.toString(value.eval(environment));
+            }
+            case DOUBLE: {
+                DoubleCode value = doubles(expr);
+                return environment -> Double.toString(value.eval(environment));
+            }
+            default:
+                return strings(expr);
+        }
+    }
+
+    //same text as Interpreter.stringify, for IPAKITA and &
+    private StringCode stringify(Expr expr) {
+        switch (expr.type) {
+            case NUMBER: {
+                IntCode value = ints(expr);
+                return environment -> Integer.toString(value.eval(environment));
+            }
+            case CHARACTER: {
+                IntCode value = ints(expr);
+                return environment -> String.valueOf((char) value.eval(environment));
+            }
+            case DOUBLE: {
+                DoubleCode value = doubles(expr);
+                return environment -> stringify(value.eval(environment));
+            }
+            case BOOLEAN: {
+                BoolCode value = bools(expr);
+                return environment -> value.eval(environment) ? "OO" : "DILI";
+            }
+            default:
+                return strings(expr);
+        }
+    }
+
+    private static String stringify(double value) {
+        String text = Double.toString(value);
+        if (text.endsWith(".0")) {
+            text = text.substring(0, text.length() - 2);
+        }
+        return text;
+    }
+}
@@ -0,0 +1,631 @@
+package bisaya;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Turns the statements from BisayaEngine.compile() into a Chunk for the VM
+//Works on the checked tree like the JvmCompiler: every expression has its static type, so every
+//operator gets the instruction for just those types. Compiling an expression returns the register
+//its value ends up in: a variable or a constant is its own register and costs no instruction
+//Registers come in three kinds, numbered apart while compiling and laid out one after the other
+//at the end: the variables, at the slots the Resolver gave them, flat (a scope's slots come right
+//after those of the scope around it, so the VM never looks up a name or walks a frame), then the
+//constants, then the temporaries, reused from one statement to the next
+class Compiler implements Expr.Visitor<Integer>, Stmt.Visitor<Void> {
+    //a register while compiling: its kind in the top bits, its number within the kind below
+    private static final int VARIABLE = 0;
+    private static final int CONSTANT = 1 << 29;
+    private static final int TEMPORARY = 2 << 29;
+    private static final int KIND = 3 << 29;
+
+    //the Chunk being written
+    private int[] code = new int[256];
+    private Token[] tokens = new Token[256];
+    private int count = 0;
+    private final List<Stmt.Input> inputs = new ArrayList<>();
+
+    //constant values, Long or String, each in a register of its own
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Object, Integer> constantIndex = new HashMap<>();
+
+    //first slot of every scope around the code being compiled, the global scope first
+    private int[] scopes = new int[8];
+    private int scopeCount = 0;
+    private int nextSlot = 0;
+    private int slotCount = 0;
+
+    //temporaries in use at this point of the code and the most ever in use at once, so the VM has
+    //just as many registers as the chunk needs however deep its expressions nest
+    private int temporaries = 0;
+    private int maxTemporaries = 0;
+
+    //where the code has a constant or temporary, numbered in its kind until compile() lays them out
+    private final List<Integer> operandOffsets = new ArrayList<>();
+    private final List<Integer> operandRegisters = new ArrayList<>();
+
+    //register the expression being compiled can put its value in, see compile(Expr, int)
+    private int into = -1;
+
+    //token of the statement/expression being compiled, attached to every word written
+    private Token currentToken = null;
+
+    Chunk compile(List<Stmt> statements) {
+        //the MUGNA at the top level are the global scope, the Resolver numbered them from 0
+        int globals = 0;
+        for (Stmt statement : statements) {
+            if (!(statement instanceof Stmt.MultiVar)) continue;
+            for (Stmt.Var var : ((Stmt.MultiVar) statement).vars) {
+                globals = Math.max(globals, var.slot + 1);
+            }
+        }
+
+        beginScope(globals);
+        for (Stmt statement : statements) {
+            compile(statement);
+        }
+        endScope();
+
+        emit(OpCode.RETURN);
+        return link();
+    }
+
+    //lays out the registers and fills the constant and temporary operands in with their numbers
+    private Chunk link() {
+        int constantBase = slotCount;
+        int temporaryBase = constantBase + constants.size();
+        int registerCount = temporaryBase + maxTemporaries;
+
+        for (int i = 0; i < operandOffsets.size(); i++) {
+            int offset = operandOffsets.get(i);
+            int register = operandRegisters.get(i);
+            code[offset] = (register & ~KIND) + ((register & KIND) == CONSTANT ? constantBase : temporaryBase);
+        }
+
+        long[] registers = new long[registerCount];
+        String[] strings = new String[registerCount];
+        for (int i = 0; i < constants.size(); i++) {
+            Object value = constants.get(i);
+            if (value instanceof Long) {
+                registers[constantBase + i] = (Long) value;
+            } else {
+                strings[constantBase + i] = (String) value;
+            }
+        }
+
+        return new Chunk(Arrays.copyOf(code, count), Arrays.copyOf(tokens, count), registers, strings,
+                inputs.toArray(new Stmt.Input[0]));
+    }
+
+    private void compile(Stmt stmt) {
+        stmt.accept(this);
+
+        //no value outlives its statement
+        temporaries = 0;
+    }
+
+    //Returns the register that holds the value of expr. An expression whose last instruction
+    //makes its value can make it right in into, a variable it is stored to, instead of in a
+    //temporary: that instruction reads all its operands before it writes, so x = x + 1 is one
+    //INT_ADD. -1 for a temporary
+    private int compile(Expr expr, int into) {
+        this.into = into;
+        return expr.accept(this);
+    }
+
+    //compile(expr, into) and a MOVE when the value did not end up there
+    private void compileInto(Expr expr, int register) {
+        int value = compile(expr, register);
+        if (value != register) emit(OpCode.MOVE, register, value);
+    }
+
+    //STATEMENTS----------------------------------------------------------------------------------
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        //blocks without MUGNA run right in the enclosing scope, the Resolver left them out of the depths
+        if (!stmt.scoped) {
+            for (Stmt statement : stmt.statements) {
+                compile(statement);
+            }
+            return null;
+        }
+
+        beginScope(stmt.slotCount);
+        emitScope(OpCode.ENTER_SCOPE, stmt.slotCount);
+        for (Stmt statement : stmt.statements) {
+            compile(statement);
+        }
+        emitScope(OpCode.EXIT_SCOPE, stmt.slotCount);
+        endScope();
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        compile(stmt.expression, -1);
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        int thenJump = jumpIfFalse(stmt.condition);
+        compile(stmt.thenBranch);
+
+        if (stmt.elseBranch == null) {
+            if (thenJump != -1) patchJump(thenJump);
+            return null;
+        }
+
+        int elseJump = emitJump(OpCode.JUMP);
+        if (thenJump != -1) patchJump(thenJump);
+        compile(stmt.elseBranch);
+        patchJump(elseJump);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        int text = stringify(stmt.expression);
+        emit(OpCode.PRINT, text);
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        return null;
+    }
+
+    @Override
+    public Void visitForStmt(Stmt.For stmt) {
+        //one scope for the whole loop, not one per iteration
+        if (stmt.scoped) {
+            beginScope(stmt.slotCount);
+            emitScope(OpCode.ENTER_SCOPE, stmt.slotCount);
+        }
+        if (stmt.initializer != null) compile(stmt.initializer);
+        loop(stmt.keyword, stmt.condition, stmt.body, stmt.increment);
+
+        if (stmt.scoped) {
+            emitScope(OpCode.EXIT_SCOPE, stmt.slotCount);
+            endScope();
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        loop(stmt.keyword, stmt.condition, stmt.body, null);
+        return null;
+    }
+
+    @Override
+    public Void visitMultiVarStmt(Stmt.MultiVar stmt) {
+        //a MUGNA without a value leaves the variable alone, it is never read before an assignment
+        for (Stmt.Var var : stmt.vars) {
+            if (var.initializer == null) continue;
+
+            store(var.initializer, scopes[scopeCount - 1] + var.slot, var.truncate, var.widen);
+            temporaries = 0;
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitInputStmt(Stmt.Input stmt) {
+        //the VM reads each value as the type of its declaration
+        currentToken = stmt.names.get(0);
+        inputs.add(stmt);
+        emitWord(OpCode.INPUT);
+        emitWord(inputs.size() - 1);
+
+        for (int i = 0; i < stmt.names.size(); i++) {
+            emitRegister(variable(stmt.depths[i], stmt.slots[i]));
+        }
+        return null;
+    }
+
+    //EXPRESSIONS---------------------------------------------------------------------------------
+    @Override
+    public Integer visitAssignExpr(Expr.Assign expr) {
+        //the assignment evaluates to the value given, not the stored one
+        return store(expr.value, variable(expr.depth, expr.slot), expr.truncate, expr.widen);
+    }
+
+    @Override
+    public Integer visitUnaryExpr(Expr.Unary expr) {
+        int into = this.into;
+        if (expr.operator.type == TokenType.MINUS) {
+            int right = doubles(expr.right);
+            return emitResult(OpCode.NEGATE, into, expr.operator, right);
+        }
+
+        if (expr.right.type == TokenType.BOOLEAN) {
+            int right = compile(expr.right, -1);
+            return emitResult(OpCode.NOT, into, expr.operator, right);
+        }
+
+        //anything else is truthy
+        compile(expr.right, -1);
+        return number(0);
+    }
+
+    @Override
+    public Integer visitBinaryExpr(Expr.Binary expr) {
+        int into = this.into;
+        switch (expr.operation) {
+            case INT_ADD: return binary(OpCode.INT_ADD, into, expr, false);
+            case DOUBLE_ADD: return binary(OpCode.DOUBLE_ADD, into, expr, true);
+            case SUBTRACT: return binary(OpCode.SUBTRACT, into, expr, true);
+            case MULTIPLY: return binary(OpCode.MULTIPLY, into, expr, true);
+            case DIVIDE: return binary(OpCode.DIVIDE, into, expr, true);
+            case INT_MODULO: return binary(OpCode.INT_MODULO, into, expr, false);
+            case DOUBLE_MODULO: return binary(OpCode.DOUBLE_MODULO, into, expr, true);
+            case INT_GREATER: return binary(OpCode.INT_GREATER, into, expr, false);
+            case INT_GREATER_EQUAL: return binary(OpCode.INT_GREATER_EQUAL, into, expr, false);
+            case INT_LESSER: return binary(OpCode.INT_LESSER, into, expr, false);
+            case INT_LESSER_EQUAL: return binary(OpCode.INT_LESSER_EQUAL, into, expr, false);
+            case DOUBLE_GREATER: return binary(OpCode.DOUBLE_GREATER, into, expr, true);
+            case DOUBLE_GREATER_EQUAL: return binary(OpCode.DOUBLE_GREATER_EQUAL, into, expr, true);
+            case DOUBLE_LESSER: return binary(OpCode.DOUBLE_LESSER, into, expr, true);
+            case DOUBLE_LESSER_EQUAL: return binary(OpCode.DOUBLE_LESSER_EQUAL, into, expr, true);
+            case EQUAL: return equal(into, expr);
+            case NOT_EQUAL: {
+                int equal = equal(-1, expr);
+                return emitResult(OpCode.NOT, into, expr.operator, equal);
+            }
+            case STRING_ADD: {
+                //a number on either side is added with its Java form (1.0 stays 1.0)
+                int mark = temporaries;
+                int left = keep(text(expr.left), expr.right);
+                int right = text(expr.right);
+                temporaries = mark;
+                return emitResult(OpCode.CONCAT, into, expr.operator, left, right);
+            }
+            default: {
+                int mark = temporaries;
+                int left = keep(stringify(expr.left), expr.right);
+                int right = stringify(expr.right);
+                temporaries = mark;
+                return emitResult(OpCode.CONCAT, into, expr.operator, left, right);
+            }
+        }
+    }
+
+    @Override
+    public Integer visitGroupingExpr(Expr.Grouping expr) {
+        return compile(expr.expression, into);
+    }
+
+    @Override
+    public Integer visitLiteralExpr(Expr.Literal expr) {
+        return expr.tag == Value.STRING ? constant(expr.value) : number(expr.bits);
+    }
+
+    @Override
+    public Integer visitLogicalExpr(Expr.Logical expr) {
+        //anything but a TINUOD is truthy: O gives back the left value, UG the right one
+        if (expr.left.type != TokenType.BOOLEAN) {
+            int into = this.into;
+            if (expr.operator.type == TokenType.OR) return compile(expr.left, into);
+            compile(expr.left, -1);
+            return compile(expr.right, into);
+        }
+
+        //the left value is the result when it short circuits
+        //Always a temporary: the right side might read the variable the result goes to
+        int result = temporary();
+        compileInto(expr.left, result);
+        currentToken = expr.operator;
+        int endJump = emitJump(expr.operator.type == TokenType.OR ? OpCode.JUMP_IF_TRUE : OpCode.JUMP_IF_FALSE, result);
+        compileInto(expr.right, result);
+        patchJump(endJump);
+        return result;
+    }
+
+    @Override
+    public Integer visitVariableExpr(Expr.Variable expr) {
+        return variable(expr.depth, expr.slot);
+    }
+
+    @Override
+    public Integer visitPostfixExpr(Expr.Postfix expr) {
+        //the TypeChecker only lets a NUMERO or TIPIK variable through
+        Expr.Variable variable = (Expr.Variable) expr.expression;
+        boolean increment = expr.operator.type == TokenType.INCREMENT;
+        int op = variable.declaration.dataType == TokenType.NUMBER
+                ? (increment ? OpCode.INCREMENT_INT : OpCode.DECREMENT_INT)
+                : (increment ? OpCode.INCREMENT_DOUBLE : OpCode.DECREMENT_DOUBLE);
+        return emitResult(op, into, expr.operator, variable(variable.depth, variable.slot));
+    }
+
+    //HELPER FUNCTIONS----------------------------------------------------------------------------
+    //value stored to the variable, cut down to a NUMERO or widened to a TIPIK the way the
+    //TypeChecker's truncate and widen say. Returns the register of the value given
+    private int store(Expr value, int variable, boolean truncate, boolean widen) {
+        if (!truncate && !widen) {
+            compileInto(value, variable);
+            return variable;
+        }
+
+        int given = compile(value, -1);
+        emit(truncate ? OpCode.DOUBLE_TO_INT : OpCode.INT_TO_DOUBLE, variable, given);
+        return given;
+    }
+
+    //The condition is tested once on the way in and then at the bottom of every iteration, in the
+    //same instruction as the jump back, so an iteration runs no LOOP of its own
+    private void loop(Token keyword, Expr condition, Stmt body, Expr increment) {
+        if (condition == null || condition.type != TokenType.BOOLEAN) {
+            //never false, only evaluated for its effect
+            int loopStart = count;
+            if (condition != null) jumpIfFalse(condition);
+            compile(body);
+            increment(increment);
+            currentToken = keyword;
+            emitLoop(OpCode.LOOP, loopStart);
+            return;
+        }
+
+        int exitJump = jumpIfFalse(condition);
+        int bodyStart = count;
+        compile(body);
+        increment(increment);
+
+        if (condition instanceof Expr.Binary && isIntComparison(((Expr.Binary) condition).operation)) {
+            Expr.Binary binary = (Expr.Binary) condition;
+            int left = keep(compile(binary.left, -1), binary.right);
+            int right = compile(binary.right, -1);
+            currentToken = keyword;
+            emitLoop(loopJump(binary.operation), bodyStart, left, right);
+        } else {
+            int value = compile(condition, -1);
+            currentToken = keyword;
+            emitLoop(OpCode.LOOP_IF_TRUE, bodyStart, value);
+        }
+        temporaries = 0;
+        patchJump(exitJump);
+    }
+
+    //Compiles the condition and returns the jump to patch where the code goes when it is false,
+    //-1 when it cannot be: false is falsey, and a checked program never reads nil, so every value
+    //other than a TINUOD is truthy
+    private int jumpIfFalse(Expr condition) {
+        int jump;
+        if (condition.type != TokenType.BOOLEAN) {
+            compile(condition, -1);
+            jump = -1;
+        } else if (condition instanceof Expr.Binary && isIntComparison(((Expr.Binary) condition).operation)) {
+            //jumps on the opposite comparison, two NUMERO have no NaN to get in the way
+            Expr.Binary binary = (Expr.Binary) condition;
+            int left = keep(compile(binary.left, -1), binary.right);
+            int right = compile(binary.right, -1);
+            currentToken = binary.operator;
+            jump = emitJump(oppositeJump(binary.operation), left, right);
+        } else {
+            int value = compile(condition, -1);
+            jump = emitJump(OpCode.JUMP_IF_FALSE, value);
+        }
+
+        temporaries = 0;
+        return jump;
+    }
+
+    private static boolean isIntComparison(Operation operation) {
+        return operation == Operation.INT_GREATER || operation == Operation.INT_GREATER_EQUAL
+                || operation == Operation.INT_LESSER || operation == Operation.INT_LESSER_EQUAL;
+    }
+
+    private static int oppositeJump(Operation operation) {
+        switch (operation) {
+            case INT_GREATER: return OpCode.JUMP_IF_INT_LESSER_EQUAL;
+            case INT_GREATER_EQUAL: return OpCode.JUMP_IF_INT_LESSER;
+            case INT_LESSER: return OpCode.JUMP_IF_INT_GREATER_EQUAL;
+            default: return OpCode.JUMP_IF_INT_GREATER;
+        }
+    }
+
+    //the ALANG SA step, run like a statement of its own
+    private void increment(Expr increment) {
+        if (increment == null) return;
+        compile(increment, -1);
+        temporaries = 0;
+    }
+
+    private static int loopJump(Operation operation) {
+        switch (operation) {
+            case INT_GREATER: return OpCode.LOOP_IF_INT_GREATER;
+            case INT_GREATER_EQUAL: return OpCode.LOOP_IF_INT_GREATER_EQUAL;
+            case INT_LESSER: return OpCode.LOOP_IF_INT_LESSER;
+            default: return OpCode.LOOP_IF_INT_LESSER_EQUAL;
+        }
+    }
+
+    //both operands, as TIPIK when doubles, then the operator itself
+    private int binary(int op, int into, Expr.Binary expr, boolean doubles) {
+        int mark = temporaries;
+        int left = keep(doubles ? doubles(expr.left) : compile(expr.left, -1), expr.right);
+        int right = doubles ? doubles(expr.right) : compile(expr.right, -1);
+        temporaries = mark;
+        return emitResult(op, into, expr.operator, left, right);
+    }
+
+    //A left operand is read when its operator runs, after the right one. A variable the right
+    //operand changes is copied first so it gives its value from before, like in the Interpreter
+    private int keep(int left, Expr right) {
+        if ((left & KIND) != VARIABLE || !writes(right)) return left;
+
+        int copy = temporary();
+        emit(OpCode.MOVE, copy, left);
+        return copy;
+    }
+
+    //whether the expression assigns or steps a variable anywhere in it
+    private static boolean writes(Expr expr) {
+        if (expr instanceof Expr.Assign || expr instanceof Expr.Postfix) return true;
+        if (expr instanceof Expr.Binary) return writes(((Expr.Binary) expr).left) || writes(((Expr.Binary) expr).right);
+        if (expr instanceof Expr.Logical) return writes(((Expr.Logical) expr).left) || writes(((Expr.Logical) expr).right);
+        if (expr instanceof Expr.Grouping) return writes(((Expr.Grouping) expr).expression);
+        if (expr instanceof Expr.Unary) return writes(((Expr.Unary) expr).right);
+        return false;
+    }
+
+    //a NUMERO where a TIPIK is needed is widened
+    private int doubles(Expr expr) {
+        if (expr instanceof Expr.Literal && expr.type == TokenType.NUMBER) {
+            return number(Double.doubleToRawLongBits((int) ((Expr.Literal) expr).bits));
+        }
+
+        int value = compile(expr, -1);
+        if (expr.type != TokenType.NUMBER) return value;
+
+        int widened = temporary();
+        emit(OpCode.INT_TO_DOUBLE, widened, value);
+        return widened;
+    }
+
+    //same as Interpreter.isEqual: values of different types are never equal (1 <> 1.0)
+    private int equal(int into, Expr.Binary expr) {
+        if (expr.left.type != expr.right.type) {
+            compile(expr.left, -1);
+            compile(expr.right, -1);
+            return number(0);
+        }
+
+        switch (expr.left.type) {
+            case DOUBLE: return binary(OpCode.DOUBLE_EQUAL, into, expr, false);
+            case STRING: return binary(OpCode.STRING_EQUAL, into, expr, false);
+            default: return binary(OpCode.EQUAL, into, expr, false);
+        }
+    }
+
+    //the Java form of a number or string, for STRING_ADD
+    private int text(Expr expr) {
+        int value = compile(expr, -1);
+        switch (expr.type) {
+            case NUMBER: return convert(OpCode.INT_TO_STRING, value);
+            case DOUBLE: return convert(OpCode.DOUBLE_TO_STRING, value);
+            default: return value;
+        }
+    }
+
+    //same text as Interpreter.stringify, for IPAKITA and &
+    private int stringify(Expr expr) {
+        int value = compile(expr, -1);
+        switch (expr.type) {
+            case NUMBER: return convert(OpCode.INT_TO_STRING, value);
+            case DOUBLE: return convert(OpCode.STRINGIFY_DOUBLE, value);
+            case CHARACTER: return convert(OpCode.CHARACTER_TO_STRING, value);
+            case BOOLEAN: return convert(OpCode.BOOLEAN_TO_STRING, value);
+            default: return value;
+        }
+    }
+
+    private int convert(int op, int value) {
+        int converted = temporary();
+        emit(op, converted, value);
+        return converted;
+    }
+
+    //REGISTERS-----------------------------------------------------------------------------------
+    //the slots of a scope start where the scope around it ends
+    private void beginScope(int size) {
+        if (scopeCount == scopes.length) scopes = Arrays.copyOf(scopes, scopeCount * 2);
+        scopes[scopeCount++] = nextSlot;
+        nextSlot += size;
+        slotCount = Math.max(slotCount, nextSlot);
+    }
+
+    //the slots of the scope can be used again by the next one
+    private void endScope() {
+        nextSlot = scopes[--scopeCount];
+    }
+
+    //the variable the Resolver found depth scopes up
+    private int variable(int depth, int slot) {
+        return VARIABLE | (scopes[scopeCount - 1 - depth] + slot);
+    }
+
+    private int temporary() {
+        maxTemporaries = Math.max(maxTemporaries, temporaries + 1);
+        return TEMPORARY | temporaries++;
+    }
+
+    //NUMERO, TIPIK, LETRA and TINUOD as the bits of their register (see OpCode)
+    private int number(long bits) {
+        return constant(bits);
+    }
+
+    //the same value is only kept once (1 and 1.0 have other bits, so they stay apart)
+    private int constant(Object value) {
+        Integer index = constantIndex.get(value);
+        if (index == null) {
+            index = constants.size();
+            constants.add(value);
+            constantIndex.put(value, index);
+        }
+        return CONSTANT | index;
+    }
+
+    //EMITTING------------------------------------------------------------------------------------
+    //an instruction that makes a value: in into when there is one, else in a new temporary
+    private int emitResult(int op, int into, Token operator, int... operands) {
+        int result = into >= 0 ? into : temporary();
+        currentToken = operator;
+        emitWord(op);
+        emitRegister(result);
+        for (int operand : operands) {
+            emitRegister(operand);
+        }
+        return result;
+    }
+
+    private void emit(int op, int... registers) {
+        emitWord(op);
+        for (int register : registers) {
+            emitRegister(register);
+        }
+    }
+
+    private void emitRegister(int register) {
+        if ((register & KIND) != VARIABLE) {
+            operandOffsets.add(count);
+            operandRegisters.add(register);
+        }
+        emitWord(register);
+    }
+
+    private void emitWord(int value) {
+        if (count == code.length) {
+            code = Arrays.copyOf(code, count * 2);
+            tokens = Arrays.copyOf(tokens, count * 2);
+        }
+
+        code[count] = value;
+        tokens[count] = currentToken;
+        count++;
+    }
+
+    private void emitScope(int op, int slotCount) {
+        emitWord(op);
+        emitWord(slotCount);
+    }
+
+    //returns where the offset goes, for patchJump()
+    private int emitJump(int op, int... registers) {
+        emit(op, registers);
+        emitWord(-1);
+        return count - 1;
+    }
+
+    private void patchJump(int offset) {
+        //-1 to adjust for the word of the jump offset itself
+        code[offset] = count - offset - 1;
+    }
+
+    private void emitLoop(int op, int loopStart, int... registers) {
+        emit(op, registers);
+        emitWord(count - loopStart + 1);
+    }
+}
@@ -1,94 +1,80 @@
 package bisaya;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
+//One frame per scope. Variables live in plain arrays and are addressed by the
+//(depth, slot) pair the Resolver computed, so a lookup never hashes a name
+//Values are kept unboxed as a (tag, bits, ref) triple, see Value
 public class Environment {
-    final Environment enclosing;
-    private final Map<String, Object> values = new HashMap<>();
-    private final Map<String, TokenType> types = new HashMap<>(); // tracks types
+    //not final: frames are recycled by the Interpreter, see reset()
+    Environment enclosing;
+    byte[] tags;
+    long[] bits;
+    Object[] refs;
 
     public Environment(){
-        enclosing = null;
+        this(null, 8);
     }
 
-    public Environment(Environment enclosing){
-        this.enclosing = enclosing;
-    }
+    private static final byte[] NO_TAGS = new byte[0];
+    private static final long[] NO_BITS = new long[0];
+    private static final Object[] NO_REFS = new Object[0];
 
-    void define(Token name, TokenType dataType, Object value) {
-        TokenType givenType = getTokenTypeFromValue(value);
-//        if(givenType != dataType && value != null){
-//            throw new RuntimeError(name, String.format("Ang gihatag nga bili '%s' sa sulodanan nga '%s' wala magtugma sa iyang klase sa datos '%s'.", value, name.lexeme, dataType));
-//        }
-
-        values.put(name.lexeme, value);
-//        TokenType type = getTokenTypeFromValue(value)
-        types.put(name.lexeme, dataType);
-    }
+    public Environment(Environment enclosing, int size){
+        this.enclosing = enclosing;
 
-    Object get(Token name) {
-        if (values.containsKey(name.lexeme)) {
-            return values.get(name.lexeme);
+        //blocks that declare nothing share the empty arrays
+        if (size == 0) {
+            this.tags = NO_TAGS;
+            this.bits = NO_BITS;
+            this.refs = NO_REFS;
+        } else {
+            this.tags = new byte[size];
+            this.bits = new long[size];
+            this.refs = new Object[size];
         }
-
-        //crawl up sa scope
-        if(enclosing != null) return enclosing.get(name);
-
-        throw new RuntimeError(name, "Undefined variable FROM GET '" + name.lexeme + "'.");
-    }
-
-    TokenType getType(String name) {
-        if (types.containsKey(name)) return types.get(name);
-        if (enclosing != null) return enclosing.getType(name);
-        return null;
     }
 
-    void assign(Token name, Object value) {
-        if (values.containsKey(name.lexeme)) {
-            TokenType expectedType = types.get(name.lexeme);
-            TokenType givenNewType = getTokenTypeFromValue(value);
-
-//            if(!typeCompatible(expectedType, givenNewType)){
-//                throw new RuntimeError(name, String.format("Type mismatch: Cannot assign %s to %s", expectedType.toString(), givenNewType.toString()));
-//            }
-
-            if(expectedType != givenNewType){
-                if(expectedType == TokenType.NUMBER && givenNewType == TokenType.DOUBLE){
-                    value = ((Double) value).intValue();
-                }else{
-                    throw new RuntimeError(name, String.format("Ang gihatag nga bili '%s' sa sulodanan nga '%s' wala magtugma sa iyang klase sa datos '%s'.", value, name.lexeme, expectedType));
-                }
-            }
+    //Readies a released frame for a new scope, growing it if the scope needs more slots
+    void reset(Environment enclosing, int size) {
+        this.enclosing = enclosing;
 
-            values.put(name.lexeme, value);
-            return;
+        if (size > tags.length) {
+            tags = new byte[size];
+            bits = new long[size];
+            refs = new Object[size];
         }
+    }
 
-        //crawl up sa nesting
-        if (enclosing != null) {
-            enclosing.assign(name, value);
-            return;
+    void define(int slot, byte tag, long bits, Object ref) {
+        //the global frame does not know its size up front, so it grows as needed
+        if (slot >= tags.length) {
+            int size = Math.max(slot + 1, tags.length * 2);
+            tags = Arrays.copyOf(tags, size);
+            this.bits = Arrays.copyOf(this.bits, size);
+            refs = Arrays.copyOf(refs, size);
         }
 
-        throw new RuntimeError(name, "Undefined variable FROM ASSIGN'" + name.lexeme + "'.");
+        tags[slot] = tag;
+        this.bits[slot] = bits;
+        refs[slot] = ref;
     }
 
-    private boolean typeCompatible(TokenType expected, TokenType actual) {
-        if (expected == actual) return true;
-
-        // Allow implicit widening: NUMBER → DOUBLE
-        return expected == TokenType.DOUBLE && actual == TokenType.NUMBER ||
-                expected == TokenType.NUMBER && actual == TokenType.DOUBLE;
+    //The TypeChecker already matched the value with the declared type, so this is a plain store
+    void assign(int depth, int slot, byte tag, long bits, Object ref) {
+        Environment environment = ancestor(depth);
+        environment.tags[slot] = tag;
+        environment.bits[slot] = bits;
+        environment.refs[slot] = ref;
     }
 
-    private TokenType getTokenTypeFromValue(Object value) {
-        if (value instanceof Double) return TokenType.DOUBLE;
-        if (value instanceof Integer) return TokenType.NUMBER;
-        if (value instanceof Boolean) return TokenType.BOOLEAN;
-        if (value instanceof String) return TokenType.STRING;
-        if (value instanceof Character) return TokenType.CHARACTER;
-        return null;
+    Environment ancestor(int depth) {
+        Environment environment = this;
+        for (int i = 0; i < depth; i++) {
+            environment = environment.enclosing;
+        }
+
+        return environment;
     }
 
 
@@ -0,0 +1,26 @@
+package bisaya;
+
+//Where the errors of a program go, one per BisayaContext
+//Compile errors (syntax, undeclared variables, type mismatches) are all reported before anything
+//runs, and a program with any of them does not run. A runtime error ends the run it happens in
+public interface ErrorReporter {
+    //where is "" or the token the error is at, e.g. " at 'x'" or " at end"
+    void error(int line, String where, String message);
+
+    void runtimeError(int line, String message);
+
+    //Standard error, in the form the command line prints
+    static ErrorReporter console() {
+        return new ErrorReporter() {
+            @Override
+            public void error(int line, String where, String message) {
+                System.err.println("[line " + line + "] Error" + where + ": " + message);
+            }
+
+            @Override
+            public void runtimeError(int line, String message) {
+                System.err.println(message + "\n[line " + line + "]");
+            }
+        };
+    }
+}
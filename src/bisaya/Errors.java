@@ -0,0 +1,29 @@
+package bisaya;
+
+//The compile errors of one program, handed to the Scanner, Parser, Resolver and TypeChecker
+//Each pass stops the pipeline when hadError is set, so a program with errors never runs
+final class Errors {
+    private final ErrorReporter reporter;
+    boolean hadError = false;
+
+    Errors(ErrorReporter reporter) {
+        this.reporter = reporter;
+    }
+
+    void error(int line, String message) {
+        report(line, "", message);
+    }
+
+    void error(Token token, String message) {
+        if (token.type == TokenType.EOF) {
+            report(token.line, " at end", message);
+        } else {
+            report(token.line, " at '" + token.lexeme + "'", message);
+        }
+    }
+
+    private void report(int line, String where, String message) {
+        reporter.error(line, where, message);
+        hadError = true;
+    }
+}
@@ -50,10 +50,25 @@ abstract class Expr {
 
     abstract <R> R accept(Visitor<R> visitor);
 
+    //static type of the expression (NUMBER, DOUBLE, BOOLEAN, CHARACTER or STRING), set by the TypeChecker
+    TokenType type;
+
+    //Operands are not final: the Optimizer puts folded constants in their place
+
     // Nested Expr classes here-----------------------------------
     static class Assign extends Expr {
         final Token name;
-        final Expr value;
+        Expr value;
+
+        //filled in by the Resolver: how many scopes up and which slot
+        int depth = -1;
+        int slot = -1;
+        Stmt.Var declaration;
+
+        //set by the TypeChecker when a TIPIK value has to be cut down to a NUMERO
+        boolean truncate = false;
+        //or when a NUMERO value has to be widened to a TIPIK
+        boolean widen = false;
 
         Assign(Token name, Expr value) {
             this.name = name;
@@ -87,7 +102,7 @@ abstract class Expr {
 
     static class Unary extends Expr {
         final Token operator;
-        final Expr right;
+        Expr right;
         Unary(Token operator, Expr right) {
             this.operator = operator;
             this.right = right;
@@ -101,9 +116,12 @@ abstract class Expr {
     }
 
     static class Binary extends Expr {
-        final Expr left;
+        Expr left;
         final Token operator;
-        final Expr right;
+        Expr right;
+
+        //type specialized form of the operator, picked by the TypeChecker
+        Operation operation;
 
         Binary(Expr left, Token operator, Expr right) {
             this.left = left;
@@ -118,7 +136,7 @@ abstract class Expr {
     }
 
     static class Grouping extends Expr {
-        final Expr expression;
+        Expr expression;
 
         Grouping(Expr expression) {
             this.expression = expression;
@@ -133,8 +151,14 @@ abstract class Expr {
     static class Literal extends Expr {
         final Object value;
 
+        //unboxed once here so evaluating the literal never touches the boxed value
+        final byte tag;
+        final long bits;
+
         Literal(Object value) {
             this.value = value;
+            this.tag = Value.tagOf(value);
+            this.bits = Value.bitsOf(value);
         }
 
         @Override
@@ -144,9 +168,9 @@ abstract class Expr {
     }
 
     static class Logical extends Expr {
-        final Expr left;
+        Expr left;
         final Token operator;
-        final Expr right;
+        Expr right;
 
         Logical(Expr left, Token operator, Expr right) {
             this.left = left;
@@ -163,6 +187,11 @@ abstract class Expr {
     static class Variable extends Expr {
         final Token name;
 
+        //filled in by the Resolver: how many scopes up and which slot
+        int depth = -1;
+        int slot = -1;
+        Stmt.Var declaration;
+
         Variable(Token name) {
             this.name = name;
         }
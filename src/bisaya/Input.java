@@ -0,0 +1,209 @@
+package bisaya;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+//Where DAWAT reads from
+//One buffered reader for the whole run, so no input is lost between two DAWAT statements
+//A line is split on commas into (start, end) bounds instead of a String[], and NUMERO/TIPIK
+//fields are parsed straight from the line without exceptions on the common path
+//When interactive is false the prompt and the "THE VALUE IS:" echo are left out, for piped data
+class Input {
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final BufferedReader reader;
+    final boolean interactive;
+
+    //the last line read and where each of its fields starts and ends (already trimmed)
+    private String line = "";
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int fieldCount = 0;
+
+    Input(Reader source, boolean interactive) {
+        this.reader = source instanceof BufferedReader ? (BufferedReader) source : new BufferedReader(source, 64 * 1024);
+        this.interactive = interactive;
+    }
+
+    //standard input, the default for both engines
+    static Input console(boolean interactive) {
+        return new Input(new InputStreamReader(System.in, Charset.defaultCharset()), interactive);
+    }
+
+    //returns null at the end of the input
+    String readLine() {
+        try {
+            return reader.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //Prompts for the DAWAT values and splits the next line into one field per name
+    void read(List<Token> names, Output output) {
+        if (interactive) {
+            output.print("Ibutang ang mga bili para sa: ");
+            for (int i = 0; i < names.size(); i++) {
+                output.print(names.get(i).lexeme);
+                if (i < names.size() - 1) output.print(", ");
+            }
+
+            output.print("\n>> ");
+        }
+
+        //everything printed so far has to show up before we wait for input
+        output.flush();
+
+        String next = readLine();
+        if (next == null) {
+            throw new RuntimeError(names.get(0), "Wala nay bili nga mabasa para sa DAWAT.");
+        }
+
+        split(next);
+
+        if (fieldCount != names.size()) {
+            throw new RuntimeError(names.get(0), "Gilauman ang " + names.size() + " ka bili, pero nakuha ang " + fieldCount + ".");
+        }
+    }
+
+    //Same fields as line.split(","): trailing empty fields are dropped when there is a comma at all
+    private void split(String next) {
+        line = next;
+        fieldCount = 0;
+
+        int start = 0;
+        for (int comma = line.indexOf(','); comma != -1; comma = line.indexOf(',', start)) {
+            addField(start, comma);
+            start = comma + 1;
+        }
+        addField(start, line.length());
+
+        if (fieldCount > 1) {
+            while (fieldCount > 0 && starts[fieldCount - 1] == ends[fieldCount - 1]) fieldCount--;
+        }
+
+        //trim() each field, only the bounds move
+        for (int i = 0; i < fieldCount; i++) {
+            int s = starts[i];
+            int e = ends[i];
+            while (s < e && line.charAt(s) <= ' ') s++;
+            while (e > s && line.charAt(e - 1) <= ' ') e--;
+            starts[i] = s;
+            ends[i] = e;
+        }
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+        }
+
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        fieldCount++;
+    }
+
+    //Field i as a value of the declared type, boxed (used by the VM and for the echo)
+    Object value(int i, TokenType expectedType, Token name) {
+        if (expectedType == null) throw new RuntimeError(name, "Di mailhan nga klase sa datos.");
+
+        switch (expectedType) {
+            case NUMBER:
+                return intValue(i, name);
+            case DOUBLE:
+                return doubleValue(i, name);
+            case BOOLEAN:
+                return line.startsWith("\"OO\"", starts[i]) && ends[i] - starts[i] == 4;
+            case CHARACTER:
+                if (ends[i] - starts[i] != 1) throw invalid(i, expectedType, name);
+                return line.charAt(starts[i]);
+            case STRING:
+                return line.substring(starts[i], ends[i]);
+            default:
+                throw new RuntimeError(name, "Di mailhan nga klase sa datos.");
+        }
+    }
+
+    //Same values as Integer.parseInt for ASCII digits
+    int intValue(int i, Token name) {
+        int s = starts[i];
+        int e = ends[i];
+
+        boolean negative = false;
+        if (s < e && (line.charAt(s) == '-' || line.charAt(s) == '+')) {
+            negative = line.charAt(s) == '-';
+            s++;
+        }
+        if (s == e) throw invalid(i, TokenType.NUMBER, name);
+
+        long result = 0;
+        for (; s < e; s++) {
+            char c = line.charAt(s);
+            if (c < '0' || c > '9') throw invalid(i, TokenType.NUMBER, name);
+
+            result = result * 10 + (c - '0');
+            if (result > (long) Integer.MAX_VALUE + 1) throw invalid(i, TokenType.NUMBER, name);
+        }
+
+        if (negative) result = -result;
+        if (result > Integer.MAX_VALUE) throw invalid(i, TokenType.NUMBER, name);
+        return (int) result;
+    }
+
+    //Plain decimals with up to 15 digits are exact as digits / 10^k, everything else
+    //(exponents, long fractions, NaN, ...) goes through Double.parseDouble
+    double doubleValue(int i, Token name) {
+        int s = starts[i];
+        int e = ends[i];
+
+        boolean negative = false;
+        if (s < e && (line.charAt(s) == '-' || line.charAt(s) == '+')) {
+            negative = line.charAt(s) == '-';
+            s++;
+        }
+
+        long digits = 0;
+        int digitCount = 0;
+        int fractionDigits = 0;
+        boolean seenDot = false;
+        boolean simple = true;
+        for (; s < e; s++) {
+            char c = line.charAt(s);
+            if (c >= '0' && c <= '9') {
+                digits = digits * 10 + (c - '0');
+                digitCount++;
+                if (seenDot) fractionDigits++;
+            } else if (c == '.' && !seenDot) {
+                seenDot = true;
+            } else {
+                simple = false;
+                break;
+            }
+        }
+
+        if (simple && digitCount > 0 && digitCount <= 15 && fractionDigits < POWERS_OF_TEN.length) {
+            double value = digits / POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+
+        try {
+            return Double.parseDouble(line.substring(starts[i], ends[i]));
+        } catch (NumberFormatException ex) {
+            throw invalid(i, TokenType.DOUBLE, name);
+        }
+    }
+
+    private RuntimeError invalid(int i, TokenType expectedType, Token name) {
+        return new RuntimeError(name, "Di matagaan og bili ang '" + line.substring(starts[i], ends[i]) + "' isip " + expectedType + ".");
+    }
+}
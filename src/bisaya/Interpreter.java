@@ -1,30 +1,71 @@
 package bisaya;
 
+import java.util.Arrays;
 import java.util.List;
 
-public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
+//Tree-walking interpreter
+//Expressions do not return their value: they leave it in the (tag, bits, ref) registers below,
+//so numeric code runs without boxing a single Integer/Double (see Value)
+public class Interpreter implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
     private Environment environment = new Environment();
 
+    //frames of finished blocks, linked through their enclosing field and reused by acquireFrame()
+    //nothing can hold on to a frame after its block ends, so this is safe
+    private Environment freeFrames = null;
+
+    //IPAKITA and the DAWAT prompt write here, standard output unless setOutput() says otherwise
+    private Output output = Output.console();
+
+    //DAWAT reads here, one reader for every DAWAT in the run
+    private Input input = Input.console(true);
+
+    //counts loop iterations and switches hot loops to their compiled form, null to only interpret
+    private LoopCompiler loopCompiler = null;
+
+    //checked at the end of every loop iteration, a run that goes over it ends with a RuntimeError
+    //strings and frames are counted in it too
+    private Budget budget = new Budget();
+
+    //result of the last evaluated expression
+    private byte tag;
+    private long bits;
+    private Object ref;
+
+    //A RuntimeError ends the program and is thrown from here, BisayaContext.run() reports it
     void interpret(List<Stmt> statements){
-        try{
+        //every program starts from an empty global frame, the Resolver numbered its slots from 0
+        environment = new Environment();
+        if (loopCompiler != null) loopCompiler.clear();
 //            Object value = evaluate(expression);
 //            System.out.println(stringify(value));
-            for(Stmt statement : statements){
-                execute(statement);
-            }
-
-            System.out.println("\n[No Error]");
-        } catch (RuntimeError error){
-            Bisaya.runtimeError(error);
+        for(Stmt statement : statements){
+            execute(statement);
         }
     }
 
+    void setOutput(Output output) {
+        this.output = output;
+    }
+
+    void setInput(Input input) {
+        this.input = input;
+    }
+
+    void setLoopCompiler(LoopCompiler loopCompiler) {
+        this.loopCompiler = loopCompiler;
+    }
+
+    //the LoopCompiler has to check the same one
+    void setBudget(Budget budget) {
+        this.budget = budget;
+    }
+
     private void execute(Stmt stmt) {
         stmt.accept(this);
     }
 
-    private Object evaluate(Expr expr) {
-        return expr.accept(this);
+    private void evaluate(Expr expr) {
+        expr.accept(this);
     }
 
     void executeBlock(List<Stmt> statements, Environment environment) {
@@ -39,143 +80,188 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
             this.environment = previous; // restore the environment
         }
     }
-    private boolean typeCompatible(TokenType expected, TokenType actual) {
-        if (expected == actual) return true;
 
-        // Allow implicit widening: NUMBER → DOUBLE
-        return expected == TokenType.DOUBLE && actual == TokenType.NUMBER;
+    //The budget counts scopes, not frames: the callers charge Budget.frameBytes() every time a scope
+    //is entered, whether its frame is new or pooled from this run or an earlier one
+    private Environment acquireFrame(int size) {
+        Environment frame = freeFrames;
+        if (frame == null) return new Environment(environment, size);
+
+        freeFrames = frame.enclosing;
+        frame.reset(environment, size);
+        return frame;
+    }
+
+    private void releaseFrame(Environment frame) {
+
+        //drop the strings so a pooled frame does not keep them alive
+        Arrays.fill(frame.refs, null);
+        frame.enclosing = freeFrames;
+        freeFrames = frame;
     }
 
     @Override
-    public Object visitAssignExpr(Expr.Assign expr) {
-        Object value = evaluate(expr.value);
-        environment.assign(expr.name, value);
-        return value;
+    public Void visitAssignExpr(Expr.Assign expr) {
+        evaluate(expr.value);
+
+        //the registers keep the given value, that is what the assignment evaluates to
+        if (expr.truncate) {
+            environment.assign(expr.depth, expr.slot, Value.INT, (int) Double.longBitsToDouble(bits), null);
+        } else if (expr.widen) {
+            environment.assign(expr.depth, expr.slot, Value.DOUBLE, Double.doubleToRawLongBits(Value.toDouble(tag, bits)), null);
+        } else {
+            environment.assign(expr.depth, expr.slot, tag, bits, ref);
+        }
+        return null;
     }
 
     @Override
-    public Object visitUnaryExpr(Expr.Unary expr) {
-        Object right = evaluate(expr.right);
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        evaluate(expr.right);
 
         switch (expr.operator.type){
             case MINUS:
-                checkNumberOperand(expr.operator, right);
-                return -(toDouble(right));
+                setDouble(-Value.toDouble(tag, bits));
+                return null;
             case NOT:
-                return !isTruthy(right);
+                setBoolean(!isTruthy());
+                return null;
         }
 
         //Unreachable
+        setNil();
         return null;
     }
 
+    //The TypeChecker already made sure the operands fit the operation, so nothing is checked here
+    //except division and modulo by zero, which can only be known at runtime
     @Override
-    public Object visitBinaryExpr(Expr.Binary expr) {
-
-
-        Object left = evaluate(expr.left);
-        Object right = evaluate(expr.right);
-
-        switch (expr.operator.type) {
-            case MINUS:
-                checkNumberOperands(expr.operator, left, right);
-                return toDouble(left) - toDouble(right);
-            case PLUS:
-                //TODO: Implement concat when either one of the operand is a string
-//                if (left instanceof Number && right instanceof Number) {
-//                    return toDouble(left) + toDouble(right);
-//                }
-
-                //both integer sha
-                if (left instanceof Integer && right instanceof Integer) {
-                    return ((Integer) left) + ((Integer) right); // Returns Integer
-                }
-
-                //both sha strings
-                if(left instanceof Double || right instanceof Double){
-                    return toDouble(left) + toDouble(right); // Returns Double
-                }
-
-                //both strings
-                if (left instanceof String && right instanceof String) {
-                    return (String)left + (String)right;
-                }
-
-                //CONCAT STRING AND NUMBER
-                if(left instanceof String && right instanceof Number){
-                    return left + right.toString();
-                } else if (left instanceof Number && right instanceof String){
-                    return left.toString() + right;
-                }
-
-                throw new RuntimeError(expr.operator, "Operands must be two numbers or two strings.");
-            case SLASH:
-                //TODO: Implement division by zero
-                checkNumberOperands(expr.operator, left, right);
-                if (toDouble(right) == 0) {
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        evaluate(expr.left);
+        byte leftTag = tag;
+        long leftBits = bits;
+        Object leftRef = ref;
+
+        evaluate(expr.right);
+        byte rightTag = tag;
+        long rightBits = bits;
+        Object rightRef = ref;
+
+        switch (expr.operation) {
+            case INT_ADD:
+                setInt((int) leftBits + (int) rightBits);
+                return null;
+            case DOUBLE_ADD:
+                setDouble(Value.toDouble(leftTag, leftBits) + Value.toDouble(rightTag, rightBits));
+                return null;
+            case STRING_ADD:
+                //a number on either side is added with its Java form (1.0 stays 1.0)
+                setString(budget.string(expr.operator, Value.box(leftTag, leftBits, leftRef).toString() + Value.box(rightTag, rightBits, rightRef)));
+                return null;
+            case SUBTRACT:
+                setDouble(Value.toDouble(leftTag, leftBits) - Value.toDouble(rightTag, rightBits));
+                return null;
+            case MULTIPLY:
+                setDouble(Value.toDouble(leftTag, leftBits) * Value.toDouble(rightTag, rightBits));
+                return null;
+            case DIVIDE:
+                if (Value.toDouble(rightTag, rightBits) == 0) {
                     throw new RuntimeError(expr.operator, "Cannot divide by zero.");
                 }
-                return toDouble(left) / toDouble(right);
-            case STAR:
-                checkNumberOperands(expr.operator, left, right);
-                return toDouble(left) * toDouble(right);
-            case NOT_EQUAL:
-                return !isEqual(left, right);
-            case EQUAL_EQUAL:
-                return isEqual(left, right);
-            case GREATER:
-                checkNumberOperands(expr.operator, left, right);
-                return toDouble(left) > toDouble(right);
-            case GREATER_EQUAL:
-                checkNumberOperands(expr.operator, left, right);
-                return toDouble(left) >= toDouble(right);
-            case LESSER:
-                checkNumberOperands(expr.operator, left, right);
-                return toDouble(left) < toDouble(right);
-            case LESSER_EQUAL:
-                checkNumberOperands(expr.operator, left, right);
-                return toDouble(left) <= toDouble(right);
-            case MODULO:
-                checkNumberOperands(expr.operator, left, right);
-                if (toDouble(right) == 0) {
+                setDouble(Value.toDouble(leftTag, leftBits) / Value.toDouble(rightTag, rightBits));
+                return null;
+            case INT_MODULO: {
+                if ((int) rightBits == 0) {
                     throw new RuntimeError(expr.operator, "Cannot modulo by zero.");
                 }
-                return toDouble(left) % toDouble(right);
+                //integer remainder is exact, only the sign of a zero result needs care (-4 % 2 is -0.0)
+                int remainder = (int) leftBits % (int) rightBits;
+                setDouble(remainder == 0 && (int) leftBits < 0 ? -0.0 : remainder);
+                return null;
+            }
+            case DOUBLE_MODULO:
+                if (Value.toDouble(rightTag, rightBits) == 0) {
+                    throw new RuntimeError(expr.operator, "Cannot modulo by zero.");
+                }
+                setDouble(Value.toDouble(leftTag, leftBits) % Value.toDouble(rightTag, rightBits));
+                return null;
+            case INT_GREATER:
+                setBoolean((int) leftBits > (int) rightBits);
+                return null;
+            case INT_GREATER_EQUAL:
+                setBoolean((int) leftBits >= (int) rightBits);
+                return null;
+            case INT_LESSER:
+                setBoolean((int) leftBits < (int) rightBits);
+                return null;
+            case INT_LESSER_EQUAL:
+                setBoolean((int) leftBits <= (int) rightBits);
+                return null;
+            case DOUBLE_GREATER:
+                setBoolean(Value.toDouble(leftTag, leftBits) > Value.toDouble(rightTag, rightBits));
+                return null;
+            case DOUBLE_GREATER_EQUAL:
+                setBoolean(Value.toDouble(leftTag, leftBits) >= Value.toDouble(rightTag, rightBits));
+                return null;
+            case DOUBLE_LESSER:
+                setBoolean(Value.toDouble(leftTag, leftBits) < Value.toDouble(rightTag, rightBits));
+                return null;
+            case DOUBLE_LESSER_EQUAL:
+                setBoolean(Value.toDouble(leftTag, leftBits) <= Value.toDouble(rightTag, rightBits));
+                return null;
+            case EQUAL:
+                setBoolean(isEqual(leftTag, leftBits, leftRef, rightTag, rightBits, rightRef));
+                return null;
+            case NOT_EQUAL:
+                setBoolean(!isEqual(leftTag, leftBits, leftRef, rightTag, rightBits, rightRef));
+                return null;
             case CONCAT:
-                return stringify(left) + stringify(right);
+                setString(budget.string(expr.operator, stringify(Value.box(leftTag, leftBits, leftRef)) + stringify(Value.box(rightTag, rightBits, rightRef))));
+                return null;
         }
 
         //Unreachable
+        setNil();
         return null;
     }
 
     @Override
-    public Object visitGroupingExpr(Expr.Grouping expr) {
-        return evaluate(expr.expression);
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        evaluate(expr.expression);
+        return null;
     }
 
     @Override
-    public Object visitLiteralExpr(Expr.Literal expr) {
-        return expr.value;
+    public Void visitLiteralExpr(Expr.Literal expr) {
+        tag = expr.tag;
+        bits = expr.bits;
+        ref = expr.value;
+        return null;
     }
 
     @Override
-    public Object visitLogicalExpr(Expr.Logical expr) {
-        Object left = evaluate(expr.left);
+    public Void visitLogicalExpr(Expr.Logical expr) {
+        evaluate(expr.left);
 
+        //the left value stays in the registers when it short circuits
         if(expr.operator.type == TokenType.OR) {
             //no need to evaluate the right
-            if(isTruthy(left)) return left;
+            if(isTruthy()) return null;
         }else if(expr.operator.type == TokenType.AND){
-            if(!isTruthy(left)) return left;
+            if(!isTruthy()) return null;
         }
 
-        return evaluate(expr.right);
+        evaluate(expr.right);
+        return null;
     }
 
     @Override
-    public Object visitVariableExpr(Expr.Variable expr) {
-        return environment.get(expr.name);
+    public Void visitVariableExpr(Expr.Variable expr) {
+        Environment frame = environment.ancestor(expr.depth);
+        tag = frame.tags[expr.slot];
+        bits = frame.bits[expr.slot];
+        ref = frame.refs[expr.slot];
+        return null;
     }
 
     //Statement overrides ------------------------------------------------------------------------------
@@ -187,49 +273,34 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
 
     @Override
     public Void visitPrintStmt(Stmt.Print stmt) {
-        Object value = evaluate(stmt.expression);
-        System.out.print(stringify(value));
+        evaluate(stmt.expression);
+        output.print(stringify(Value.box(tag, bits, ref)));
         return null;
     }
 
     @Override
     public Void visitInputStmt(Stmt.Input stmt) {
-        System.out.print("Ibutang ang mga bili para sa: ");
-        for (int i = 0; i < stmt.names.size(); i++) {
-            System.out.print(stmt.names.get(i).lexeme);
-            if (i < stmt.names.size() - 1) System.out.print(", ");
-        }
-
-        System.out.print("\n>> ");
-
-        //para di mo conflict sa atoang Scanner nga lexer
-        java.util.Scanner scanner = new java.util.Scanner(System.in);
-        String input = scanner.nextLine();
-        String[] parts = input.split(",");
-
-        if (parts.length != stmt.names.size()) {
-            throw new RuntimeError(stmt.names.get(0), "Gilauman ang " + stmt.names.size() + " ka bili, pero nakuha ang " + parts.length + ".");
-        }
-//
-//        for(int i = 0;  i < stmt.names.size(); i++){
-//            System.out.println(stmt.names.get(i));
-//        }
+        input.read(stmt.names, output);
 
         for (int i = 0; i < stmt.names.size(); i++) {
             Token name = stmt.names.get(i);
+            TokenType dataType = stmt.declarations[i].dataType;
+
+            //numbers go straight into the registers without boxing
+            if (dataType == TokenType.NUMBER) {
+                setInt(input.intValue(i, name));
+            } else if (dataType == TokenType.DOUBLE) {
+                setDouble(input.doubleValue(i, name));
+            } else {
+                Object value = input.value(i, dataType, name);
+                tag = Value.tagOf(value);
+                bits = Value.bitsOf(value);
+                ref = value;
+            }
 
-            String raw = parts[i].trim();
-            TokenType expectedType = environment.getType(name.lexeme);
-
-            Object value = parseInput(raw, expectedType, name);
-
-            System.out.println("THE VALUE IS: " + value);
-
-
-            environment.assign(name, value);
+            if (input.interactive) output.print("THE VALUE IS: " + Value.box(tag, bits, ref) + "\n");
 
-//            System.out.println("Name: " + name);
-//            System.out.println("Value: " + environment.get(name));
+            environment.assign(stmt.depths[i], stmt.slots[i], tag, bits, ref);
         }
 
         return null;
@@ -238,36 +309,47 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
 
     @Override
     public Void visitVarStmt(Stmt.Var stmt) {
-//        Object value = null;
-//        if (stmt.initializer != null) {
-//            value = evaluate(stmt.initializer);
-//        }
-//
-//        environment.define(stmt.name, value);
         return null;
     }
     @Override
     public Void visitMultiVarStmt(Stmt.MultiVar stmt) {
         for (Stmt.Var var : stmt.vars) {
-            Object value = null;
-            if (var.initializer != null) {
-                value = evaluate(var.initializer);
+            if (var.initializer == null) {
+                setNil();
+            } else {
+                evaluate(var.initializer);
+                if (var.truncate) setInt((int) Double.longBitsToDouble(bits));
+                if (var.widen) setDouble(Value.toDouble(tag, bits));
             }
 
-            environment.define(var.name, stmt.dataType, value);
+            environment.define(var.slot, tag, bits, ref);
         }
         return null;
     }
 
     @Override
     public Void visitBlockStmt(Stmt.Block stmt) {
-        executeBlock(stmt.statements, new Environment(environment));
+        //blocks without MUGNA run right in the enclosing scope, the Resolver left them out of the depths
+        if (!stmt.scoped) {
+            for (Stmt statement : stmt.statements) {
+                execute(statement);
+            }
+            return null;
+        }
+
+        long bytes = Budget.frameBytes(stmt.slotCount);
+        budget.allocate(bytes);
+        Environment frame = acquireFrame(stmt.slotCount);
+        executeBlock(stmt.statements, frame);
+        releaseFrame(frame);
+        budget.release(bytes);
         return null;
     }
 
     @Override
     public Void visitIfStmt(Stmt.If stmt) {
-        if (isTruthy(evaluate(stmt.condition))) {
+        evaluate(stmt.condition);
+        if (isTruthy()) {
 //            System.out.println("Executing then branch...");
             execute(stmt.thenBranch);
         } else if (stmt.elseBranch != null) {
@@ -278,45 +360,156 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
     }
 
     @Override
-    public Void visitForStmt(Stmt.While stmt) {
+    public Void visitForStmt(Stmt.For stmt) {
+        Environment previous = this.environment;
+        try {
+            //one scope for the whole loop, not one per iteration
+            if (stmt.scoped) {
+                budget.allocate(Budget.frameBytes(stmt.slotCount));
+                this.environment = acquireFrame(stmt.slotCount);
+            }
+            if (stmt.initializer != null) execute(stmt.initializer);
+
+            //the PUNDOK frame is reused too: every MUGNA in it runs again before its variable is read
+            //It is still a scope of its own every iteration, for the budget as in visitBlockStmt
+            Stmt.Block block = stmt.body instanceof Stmt.Block && ((Stmt.Block) stmt.body).scoped ? (Stmt.Block) stmt.body : null;
+            Environment bodyFrame = block != null ? acquireFrame(block.slotCount) : null;
+            long bodyBytes = block != null ? Budget.frameBytes(block.slotCount) : 0;
+
+            LoopCompiler.Profile profile = loopCompiler != null ? loopCompiler.profile(stmt) : null;
+            for (;;) {
+                if (profile != null) {
+                    //the compiled loop goes on from here, in the same frame
+                    ClosureCompiler.Code compiled = loopCompiler.iteration(profile);
+                    if (compiled != null) {
+                        compiled.run(this.environment);
+                        break;
+                    }
+                }
+
+                if (stmt.condition != null) {
+                    evaluate(stmt.condition);
+                    if (!isTruthy()) break;
+                }
+
+                if (block != null) {
+                    budget.allocate(bodyBytes);
+                    executeBlock(block.statements, bodyFrame);
+                    budget.release(bodyBytes);
+                } else {
+                    execute(stmt.body);
+                }
+                if (stmt.increment != null) evaluate(stmt.increment);
+                budget.backEdge(stmt.keyword);
+            }
+
+            if (bodyFrame != null) releaseFrame(bodyFrame);
+            if (stmt.scoped) {
+                releaseFrame(this.environment);
+                budget.release(Budget.frameBytes(stmt.slotCount));
+            }
+        } finally {
+            this.environment = previous;
+        }
         return null;
     }
 
     @Override
     public Void visitWhileStmt(Stmt.While stmt) {
-        while (isTruthy(evaluate(stmt.condition))) {
+        LoopCompiler.Profile profile = loopCompiler != null ? loopCompiler.profile(stmt) : null;
+        for (;;) {
+            if (profile != null) {
+                ClosureCompiler.Code compiled = loopCompiler.iteration(profile);
+                if (compiled != null) {
+                    compiled.run(environment);
+                    break;
+                }
+            }
+
+            evaluate(stmt.condition);
+            if (!isTruthy()) break;
             execute(stmt.body);
+            budget.backEdge(stmt.keyword);
         }
         return null;
     }
 
     @Override
-    public Object visitPostfixExpr(Expr.Postfix expr) {
-        if (!(expr.expression instanceof Expr.Variable)) {
-            throw new RuntimeError(expr.operator, "Ang pagdungag og usa sa kantidad mamahimo ra sa sa usa ka sulodanan.");
-        }
-
+    public Void visitPostfixExpr(Expr.Postfix expr) {
         Expr.Variable variable = (Expr.Variable) expr.expression;
-        Object value = environment.get(variable.name);
-
-        if (!(value instanceof Number)) {
-            throw new RuntimeError(expr.operator, "Pwede ra ma-increment ang mga numero.");
-        }
+        evaluate(variable);
 
-        double current = toDouble(value);
+        double current = Value.toDouble(tag, bits);
         double updated = expr.operator.type == TokenType.INCREMENT ? current + 1 : current - 1;
 
-        // Assign the updated value
-        environment.assign(variable.name, updated);
+        // Assign the updated value, a NUMERO keeps its type
+        if (variable.declaration.dataType == TokenType.NUMBER) {
+            environment.assign(variable.depth, variable.slot, Value.INT, (int) updated, null);
+        } else {
+            environment.assign(variable.depth, variable.slot, Value.DOUBLE, Double.doubleToRawLongBits(updated), null);
+        }
 
         // Return the original value (postfix behavior)
-        return current;
+        setDouble(current);
+        return null;
+    }
+
+
+
+    //REGISTERS-----------------------------------------------------------------------------------------
+    private void setInt(int value) {
+        tag = Value.INT;
+        bits = value;
+        ref = null;
+    }
+
+    private void setDouble(double value) {
+        tag = Value.DOUBLE;
+        bits = Double.doubleToRawLongBits(value);
+        ref = null;
+    }
+
+    private void setBoolean(boolean value) {
+        tag = Value.BOOLEAN;
+        bits = value ? 1 : 0;
+        ref = null;
+    }
+
+    private void setString(String value) {
+        tag = Value.STRING;
+        bits = 0;
+        ref = value;
     }
 
+    private void setNil() {
+        tag = Value.NIL;
+        bits = 0;
+        ref = null;
+    }
 
+    //false and null are falsey, everything else is truthy
+    private boolean isTruthy() {
+        if (tag == Value.NIL) return false;
+        if (tag == Value.BOOLEAN) return bits != 0;
 
-    //HELPER FUNCTIONS----------------------------------------------------------------------------------
-    private boolean isTruthy(Object object){
+        return true;
+    }
+
+    //same as isEqual(Object, Object): values of different types are never equal (1 <> 1.0)
+    private static boolean isEqual(byte leftTag, long leftBits, Object leftRef, byte rightTag, long rightBits, Object rightRef) {
+        if (leftTag != rightTag) return false;
+
+        switch (leftTag) {
+            case Value.NIL: return true;
+            case Value.STRING: return leftRef.equals(rightRef);
+            case Value.DOUBLE:
+                return Double.doubleToLongBits(Double.longBitsToDouble(leftBits)) == Double.doubleToLongBits(Double.longBitsToDouble(rightBits));
+            default: return leftBits == rightBits;
+        }
+    }
+
+    //HELPER FUNCTIONS (boxed, shared with the VM)------------------------------------------------------
+    static boolean isTruthy(Object object){
         //false and null are falsey
         //everything else is truthy
         if (object == null) return false;
@@ -325,7 +518,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
         return true;
     }
 
-    private boolean isEqual(Object a, Object b) {
+    static boolean isEqual(Object a, Object b) {
         if (a == null && b == null) return true;
         if (a == null) return false;
 
@@ -336,26 +529,9 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
         return a.equals(b);
     }
 
-    private void checkNumberOperand(Token operator, Object operand){
-        if(operand instanceof Number){
-            return;
-        }
-
-        throw new RuntimeError(operator, "Operand must be a number.");
-    }
-
-    private void checkNumberOperands(Token operator, Object left, Object right) {
-        if (left instanceof Number && right instanceof Number) return;
-
-
-        throw new RuntimeError(operator, "Operands must be numbers.");
-    }
-
-    private String stringify(Object object) {
+    static String stringify(Object object) {
         if (object == null) return "null";
 
-        System.out.println(object);
-
         if (object instanceof Boolean) {
             return (Boolean) object ? "OO" : "DILI";
         }
@@ -371,35 +547,8 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
         return object.toString();
     }
 
-    private Double toDouble(Object number){
+    static Double toDouble(Object number){
         return ((Number) number).doubleValue();
     }
 
-    private Object parseInput(String raw, TokenType expectedType, Token name) {
-
-        try {
-            switch (expectedType) {
-                case NUMBER:
-                    return Integer.parseInt(raw);
-                case DOUBLE:
-                    return Double.parseDouble(raw);
-                case BOOLEAN:
-                    if(raw.equals("\"OO\"")){
-                        return true;
-                    }else{
-                        return false;
-                    }
-                case CHARACTER:
-                    if (raw.length() != 1) throw new RuntimeException();
-                    return raw.charAt(0);
-                case STRING:
-                    return raw;
-                default:
-                    throw new RuntimeError(name, "Di mailhan nga klase sa datos.");
-            }
-        } catch (Exception e) {
-            throw new RuntimeError(name, "Di matagaan og bili ang '" + raw + "' isip " + expectedType + ".");
-        }
-    }
-
 }
@@ -0,0 +1,803 @@
+package bisaya;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static bisaya.ClassFile.*;
+
+//The JVM engine (--jvm): compiles the checked AST into the run() method of a new class, loads it
+//through a ClassLoader of its own and lets the JIT take it from there
+//Every MUGNA declaration becomes a local of its own: NUMERO, LETRA and TINUOD an int, TIPIK a
+//double. Expressions leave a value of their static type on the stack, the same split as the
+//ClosureCompiler, so nothing is boxed and no Environment is made. Same results as the Interpreter
+//The generated class lives in another runtime package, so it only talks to the program through
+//the protected members of Program, the class it extends
+//The class is loaded once per program and shared, every run gets a Program object of its own
+//A program too large for one method (see ClassFile) compiles to null
+class JvmCompiler implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+    private static final String PROGRAM = "bisaya/JvmCompiler$Program";
+    private static final String NAME = "bisaya/compiled/Script";
+
+    //What the generated class extends: IPAKITA, DAWAT and runtime errors go through these
+    //sites holds the Tokens and DAWAT statements the generated code refers to by index
+    public abstract static class Program {
+        private Output output;
+        private Input input;
+        private Budget budget;
+        private Object[] sites;
+
+        protected Program() {}
+
+        //a RuntimeError is thrown from here, same as Interpreter.interpret()
+        protected abstract void run();
+
+        protected final void print(String text) {
+            output.print(text);
+        }
+
+        protected final RuntimeError error(int site, String message) {
+            return new RuntimeError((Token) sites[site], message);
+        }
+
+        //& and +, counted in the budget at the operator at site
+        protected final String concat(String left, String right, int site) {
+            return budget.string((Token) sites[site], left.concat(right));
+        }
+
+        //at the start and end of a block or ALANG SA scope, which has no frame here but is counted
+        //in the budget the same as on the other engines
+        protected final void enterScope(int slots) {
+            budget.allocate(Budget.frameBytes(slots));
+        }
+
+        protected final void exitScope(int slots) {
+            budget.release(Budget.frameBytes(slots));
+        }
+
+        //at the end of every loop iteration, site is the SAMTANG or ALANG SA keyword
+        protected final void backEdge(int site) {
+            budget.backEdge((Token) sites[site]);
+        }
+
+        //the DAWAT at site reads its line, then the values are taken one by one
+        protected final void read(int site) {
+            input.read(((Stmt.Input) sites[site]).names, output);
+        }
+
+        protected final int intValue(int site, int i) {
+            int value = input.intValue(i, ((Stmt.Input) sites[site]).names.get(i));
+            echo(value);
+            return value;
+        }
+
+        protected final double doubleValue(int site, int i) {
+            double value = input.doubleValue(i, ((Stmt.Input) sites[site]).names.get(i));
+            echo(value);
+            return value;
+        }
+
+        protected final char charValue(int site, int i) {
+            char value = (Character) input.value(i, TokenType.CHARACTER, ((Stmt.Input) sites[site]).names.get(i));
+            echo(value);
+            return value;
+        }
+
+        protected final boolean booleanValue(int site, int i) {
+            boolean value = (Boolean) input.value(i, TokenType.BOOLEAN, ((Stmt.Input) sites[site]).names.get(i));
+            echo(value);
+            return value;
+        }
+
+        private void echo(Object value) {
+            if (input.interactive) output.print("THE VALUE IS: " + value + "\n");
+        }
+
+        //same text as Interpreter.stringify
+        protected static String stringify(double value) {
+            String text = Double.toString(value);
+            if (text.endsWith(".0")) {
+                text = text.substring(0, text.length() - 2);
+            }
+            return text;
+        }
+    }
+
+    //A compiled program, safe to share between threads: a Program holds the state of one run
+    static final class Script {
+        private final Constructor<? extends Program> constructor;
+        private final Object[] sites;
+
+        private Script(Constructor<? extends Program> constructor, Object[] sites) {
+            this.constructor = constructor;
+            this.sites = sites;
+        }
+
+        Program newProgram(Output output, Input input, Budget budget) {
+            Program program;
+            try {
+                program = constructor.newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot start the compiled program", e);
+            }
+
+            program.output = output;
+            program.input = input;
+            program.budget = budget;
+            program.sites = sites;
+            return program;
+        }
+    }
+
+    //one loader per program, so the class goes away with it
+    private static final class Loader extends ClassLoader {
+        Loader() {
+            super(JvmCompiler.class.getClassLoader());
+        }
+
+        Class<?> define(byte[] bytes) {
+            return defineClass(NAME.replace('/', '.'), bytes, 0, bytes.length);
+        }
+    }
+
+    private final ClassFile classFile = new ClassFile(NAME, PROGRAM);
+    private final ClassFile.Code code = classFile.code();
+
+    //local 0 is this, every declaration gets the next free one(s)
+    private final Map<Stmt.Var, Integer> locals = new IdentityHashMap<>();
+    private int nextLocal = 1;
+    private final List<Object> sites = new ArrayList<>();
+
+    //two int locals for INT_MODULO, only used after both operands are evaluated
+    private int dividend = -1;
+    private int divisor = -1;
+
+    //returns null when the program does not fit in one class
+    Script compile(List<Stmt> statements) {
+        byte[] bytes;
+        try {
+            for (Stmt statement : statements) {
+                compile(statement);
+            }
+            code.op(RETURN);
+
+            //every local starts out as 0 so the verifier sees it set on every path,
+            //the TypeChecker already made sure none is read before the program gives it a value
+            ClassFile.Code run = classFile.code();
+            for (Map.Entry<Stmt.Var, Integer> local : locals.entrySet()) {
+                if (local.getKey().dataType == TokenType.DOUBLE) {
+                    run.pushDouble(0);
+                    run.local(DSTORE, local.getValue());
+                } else {
+                    run.pushInt(0);
+                    run.local(ISTORE, local.getValue());
+                }
+            }
+            if (dividend >= 0) {
+                run.pushInt(0);
+                run.local(ISTORE, dividend);
+                run.pushInt(0);
+                run.local(ISTORE, divisor);
+            }
+            run.append(code);
+            run.maxLocals = nextLocal;
+            classFile.addMethod(ACC_PROTECTED, "run", "()V", run);
+
+            ClassFile.Code constructor = classFile.code();
+            constructor.local(ALOAD, 0);
+            constructor.invoke(INVOKESPECIAL, PROGRAM, "<init>", "()V");
+            constructor.op(RETURN);
+            constructor.maxLocals = 1;
+            classFile.addMethod(ACC_PUBLIC, "<init>", "()V", constructor);
+
+            bytes = classFile.toBytes();
+        } catch (ClassFile.TooLarge e) {
+            return null;
+        }
+
+        try {
+            Constructor<? extends Program> constructor = new Loader().define(bytes).asSubclass(Program.class).getDeclaredConstructor();
+            return new Script(constructor, sites.toArray());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load the compiled program", e);
+        }
+    }
+
+    private void compile(Stmt stmt) {
+        stmt.accept(this);
+    }
+
+    private void compile(Expr expr) {
+        expr.accept(this);
+    }
+
+    //STATEMENTS----------------------------------------------------------------------------------
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        //scopes are gone: every declaration already has a local of its own
+        if (stmt.scoped) scope("enterScope", stmt.slotCount);
+        for (Stmt statement : stmt.statements) {
+            compile(statement);
+        }
+        if (stmt.scoped) scope("exitScope", stmt.slotCount);
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        effect(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        ClassFile.Label elseBranch = new ClassFile.Label();
+        branch(stmt.condition, false, elseBranch);
+        compile(stmt.thenBranch);
+
+        if (stmt.elseBranch == null) {
+            code.mark(elseBranch);
+            return null;
+        }
+
+        ClassFile.Label end = new ClassFile.Label();
+        code.jump(GOTO, end);
+        code.mark(elseBranch);
+        compile(stmt.elseBranch);
+        code.mark(end);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        code.local(ALOAD, 0);
+        stringify(stmt.expression);
+        code.invoke(INVOKEVIRTUAL, PROGRAM, "print", "(Ljava/lang/String;)V");
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        return null;
+    }
+
+    @Override
+    public Void visitForStmt(Stmt.For stmt) {
+        if (stmt.scoped) scope("enterScope", stmt.slotCount);
+        if (stmt.initializer != null) compile(stmt.initializer);
+
+        //the condition is tested at the bottom, one jump per iteration
+        ClassFile.Label body = new ClassFile.Label();
+        ClassFile.Label condition = new ClassFile.Label();
+        code.jump(GOTO, condition);
+        code.mark(body);
+        compile(stmt.body);
+        if (stmt.increment != null) effect(stmt.increment);
+        backEdge(stmt.keyword);
+
+        code.mark(condition);
+        if (stmt.condition != null) {
+            branch(stmt.condition, true, body);
+        } else {
+            code.jump(GOTO, body);
+        }
+        if (stmt.scoped) scope("exitScope", stmt.slotCount);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        ClassFile.Label body = new ClassFile.Label();
+        ClassFile.Label condition = new ClassFile.Label();
+        code.jump(GOTO, condition);
+        code.mark(body);
+        compile(stmt.body);
+        backEdge(stmt.keyword);
+
+        code.mark(condition);
+        branch(stmt.condition, true, body);
+        return null;
+    }
+
+    @Override
+    public Void visitMultiVarStmt(Stmt.MultiVar stmt) {
+        //a MUGNA without a value leaves the local alone, it is never read before an assignment
+        for (Stmt.Var var : stmt.vars) {
+            int local = local(var);
+            if (var.initializer == null) continue;
+
+            compile(var.initializer);
+            store(var, local, var.initializer.type);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitInputStmt(Stmt.Input stmt) {
+        int site = site(stmt);
+        code.local(ALOAD, 0);
+        code.pushInt(site);
+        code.invoke(INVOKEVIRTUAL, PROGRAM, "read", "(I)V");
+
+        for (int i = 0; i < stmt.names.size(); i++) {
+            Stmt.Var declaration = stmt.declarations[i];
+            code.local(ALOAD, 0);
+            code.pushInt(site);
+            code.pushInt(i);
+            switch (declaration.dataType) {
+                case NUMBER:
+                    code.invoke(INVOKEVIRTUAL, PROGRAM, "intValue", "(II)I");
+                    break;
+                case DOUBLE:
+                    code.invoke(INVOKEVIRTUAL, PROGRAM, "doubleValue", "(II)D");
+                    break;
+                case CHARACTER:
+                    code.invoke(INVOKEVIRTUAL, PROGRAM, "charValue", "(II)C");
+                    break;
+                default:
+                    code.invoke(INVOKEVIRTUAL, PROGRAM, "booleanValue", "(II)Z");
+                    break;
+            }
+            store(declaration, local(declaration), declaration.dataType);
+        }
+        return null;
+    }
+
+    //EXPRESSIONS---------------------------------------------------------------------------------
+    @Override
+    public Void visitAssignExpr(Expr.Assign expr) {
+        //the assignment evaluates to the value given, not the stored one
+        compile(expr.value);
+        code.op(expr.value.type == TokenType.DOUBLE ? DUP2 : DUP);
+        store(expr.declaration, local(expr.declaration), expr.value.type);
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        if (expr.operator.type == TokenType.MINUS) {
+            doubles(expr.right);
+            code.op(DNEG);
+            return null;
+        }
+
+        if (expr.right.type == TokenType.BOOLEAN) {
+            compile(expr.right);
+            code.pushInt(1);
+            code.op(IXOR);
+            return null;
+        }
+
+        //anything else is truthy
+        effect(expr.right);
+        code.pushInt(0);
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        switch (expr.operation) {
+            case INT_ADD:
+                compile(expr.left);
+                compile(expr.right);
+                code.op(IADD);
+                return null;
+            case DOUBLE_ADD:
+                doubles(expr.left);
+                doubles(expr.right);
+                code.op(DADD);
+                return null;
+            case STRING_ADD:
+                //a number on either side is added with its Java form (1.0 stays 1.0)
+                code.local(ALOAD, 0);
+                text(expr.left);
+                text(expr.right);
+                concat(expr.operator);
+                return null;
+            case SUBTRACT:
+                doubles(expr.left);
+                doubles(expr.right);
+                code.op(DSUB);
+                return null;
+            case MULTIPLY:
+                doubles(expr.left);
+                doubles(expr.right);
+                code.op(DMUL);
+                return null;
+            case DIVIDE:
+                doubles(expr.left);
+                doubles(expr.right);
+                checkDivisor(expr.operator, "Cannot divide by zero.");
+                code.op(DDIV);
+                return null;
+            case INT_MODULO:
+                intModulo(expr);
+                return null;
+            case DOUBLE_MODULO:
+                doubles(expr.left);
+                doubles(expr.right);
+                checkDivisor(expr.operator, "Cannot modulo by zero.");
+                code.op(DREM);
+                return null;
+            case CONCAT:
+                code.local(ALOAD, 0);
+                stringify(expr.left);
+                stringify(expr.right);
+                concat(expr.operator);
+                return null;
+            default:
+                //comparisons and equality
+                bool(expr);
+                return null;
+        }
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        compile(expr.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(Expr.Literal expr) {
+        switch (expr.tag) {
+            case Value.INT:
+            case Value.CHARACTER:
+            case Value.BOOLEAN:
+                code.pushInt((int) expr.bits);
+                break;
+            case Value.DOUBLE:
+                code.pushDouble(Double.longBitsToDouble(expr.bits));
+                break;
+            default:
+                code.pushString((String) expr.value);
+                break;
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(Expr.Logical expr) {
+        //both sides have the same type, the TypeChecker made sure
+        if (expr.left.type == TokenType.BOOLEAN) {
+            bool(expr);
+            return null;
+        }
+
+        //anything else is truthy: O gives back the left value, UG the right one
+        if (expr.operator.type == TokenType.OR) {
+            compile(expr.left);
+        } else {
+            effect(expr.left);
+            compile(expr.right);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Expr.Variable expr) {
+        Stmt.Var declaration = expr.declaration;
+        code.local(declaration.dataType == TokenType.DOUBLE ? DLOAD : ILOAD, local(declaration));
+        return null;
+    }
+
+    @Override
+    public Void visitPostfixExpr(Expr.Postfix expr) {
+        Stmt.Var declaration = ((Expr.Variable) expr.expression).declaration;
+        int local = local(declaration);
+
+        //the original value comes back as a TIPIK (postfix behavior), a NUMERO keeps its type
+        //and goes through the same double as in the Interpreter
+        if (declaration.dataType == TokenType.NUMBER) {
+            code.local(ILOAD, local);
+            code.op(I2D);
+        } else {
+            code.local(DLOAD, local);
+        }
+        code.op(DUP2);
+        code.op(DCONST_1);
+        code.op(expr.operator.type == TokenType.INCREMENT ? DADD : DSUB);
+        store(declaration, local, TokenType.DOUBLE);
+        return null;
+    }
+
+    //HELPER FUNCTIONS----------------------------------------------------------------------------
+    private int local(Stmt.Var declaration) {
+        Integer local = locals.get(declaration);
+        if (local != null) return local;
+
+        local = nextLocal;
+        nextLocal += declaration.dataType == TokenType.DOUBLE ? 2 : 1;
+        if (nextLocal > 65535) throw new ClassFile.TooLarge();
+        locals.put(declaration, local);
+        return local;
+    }
+
+    private int site(Object site) {
+        sites.add(site);
+        return sites.size() - 1;
+    }
+
+    //stores the value of type given on the stack, a TIPIK cut down to a NUMERO or a NUMERO widened
+    //to a TIPIK the way the TypeChecker's truncate and widen say
+    private void store(Stmt.Var declaration, int local, TokenType given) {
+        boolean isDouble = declaration.dataType == TokenType.DOUBLE;
+        if (!isDouble && given == TokenType.DOUBLE) code.op(D2I);
+        if (isDouble && given == TokenType.NUMBER) code.op(I2D);
+        code.local(isDouble ? DSTORE : ISTORE, local);
+    }
+
+    //a NUMERO where a TIPIK is needed is widened
+    private void doubles(Expr expr) {
+        compile(expr);
+        if (expr.type == TokenType.NUMBER) code.op(I2D);
+    }
+
+    //evaluates expr for its side effects only
+    private void effect(Expr expr) {
+        //a statement like x = y or i++ does not need its value
+        if (expr instanceof Expr.Assign) {
+            Expr.Assign assign = (Expr.Assign) expr;
+            compile(assign.value);
+            store(assign.declaration, local(assign.declaration), assign.value.type);
+            return;
+        }
+
+        compile(expr);
+        code.op(expr.type == TokenType.DOUBLE ? POP2 : POP);
+    }
+
+    //a TINUOD as 0 or 1 on the stack
+    private void bool(Expr expr) {
+        ClassFile.Label isFalse = new ClassFile.Label();
+        ClassFile.Label end = new ClassFile.Label();
+        branch(expr, false, isFalse);
+        code.pushInt(1);
+        code.jump(GOTO, end);
+        code.mark(isFalse);
+        code.pushInt(0);
+        code.mark(end);
+    }
+
+    //Jumps to target when the condition is jumpIf, falls through otherwise
+    //Comparisons jump on their operands directly instead of making a TINUOD first
+    private void branch(Expr condition, boolean jumpIf, ClassFile.Label target) {
+        if (condition instanceof Expr.Binary) {
+            Expr.Binary binary = (Expr.Binary) condition;
+            switch (binary.operation) {
+                case INT_GREATER:
+                    compare(binary, IF_ICMPGT, jumpIf, target);
+                    return;
+                case INT_GREATER_EQUAL:
+                    compare(binary, IF_ICMPGE, jumpIf, target);
+                    return;
+                case INT_LESSER:
+                    compare(binary, IF_ICMPLT, jumpIf, target);
+                    return;
+                case INT_LESSER_EQUAL:
+                    compare(binary, IF_ICMPLE, jumpIf, target);
+                    return;
+                //NaN makes every comparison false: DCMPL gives -1 for > and >=, DCMPG gives 1 for < and <=
+                case DOUBLE_GREATER:
+                    compare(binary, DCMPL, IFGT, jumpIf, target);
+                    return;
+                case DOUBLE_GREATER_EQUAL:
+                    compare(binary, DCMPL, IFGE, jumpIf, target);
+                    return;
+                case DOUBLE_LESSER:
+                    compare(binary, DCMPG, IFLT, jumpIf, target);
+                    return;
+                case DOUBLE_LESSER_EQUAL:
+                    compare(binary, DCMPG, IFLE, jumpIf, target);
+                    return;
+                case EQUAL:
+                    equal(binary.left, binary.right, jumpIf, target);
+                    return;
+                case NOT_EQUAL:
+                    equal(binary.left, binary.right, !jumpIf, target);
+                    return;
+            }
+        }
+
+        if (condition instanceof Expr.Unary && ((Expr.Unary) condition).operator.type == TokenType.NOT
+                && ((Expr.Unary) condition).right.type == TokenType.BOOLEAN) {
+            branch(((Expr.Unary) condition).right, !jumpIf, target);
+            return;
+        }
+
+        if (condition instanceof Expr.Logical && condition.type == TokenType.BOOLEAN) {
+            Expr.Logical logical = (Expr.Logical) condition;
+            boolean or = logical.operator.type == TokenType.OR;
+
+            //O jumps as soon as the left side is true, UG as soon as it is false
+            if (or == jumpIf) {
+                branch(logical.left, jumpIf, target);
+                branch(logical.right, jumpIf, target);
+            } else {
+                ClassFile.Label skip = new ClassFile.Label();
+                branch(logical.left, !jumpIf, skip);
+                branch(logical.right, jumpIf, target);
+                code.mark(skip);
+            }
+            return;
+        }
+
+        if (condition.type == TokenType.BOOLEAN) {
+            compile(condition);
+            code.jump(jumpIf ? IFNE : IFEQ, target);
+            return;
+        }
+
+        //false is falsey, and a checked program never reads nil, so every other value is truthy
+        effect(condition);
+        if (jumpIf) code.jump(GOTO, target);
+    }
+
+    private void compare(Expr.Binary binary, int ifTrue, boolean jumpIf, ClassFile.Label target) {
+        compile(binary.left);
+        compile(binary.right);
+        code.jump(jumpIf ? ifTrue : negate(ifTrue), target);
+    }
+
+    private void compare(Expr.Binary binary, int compare, int ifTrue, boolean jumpIf, ClassFile.Label target) {
+        doubles(binary.left);
+        doubles(binary.right);
+        code.op(compare);
+        code.jump(jumpIf ? ifTrue : negate(ifTrue), target);
+    }
+
+    //IFEQ and IFNE, IFLT and IFGE, ... come in pairs that test the opposite
+    private static int negate(int opcode) {
+        return ((opcode + 1) ^ 1) - 1;
+    }
+
+    //same as Interpreter.isEqual: values of different types are never equal (1 <> 1.0)
+    private void equal(Expr left, Expr right, boolean jumpIf, ClassFile.Label target) {
+        if (left.type != right.type) {
+            effect(left);
+            effect(right);
+            if (!jumpIf) code.jump(GOTO, target);
+            return;
+        }
+
+        switch (left.type) {
+            case NUMBER:
+            case CHARACTER:
+            case BOOLEAN:
+                compile(left);
+                compile(right);
+                code.jump(jumpIf ? IF_ICMPEQ : IF_ICMPNE, target);
+                return;
+            case DOUBLE:
+                compile(left);
+                code.invoke(INVOKESTATIC, "java/lang/Double", "doubleToLongBits", "(D)J");
+                compile(right);
+                code.invoke(INVOKESTATIC, "java/lang/Double", "doubleToLongBits", "(D)J");
+                code.op(LCMP);
+                code.jump(jumpIf ? IFEQ : IFNE, target);
+                return;
+            default:
+                compile(left);
+                compile(right);
+                code.invoke(INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z");
+                code.jump(jumpIf ? IFNE : IFEQ, target);
+        }
+    }
+
+    //throws the RuntimeError when the double divisor on top of the stack is 0 or -0
+    private void checkDivisor(Token operator, String message) {
+        ClassFile.Label nonZero = new ClassFile.Label();
+        code.op(DUP2);
+        code.op(DCONST_0);
+        code.op(DCMPL);
+        code.jump(IFNE, nonZero);
+        fail(operator, message);
+        code.mark(nonZero);
+    }
+
+    private void backEdge(Token keyword) {
+        code.local(ALOAD, 0);
+        code.pushInt(site(keyword));
+        code.invoke(INVOKEVIRTUAL, PROGRAM, "backEdge", "(I)V");
+    }
+
+    //Program.enterScope() or exitScope()
+    private void scope(String method, int slots) {
+        code.local(ALOAD, 0);
+        code.pushInt(slots);
+        code.invoke(INVOKEVIRTUAL, PROGRAM, method, "(I)V");
+    }
+
+    private void fail(Token token, String message) {
+        code.local(ALOAD, 0);
+        code.pushInt(site(token));
+        code.pushString(message);
+        code.invoke(INVOKEVIRTUAL, PROGRAM, "error", "(ILjava/lang/String;)Lbisaya/RuntimeError;");
+        code.op(ATHROW);
+    }
+
+    //integer remainder is exact, only the sign of a zero result needs care (-4 % 2 is -0.0)
+    private void intModulo(Expr.Binary expr) {
+        if (dividend < 0) {
+            dividend = nextLocal++;
+            divisor = nextLocal++;
+        }
+
+        compile(expr.left);
+        compile(expr.right);
+
+        ClassFile.Label nonZero = new ClassFile.Label();
+        code.op(DUP);
+        code.jump(IFNE, nonZero);
+        fail(expr.operator, "Cannot modulo by zero.");
+        code.mark(nonZero);
+
+        code.local(ISTORE, divisor);
+        code.op(DUP);
+        code.local(ISTORE, dividend);
+        code.local(ILOAD, divisor);
+        code.op(IREM);
+
+        ClassFile.Label widen = new ClassFile.Label();
+        ClassFile.Label end = new ClassFile.Label();
+        code.op(DUP);
+        code.jump(IFNE, widen);
+        code.local(ILOAD, dividend);
+        code.jump(IFGE, widen);
+        code.op(POP);
+        code.pushDouble(-0.0);
+        code.jump(GOTO, end);
+        code.mark(widen);
+        code.op(I2D);
+        code.mark(end);
+    }
+
+    //Program.concat(), this has to be under the two strings on the stack
+    private void concat(Token operator) {
+        code.pushInt(site(operator));
+        code.invoke(INVOKEVIRTUAL, PROGRAM, "concat", "(Ljava/lang/String;Ljava/lang/String;I)Ljava/lang/String;");
+    }
+
+    //the Java form of a number or string, for STRING_ADD
+    private void text(Expr expr) {
+        compile(expr);
+        switch (expr.type) {
+            case NUMBER:
+                code.invoke(INVOKESTATIC, "java/lang/Integer", "toString", "(I)Ljava/lang/String;");
+                break;
+            case DOUBLE:
+                code.invoke(INVOKESTATIC, "java/lang/Double", "toString", "(D)Ljava/lang/String;");
+                break;
+        }
+    }
+
+    //same text as Interpreter.stringify, for IPAKITA and &
+    private void stringify(Expr expr) {
+        if (expr.type == TokenType.BOOLEAN) {
+            ClassFile.Label isFalse = new ClassFile.Label();
+            ClassFile.Label end = new ClassFile.Label();
+            branch(expr, false, isFalse);
+            code.pushString("OO");
+            code.jump(GOTO, end);
+            code.mark(isFalse);
+            code.pushString("DILI");
+            code.mark(end);
+            return;
+        }
+
+        compile(expr);
+        switch (expr.type) {
+            case NUMBER:
+                code.invoke(INVOKESTATIC, "java/lang/Integer", "toString", "(I)Ljava/lang/String;");
+                break;
+            case CHARACTER:
+                code.invoke(INVOKESTATIC, "java/lang/String", "valueOf", "(C)Ljava/lang/String;");
+                break;
+            case DOUBLE:
+                code.invoke(INVOKESTATIC, PROGRAM, "stringify", "(D)Ljava/lang/String;");
+                break;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package bisaya;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//Tiered execution for the Interpreter: every loop starts out interpreted, and the Interpreter
+//counts its iterations here. A loop that reaches THRESHOLD is handed to a background thread that
+//compiles it with the ClosureCompiler, and the Interpreter switches to that form at the top of its
+//next iteration, in the middle of the loop (on-stack replacement)
+//The closures use the same Environment frames as the Interpreter, so nothing has to be copied
+//over. A short script never reaches THRESHOLD, and never even starts the thread
+//Blocks are not counted on their own: without functions only a loop runs a block again
+//One LoopCompiler per Interpreter, the thread is shared by all of them
+class LoopCompiler {
+    static final int THRESHOLD = 1000;
+
+    //per loop statement, owned by the Interpreter thread except for compiled
+    static final class Profile {
+        private final Stmt loop;
+        private int iterations = 0;
+        private volatile ClosureCompiler.Code compiled = null;
+
+        private Profile(Stmt loop) {
+            this.loop = loop;
+        }
+    }
+
+    //compiled loops print, read and count their iterations through the same objects as the Interpreter
+    private final Output output;
+    private final Input input;
+    private final Budget budget;
+
+    private final Map<Stmt, Profile> profiles = new IdentityHashMap<>();
+
+    //started by the first loop that gets hot in this JVM
+    private static final class Background {
+        static final ExecutorService THREAD = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "bisaya-loop-compiler");
+            thread.setDaemon(true);
+            //the Interpreter keeps running the loop meanwhile, it comes first
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    LoopCompiler(Output output, Input input, Budget budget) {
+        this.output = output;
+        this.input = input;
+        this.budget = budget;
+    }
+
+    //looked up once each time a loop starts, not per iteration
+    Profile profile(Stmt loop) {
+        Profile profile = profiles.get(loop);
+        if (profile == null) {
+            profile = new Profile(loop);
+            profiles.put(loop, profile);
+        }
+        return profile;
+    }
+
+    //Called at the top of every iteration: the compiled rest of the loop once it is ready,
+    //null as long as the Interpreter has to run the iteration itself
+    ClosureCompiler.Code iteration(Profile profile) {
+        ClosureCompiler.Code compiled = profile.compiled;
+        if (compiled != null) return compiled;
+
+        if (++profile.iterations == THRESHOLD) submit(profile);
+        return null;
+    }
+
+    //a new program, the loops of the last one are never run again
+    void clear() {
+        profiles.clear();
+    }
+
+    private void submit(Profile profile) {
+        //the trees are fully checked and never change again, so reading them on the thread is safe
+        Background.THREAD.execute(() -> profile.compiled = new ClosureCompiler(output, input, budget).compileLoop(profile.loop));
+    }
+}
@@ -1,29 +1,22 @@
 package bisaya;
 
-import bisaya.Utils.SourceCodeReader;
-
 import java.io.IOException;
-import java.util.List;
+import java.nio.file.Paths;
 
 public class Main {
     public static void main(String[] args) {
-        SourceCodeReader reader = SourceCodeReader.getInstance();
-        String source = "";
-        Scanner scScanner = null;
+        Source source = Source.of("");
 
         try{
-            source = reader.readSourceCode("src/bisaya/Utils/tc1.txt");
+            source = Source.map(Paths.get("src/bisaya/Utils/tc1.txt"));
         }catch (IOException e){
             e.printStackTrace();
         }
 
-        scScanner = new Scanner(source);
-
-        Parser parser = new Parser(scScanner.scanTokens());
-//        scScanner.printTokens();
+        BisayaContext context = new BisayaEngine().newContext(Output.console(), Input.console(true), ErrorReporter.console());
 
 //        Expr expression = parser.parse();
-        List<Stmt> statements = parser.parse();
+        BisayaProgram program = context.compile(source, false);
 
 //        Expr expression = new Expr.Binary(
 //                new Expr.Binary(
@@ -38,9 +31,9 @@ public class Main {
 //                )
 //        );
 
-//        System.out.println(new AstPrinter().print(statements));
+//        System.out.println(new AstPrinter().print(program.statements));
 
-        Interpreter interpreter = new Interpreter();
-        interpreter.interpret(statements);
+        if (program == null) return;
+        context.run(program);
     }
 }
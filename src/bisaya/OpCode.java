@@ -0,0 +1,80 @@
+package bisaya;
+
+//Instruction set of the bytecode VM
+//The VM works on registers, not on a stack. The code is an int array: the opcode, then its operands
+//one int each, the result register first, and a jump ends with its offset from the end of the instruction
+//Registers hold the variables, then the constants, then the temporaries of the expressions (see
+//Compiler). A value is one register: NUMERO, LETRA and TINUOD (0 or 1) as their number, TIPIK as
+//the raw bits of the double, a string in the string half of the register
+//Every instruction takes operands of one static type, the Compiler picks it from the TypeChecker's
+//types, so none of them checks or converts what it is given
+final class OpCode {
+    private OpCode() {}
+
+    //REGISTERS-----------------------------------------------------------------------------------
+    static final int MOVE = 0;                  //to, from
+    static final int INCREMENT_INT = 1;         //old value as a TIPIK, variable
+    static final int DECREMENT_INT = 2;         //old value as a TIPIK, variable
+    static final int INCREMENT_DOUBLE = 3;      //old value, variable
+    static final int DECREMENT_DOUBLE = 4;      //old value, variable
+
+    //CONVERSIONS (to, from)----------------------------------------------------------------------
+    static final int INT_TO_DOUBLE = 5;
+    static final int DOUBLE_TO_INT = 6;
+    static final int INT_TO_STRING = 7;
+    static final int DOUBLE_TO_STRING = 8;      //Java form, 1.0 stays 1.0 (+ with a string)
+    static final int STRINGIFY_DOUBLE = 9;      //IPAKITA form, 1.0 is 1
+    static final int CHARACTER_TO_STRING = 10;
+    static final int BOOLEAN_TO_STRING = 11;
+
+    //OPERATORS (result, left, right or result, operand)------------------------------------------
+    static final int INT_ADD = 12;
+    static final int DOUBLE_ADD = 13;
+    static final int SUBTRACT = 14;
+    static final int MULTIPLY = 15;
+    static final int DIVIDE = 16;
+    static final int INT_MODULO = 17;
+    static final int DOUBLE_MODULO = 18;
+    static final int NEGATE = 19;
+    static final int NOT = 20;
+    static final int INT_GREATER = 21;
+    static final int INT_GREATER_EQUAL = 22;
+    static final int INT_LESSER = 23;
+    static final int INT_LESSER_EQUAL = 24;
+    static final int DOUBLE_GREATER = 25;
+    static final int DOUBLE_GREATER_EQUAL = 26;
+    static final int DOUBLE_LESSER = 27;
+    static final int DOUBLE_LESSER_EQUAL = 28;
+    static final int EQUAL = 29;                //NUMERO, LETRA or TINUOD
+    static final int DOUBLE_EQUAL = 30;
+    static final int STRING_EQUAL = 31;
+    static final int CONCAT = 32;               //two strings, & and + with a string
+
+    //STATEMENTS----------------------------------------------------------------------------------
+    static final int PRINT = 33;                //string
+    static final int INPUT = 34;                //index of the DAWAT in the Chunk, then the variable of each name
+
+    //CONTROL FLOW--------------------------------------------------------------------------------
+    static final int JUMP = 35;                 //forward offset
+    static final int JUMP_IF_FALSE = 36;        //condition, forward offset
+    static final int JUMP_IF_TRUE = 37;         //condition, forward offset
+    //left, right, forward offset: a comparison of two NUMERO and the jump on it in one
+    static final int JUMP_IF_INT_GREATER = 38;
+    static final int JUMP_IF_INT_GREATER_EQUAL = 39;
+    static final int JUMP_IF_INT_LESSER = 40;
+    static final int JUMP_IF_INT_LESSER_EQUAL = 41;
+    static final int LOOP = 42;                 //backward offset
+    //the condition at the bottom of a loop: condition (or left, right), backward offset taken
+    //while it holds. Counts the iteration in the Budget either way, like LOOP
+    static final int LOOP_IF_TRUE = 43;
+    static final int LOOP_IF_INT_GREATER = 44;
+    static final int LOOP_IF_INT_GREATER_EQUAL = 45;
+    static final int LOOP_IF_INT_LESSER = 46;
+    static final int LOOP_IF_INT_LESSER_EQUAL = 47;
+    static final int RETURN = 48;
+
+    //SCOPES--------------------------------------------------------------------------------------
+    //The registers are shared, these only count the scope of a block or ALANG SA in the Budget
+    static final int ENTER_SCOPE = 49;          //slot count of the scope
+    static final int EXIT_SCOPE = 50;           //slot count of the scope
+}
@@ -0,0 +1,23 @@
+package bisaya;
+
+//Type specialized binary operations, chosen by the TypeChecker from the operator and the
+//static types of both operands. The engines switch on these instead of re-checking types
+//An operator never sees operands of another type at run time, so nothing is specialized on the
+//types a run observes and there is no generic form to fall back to
+enum Operation {
+    //+ on two NUMERO, on numbers where one is a TIPIK, and on a string with a string or a number
+    INT_ADD, DOUBLE_ADD, STRING_ADD,
+
+    //-, *, / always give a TIPIK
+    SUBTRACT, MULTIPLY, DIVIDE,
+
+    //% gives a TIPIK, computed exactly when both sides are NUMERO
+    INT_MODULO, DOUBLE_MODULO,
+
+    //>, >=, <, <=
+    INT_GREATER, INT_GREATER_EQUAL, INT_LESSER, INT_LESSER_EQUAL,
+    DOUBLE_GREATER, DOUBLE_GREATER_EQUAL, DOUBLE_LESSER, DOUBLE_LESSER_EQUAL,
+
+    //==, <>, &
+    EQUAL, NOT_EQUAL, CONCAT
+}
@@ -0,0 +1,245 @@
+package bisaya;
+
+import java.util.List;
+
+import static bisaya.TokenType.*;
+
+//Static pass that runs after the TypeChecker, so every Binary already has its Operation
+//Folds operators over literals into one literal, drops the literal of an identity like x * 1 when
+//the value stays the same, and drops every Grouping (the tree already keeps the precedence)
+//A division or modulo by zero is left as it is: the engines throw its RuntimeError at the
+//operator's line, and only if it is ever evaluated
+//Strings are never folded or simplified: every string a program builds with & or + is made at
+//run time, where the Budget charges its memory and checks it against the string limit
+class Optimizer implements Expr.Visitor<Expr>, Stmt.Visitor<Void> {
+
+    void optimize(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            optimize(statement);
+        }
+    }
+
+    private void optimize(Stmt stmt) {
+        if (stmt != null) stmt.accept(this);
+    }
+
+    //returns the expression to use in place of expr
+    private Expr optimize(Expr expr) {
+        return expr == null ? null : expr.accept(this);
+    }
+
+    //STATEMENTS----------------------------------------------------------------------------------
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        optimize(stmt.statements);
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        stmt.expression = optimize(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        stmt.condition = optimize(stmt.condition);
+        optimize(stmt.thenBranch);
+        optimize(stmt.elseBranch);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        stmt.expression = optimize(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        return null;
+    }
+
+    @Override
+    public Void visitForStmt(Stmt.For stmt) {
+        optimize(stmt.initializer);
+        stmt.condition = optimize(stmt.condition);
+        stmt.increment = optimize(stmt.increment);
+        optimize(stmt.body);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        stmt.condition = optimize(stmt.condition);
+        optimize(stmt.body);
+        return null;
+    }
+
+    @Override
+    public Void visitMultiVarStmt(Stmt.MultiVar stmt) {
+        for (Stmt.Var var : stmt.vars) {
+            var.initializer = optimize(var.initializer);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitInputStmt(Stmt.Input stmt) {
+        return null;
+    }
+
+    //EXPRESSIONS---------------------------------------------------------------------------------
+    @Override
+    public Expr visitAssignExpr(Expr.Assign expr) {
+        expr.value = optimize(expr.value);
+        return expr;
+    }
+
+    @Override
+    public Expr visitUnaryExpr(Expr.Unary expr) {
+        expr.right = optimize(expr.right);
+        if (!(expr.right instanceof Expr.Literal)) return expr;
+
+        Object right = ((Expr.Literal) expr.right).value;
+        switch (expr.operator.type) {
+            case MINUS:
+                return literal(expr, -Interpreter.toDouble(right));
+            case NOT:
+                return literal(expr, !Interpreter.isTruthy(right));
+        }
+
+        return expr;
+    }
+
+    @Override
+    public Expr visitBinaryExpr(Expr.Binary expr) {
+        expr.left = optimize(expr.left);
+        expr.right = optimize(expr.right);
+
+        if (expr.left instanceof Expr.Literal && expr.right instanceof Expr.Literal) {
+            Object value = fold(expr.operation, (Expr.Literal) expr.left, (Expr.Literal) expr.right);
+            return value != null ? literal(expr, value) : expr;
+        }
+
+        return simplify(expr);
+    }
+
+    @Override
+    public Expr visitGroupingExpr(Expr.Grouping expr) {
+        return optimize(expr.expression);
+    }
+
+    @Override
+    public Expr visitLiteralExpr(Expr.Literal expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitLogicalExpr(Expr.Logical expr) {
+        expr.left = optimize(expr.left);
+        expr.right = optimize(expr.right);
+        return expr;
+    }
+
+    @Override
+    public Expr visitVariableExpr(Expr.Variable expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitPostfixExpr(Expr.Postfix expr) {
+        return expr;
+    }
+
+    //HELPER FUNCTIONS----------------------------------------------------------------------------
+
+    //The value the engines would compute, or null when it has to stay a runtime operation
+    //Same arithmetic as Interpreter.visitBinaryExpr
+    private static Object fold(Operation operation, Expr.Literal left, Expr.Literal right) {
+        double l = Value.toDouble(left.tag, left.bits);
+        double r = Value.toDouble(right.tag, right.bits);
+
+        switch (operation) {
+            case INT_ADD:
+                return (int) left.bits + (int) right.bits;
+            case DOUBLE_ADD:
+                return l + r;
+            case SUBTRACT:
+                return l - r;
+            case MULTIPLY:
+                return l * r;
+            case DIVIDE:
+                //"Cannot divide by zero." is thrown when the program gets here
+                return r == 0 ? null : l / r;
+            case INT_MODULO: {
+                if ((int) right.bits == 0) return null;
+                int remainder = (int) left.bits % (int) right.bits;
+                return remainder == 0 && (int) left.bits < 0 ? -0.0 : (double) remainder;
+            }
+            case DOUBLE_MODULO:
+                return r == 0 ? null : l % r;
+            case INT_GREATER:
+            case DOUBLE_GREATER:
+                return l > r;
+            case INT_GREATER_EQUAL:
+            case DOUBLE_GREATER_EQUAL:
+                return l >= r;
+            case INT_LESSER:
+            case DOUBLE_LESSER:
+                return l < r;
+            case INT_LESSER_EQUAL:
+            case DOUBLE_LESSER_EQUAL:
+                return l <= r;
+            case EQUAL:
+                return Interpreter.isEqual(left.value, right.value);
+            case NOT_EQUAL:
+                return !Interpreter.isEqual(left.value, right.value);
+        }
+
+        return null;
+    }
+
+    //x + 0 and 0 + x on NUMERO, x * 1, 1 * x, x / 1 and x - 0 on TIPIK
+    //Only where the result is exactly x: a NUMERO times 1 is a TIPIK, and -0.0 + 0 is 0.0
+    private static Expr simplify(Expr.Binary expr) {
+        switch (expr.operation) {
+            case INT_ADD:
+                if (isInt(expr.right, 0)) return expr.left;
+                if (isInt(expr.left, 0)) return expr.right;
+                break;
+            case MULTIPLY:
+                if (expr.left.type == DOUBLE && isNumber(expr.right, 1)) return expr.left;
+                if (expr.right.type == DOUBLE && isNumber(expr.left, 1)) return expr.right;
+                break;
+            case DIVIDE:
+                if (expr.left.type == DOUBLE && isNumber(expr.right, 1)) return expr.left;
+                break;
+            case SUBTRACT:
+                if (expr.left.type == DOUBLE && isNumber(expr.right, 0)) return expr.left;
+                break;
+        }
+
+        return expr;
+    }
+
+    private static boolean isInt(Expr expr, int value) {
+        return expr instanceof Expr.Literal && ((Expr.Literal) expr).tag == Value.INT && ((Expr.Literal) expr).bits == value;
+    }
+
+    //0 is either NUMERO 0 or TIPIK 0.0, -0.0 would not leave x - 0 as it is
+    private static boolean isNumber(Expr expr, double value) {
+        if (!(expr instanceof Expr.Literal)) return false;
+        Expr.Literal literal = (Expr.Literal) expr;
+        if (!Value.isNumber(literal.tag)) return false;
+        double number = Value.toDouble(literal.tag, literal.bits);
+        return number == value && Double.doubleToRawLongBits(number) == Double.doubleToRawLongBits(value);
+    }
+
+    //a literal with the value, keeping the type the TypeChecker gave expr
+    private static Expr literal(Expr expr, Object value) {
+        Expr.Literal literal = new Expr.Literal(value);
+        literal.type = expr.type;
+        return literal;
+    }
+}
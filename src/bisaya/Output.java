@@ -0,0 +1,69 @@
+package bisaya;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+//Where IPAKITA writes to
+//Text is collected in a buffer and handed to the target in big chunks, so printing a value
+//costs a StringBuilder append instead of a synchronized System.out call
+//The buffer is flushed when it reaches flushSize, before DAWAT reads (so the prompt shows up),
+//before a runtime error is reported and when the program ends
+class Output {
+    static final int DEFAULT_FLUSH_SIZE = 64 * 1024;
+
+    private final Writer target;
+    private final int flushSize;
+    private final StringBuilder buffer;
+
+    Output(Writer target, int flushSize) {
+        this.target = target;
+        this.flushSize = flushSize;
+        this.buffer = new StringBuilder(Math.min(flushSize, DEFAULT_FLUSH_SIZE) + 256);
+    }
+
+    //standard output, the default for both engines
+    static Output console() {
+        return new Output(new OutputStreamWriter(System.out, Charset.defaultCharset()), DEFAULT_FLUSH_SIZE);
+    }
+
+    //a file, created or truncated; close() it when the program is done
+    static Output file(Path path) throws IOException {
+        return new Output(Files.newBufferedWriter(path, Charset.defaultCharset()), DEFAULT_FLUSH_SIZE);
+    }
+
+    //any writer, e.g. a StringWriter to keep the output in memory
+    static Output to(Writer writer) {
+        return new Output(writer, DEFAULT_FLUSH_SIZE);
+    }
+
+    void print(String text) {
+        buffer.append(text);
+        if (buffer.length() >= flushSize) flush();
+    }
+
+    void flush() {
+        try {
+            if (buffer.length() > 0) {
+                target.append(buffer);
+                buffer.setLength(0);
+            }
+            target.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void close() {
+        flush();
+        try {
+            target.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
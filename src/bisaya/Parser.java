@@ -7,12 +7,16 @@ import java.util.Objects;
 
 import static bisaya.TokenType.*;
 
+//Reads the TokenBuffer through a cursor (current) and only turns a row into a Token
+//when an AST node or an error message keeps it
 class Parser {
-    private final List<Token> tokens;
+    private final TokenBuffer tokens;
     private int current = 0;
+    private final Errors errors;
 
-    Parser(List<Token> tokens) {
+    Parser(TokenBuffer tokens, Errors errors) {
         this.tokens = tokens;
+        this.errors = errors;
     }
 
 //    Expr parse() {
@@ -35,7 +39,7 @@ class Parser {
         //check if KATAPUSAN
         //if EOF, meaning no KATAPUSAN
         if (!match(END)) {
-            error(peek(), "Ang programa kinahanglan og panapos nga simbolo: KATAPUSAN");
+            error(peekToken(), "Ang programa kinahanglan og panapos nga simbolo: KATAPUSAN");
         }
 
         return statements;
@@ -91,8 +95,8 @@ class Parser {
     private Stmt varDeclarationSingle() {
         //System.out.println("In varDeclaration() - current token: " + peek());
             // check if a data type is provided
-        TokenType dataType = consumeDataType("Gilauman nga klase sa sulodanan: NUMERO, LETRA, TINUOD, TIPIK").type;
-        Token name = consume(IDENTIFIER, "Nagdahom og pangalan sa sulodanan.");
+        TokenType dataType = consumeDataType("Gilauman nga klase sa sulodanan: NUMERO, LETRA, TINUOD, TIPIK");
+        Token name = consumeName("Nagdahom og pangalan sa sulodanan.");
 
         Expr initializer = null;
         if (match(EQUAL)) {
@@ -105,7 +109,7 @@ class Parser {
     private Stmt varDeclaration(boolean isForLoop) {
         //System.out.println("In varDeclaration() - current token: " + peek());
         // check if a data type is provided
-        TokenType dataType = consumeDataType("Gilauman nga klase sa sulodanan: NUMERO, LETRA, TINUOD, TIPIK").type;
+        TokenType dataType = consumeDataType("Gilauman nga klase sa sulodanan: NUMERO, LETRA, TINUOD, TIPIK");
 
         List<Stmt.Var> declarations = new ArrayList<>();
 
@@ -116,7 +120,7 @@ class Parser {
                 break;
             }
 
-            Token name = consume(IDENTIFIER, "Nagdahom og pangalan sa sulodanan.");
+            Token name = consumeName("Nagdahom og pangalan sa sulodanan.");
 
             Expr initializer = null;
             if (match(EQUAL)) {
@@ -131,7 +135,7 @@ class Parser {
 
     private Stmt statement(){
         //System.out.println("In statement() - current token: " + peek());
-        if(match(IF, ELSE_IF)) {
+        if(match(IF) || match(ELSE_IF)) {
             return ifStatement();
         }else if(match(FOR)){
             return forStatement();
@@ -180,13 +184,14 @@ class Parser {
         List<Token> names = new ArrayList<>();
 
         do {
-            names.add(consume(IDENTIFIER, "Nagdahom og ngalan sa sulodanan."));
+            names.add(consumeName("Nagdahom og ngalan sa sulodanan."));
         } while (match(COMMA));
 
         return new Stmt.Input(names);
     }
 
     private Stmt forStatement(){
+        Token keyword = previous();
         consume(LEFT_PAREN, "Nagdahom og '(' human sa 'ALANG SA'.");
 
         Stmt initializer;
@@ -221,21 +226,11 @@ class Parser {
 
 //        consume(RIGHT_CURLY, "Nagdahom og '}' silbe panapos sa usa ka tapok.");
 
-        if (increment != null) {
-            body = new Stmt.Block(Arrays.asList(body, new Stmt.Expression(increment)));
-        }
-
-        if(condition == null) condition = new Expr.Literal(true); //loop infinitely
-        body = new Stmt.While(condition, body);
-
-        if(initializer != null){
-            body = new Stmt.Block(Arrays.asList(initializer, body));
-        }
-
-        return body;
+        return new Stmt.For(keyword, initializer, condition, increment, body);
     }
 
     private Stmt whileStatement(){
+        Token keyword = previous();
         consume(LEFT_PAREN, "Nagdahom og '(' human sa 'SAMTANG'.");
 
         Expr condition = expression();
@@ -247,7 +242,7 @@ class Parser {
 
 //        consume(RIGHT_CURLY, "Nagdahom og '}' silbe panapos sa usa ka tapok.");
 
-        return new Stmt.While(condition, body);
+        return new Stmt.While(keyword, condition, body);
     }
 
     private Stmt printStatement(){
@@ -278,170 +273,129 @@ class Parser {
     //TODO: LOGICAL OPERATORS (OR, AND) *** [CHECKED]
     //TODO: IMPLEMENT CONCAT
 
-    private Expr expression(){
-        //System.out.println("In expression() - current token: " + peek());
-//        return or();
-        return assignment();
-    }
-
-    private Expr assignment(){
-        Expr expr = concatenation();
-
-        if(match(EQUAL)){
-            Token equals = previous();
-            Expr value = assignment();
-
-            if(expr instanceof Expr.Variable){
-                Token name = ((Expr.Variable) expr).name;
-                return new Expr.Assign(name, value);
-            }
-
-            error(equals, "Invalid assignment target.");
-        }
-
-        return expr;
+    //EXPRESSIONS: one Pratt loop instead of a method per precedence level
+    //Every token that can follow an operand has its precedence in INFIX, the rest are NONE
+    //All binary operators are left-associative, only the assignment is right-associative
+    private enum Precedence {
+        NONE,
+        ASSIGNMENT,  // =
+        CONCAT,      // &
+        OR,          // O
+        AND,         // UG
+        EQUALITY,    // == <>
+        COMPARISON,  // > >= < <=
+        TERM,        // - + %
+        FACTOR,      // / *
+        UNARY,       // DILI -
+        POSTFIX      // ++
+    }
+
+    private static final Precedence[] PRECEDENCES = Precedence.values();
+    private static final Precedence[] INFIX = new Precedence[TokenType.values().length];
+    static {
+        Arrays.fill(INFIX, Precedence.NONE);
+        INFIX[EQUAL.ordinal()] = Precedence.ASSIGNMENT;
+        INFIX[CONCAT.ordinal()] = Precedence.CONCAT;
+        INFIX[OR.ordinal()] = Precedence.OR;
+        INFIX[AND.ordinal()] = Precedence.AND;
+        INFIX[NOT_EQUAL.ordinal()] = Precedence.EQUALITY;
+        INFIX[EQUAL_EQUAL.ordinal()] = Precedence.EQUALITY;
+        INFIX[GREATER.ordinal()] = Precedence.COMPARISON;
+        INFIX[GREATER_EQUAL.ordinal()] = Precedence.COMPARISON;
+        INFIX[LESSER.ordinal()] = Precedence.COMPARISON;
+        INFIX[LESSER_EQUAL.ordinal()] = Precedence.COMPARISON;
+        INFIX[MINUS.ordinal()] = Precedence.TERM;
+        INFIX[PLUS.ordinal()] = Precedence.TERM;
+        INFIX[MODULO.ordinal()] = Precedence.TERM;
+        INFIX[SLASH.ordinal()] = Precedence.FACTOR;
+        INFIX[STAR.ordinal()] = Precedence.FACTOR;
+        INFIX[INCREMENT.ordinal()] = Precedence.POSTFIX;
     }
 
-    private Expr concatenation(){
-        Expr expr = or();
-        while (match(CONCAT)) {
-            Token operator = previous();
-            Expr right = or();
-            expr = new Expr.Binary(expr, operator, right);
-        }
-
-        return expr;
-    }
-
-
-    private Expr or(){
-        //System.out.println("In or() - current token: " + peek());
-        Expr expr = and();
-
-        while(match(OR)){
-            Token operator = previous();
-            Expr right = and();
-            expr = new Expr.Logical(expr, operator, right);
-        }
-
-        return expr;
-    }
-
-    private Expr and(){
-        //System.out.println("In and() - current token: " + peek());
-        Expr expr = equality();
-
-        while(match(AND)){
-            Token operator = previous();
-            Expr right = equality();
-            expr = new Expr.Logical(expr, operator, right);
-        }
-
-        return expr;
-    }
-
-    private Expr equality(){
-        //System.out.println("In equality() - current token: " + peek());
-        Expr expr = comparison();
-
-        while(match(NOT_EQUAL, EQUAL_EQUAL)){
-            Token operator = previous();
-            Expr right = comparison();
-            expr = new Expr.Binary(expr, operator, right);
-        }
-
-        return expr;
-    }
-
-    private Expr comparison(){
-        //System.out.println("In comparison() - current token: " + peek());
-        Expr expr = term();
-
-        while(match(GREATER, GREATER_EQUAL, LESSER, LESSER_EQUAL)){
-            Token operator = previous();
-            Expr right = term();
-            expr = new Expr.Binary(expr, operator, right);
-        }
-
-        return expr;
-    }
-
-    private Expr term(){
-        //System.out.println("In term() - current token: " + peek());
-        Expr expr = factor();
-
-        while(match(MINUS, PLUS, MODULO)){
-            Token operator = previous();
-            Expr right = factor();
-            expr = new Expr.Binary(expr, operator, right);
-        }
-
-        return expr;
+    private Expr expression(){
+        return expression(Precedence.ASSIGNMENT);
     }
 
-    private Expr factor() {
-        //System.out.println("In factor() - current token: " + peek());
-        Expr expr = unary();
+    //An expression of operators that bind at least as tight as min
+    private Expr expression(Precedence min) {
+        Expr expr = prefix();
 
-        while (match(SLASH, STAR)) {
-            Token operator = previous();
-            Expr right = unary();
-            expr = new Expr.Binary(expr, operator, right);
-        }
+        for (;;) {
+            Precedence precedence = INFIX[peek().ordinal()];
+            if (precedence == Precedence.NONE || precedence.compareTo(min) < 0) return expr;
 
-        return expr;
-    }
-
-    private Expr unary() {
-        //System.out.println("In unary() - current token: " + peek());
-        if (match(NOT, MINUS)) {
+            advance();
             Token operator = previous();
-            Expr right = unary();
-            return new Expr.Unary(operator, right);
+            switch (precedence) {
+                case ASSIGNMENT: {
+                    Expr value = expression(Precedence.ASSIGNMENT);
+
+                    if(expr instanceof Expr.Variable){
+                        Token name = ((Expr.Variable) expr).name;
+                        return new Expr.Assign(name, value);
+                    }
+
+                    //reported but not thrown, the parser goes on after the value
+                    error(operator, "Invalid assignment target.");
+                    return expr;
+                }
+                case POSTFIX:
+                    expr = new Expr.Postfix(expr, operator);
+                    break;
+                case OR:
+                case AND:
+                    expr = new Expr.Logical(expr, operator, expression(PRECEDENCES[precedence.ordinal() + 1]));
+                    break;
+                default:
+                    expr = new Expr.Binary(expr, operator, expression(PRECEDENCES[precedence.ordinal() + 1]));
+                    break;
+            }
         }
-
-//        return primary();
-        return postfix();
     }
 
-    private Expr postfix(){
-        Expr expr = primary();
-
-        while(match(INCREMENT)){
-            Token operator = previous();
-            expr = new Expr.Postfix(expr, operator);
-        }
-
-        return expr;
-    }
-
-    private Expr primary() {
-        //System.out.println("In primary() - current token: " + peek());
-        if (match(FALSE)) {
-            return new Expr.Literal(false);
-        } else if (match(TRUE)) {
-            return new Expr.Literal(true);
-        } else if (match(NUMBER, STRING, DOUBLE, CHARACTER, NEW_LINE)) {
-            return new Expr.Literal(previous().literal);
-        }else if (match(LEFT_PAREN)) {
-            Expr expr = expression();
-            consume(RIGHT_PAREN, "Expect ')' after expression.");
-            return new Expr.Grouping(expr);
-        }else if(match(IDENTIFIER)){
-            return new Expr.Variable(previous());
+    //The tokens an expression can start with
+    private Expr prefix() {
+        switch (peek()) {
+            case NOT:
+            case MINUS: {
+                advance();
+                Token operator = previous();
+                Expr right = expression(Precedence.UNARY);
+                return new Expr.Unary(operator, right);
+            }
+            case FALSE:
+                advance();
+                return new Expr.Literal(false);
+            case TRUE:
+                advance();
+                return new Expr.Literal(true);
+            case NUMBER:
+            case STRING:
+            case DOUBLE:
+            case CHARACTER:
+            case NEW_LINE:
+                advance();
+                return new Expr.Literal(tokens.literal(current - 1));
+            case LEFT_PAREN: {
+                advance();
+                Expr expr = expression();
+                consume(RIGHT_PAREN, "Expect ')' after expression.");
+                return new Expr.Grouping(expr);
+            }
+            case IDENTIFIER:
+                advance();
+                return new Expr.Variable(previous());
+            default:
+                throw error(peekToken(), "Expect expression.");
         }
-
-        throw error(peek(), "Expect expression.");
     }
 
 
     //HELPER FUNCTIONS HERE----------------------------------------------------------------------
-    private boolean match(TokenType... types) {
-        for (TokenType type : types) {
-            if (check(type)) {
-                advance();
-                return true;
-            }
+    private boolean match(TokenType type) {
+        if (check(type)) {
+            advance();
+            return true;
         }
 
         return false;
@@ -449,50 +403,64 @@ class Parser {
 
     private boolean check(TokenType  type) {
         if (isAtEnd()) return false;
-        return peek().type == type;
+        return peek() == type;
     }
 
     private boolean checkNext(TokenType type) {
-        if (current + 1 >= tokens.size()) return false;
-        return peekNext().type == type;
+        //past the end the stream keeps answering EOF
+        return peekNext() == type;
     }
 
 
 
-    private Token advance() {
+    private void advance() {
         if (!isAtEnd()) current++;
-        return previous();
     }
 
     private boolean isAtEnd() {
-        return peek().type == EOF;
+        return peek() == EOF;
     }
 
-    private Token peek() {
-        return tokens.get(current);
+    //the cursor only looks at token types, no Token is built for them
+    private TokenType peek() {
+        return tokens.type(current);
     }
 
-    private Token peekNext(){
-        return tokens.get(current + 1);
+    private TokenType peekNext(){
+        return tokens.type(current + 1);
     }
 
+    //builds the Token for an AST node or an error message
     private Token previous() {
-        return tokens.get(current - 1);
+        return tokens.token(current - 1);
+    }
+
+    private Token peekToken() {
+        return tokens.token(current);
     }
 
     //Same like match method but it can only advance if it is the expected token type
-    private Token consume(TokenType type, String message) {
+    private void consume(TokenType type, String message) {
         //check if the current token is a right paren
-        if (check(type)) return advance();
-        throw error(peek(), message);
+        if (check(type)) {
+            advance();
+            return;
+        }
+        throw error(peekToken(), message);
+    }
+
+    //consume() for the variable names the AST keeps
+    private Token consumeName(String message) {
+        consume(IDENTIFIER, message);
+        return previous();
     }
 
-    private Token consumeDataType(String message){
-        if(match(NUMBER, DOUBLE, CHARACTER, BOOLEAN)){
-            return previous();
+    private TokenType consumeDataType(String message){
+        if(match(NUMBER) || match(DOUBLE) || match(CHARACTER) || match(BOOLEAN)){
+            return tokens.type(current - 1);
         }
 
-        throw error(peek(), message);
+        throw error(peekToken(), message);
     }
 
 
@@ -511,9 +479,9 @@ class Parser {
 
         while (!isAtEnd()) {
             //Same as semicolon????
-            if (Objects.equals(previous().lexeme, "\n")) return;
+            if (Objects.equals(tokens.lexeme(current - 1), "\n")) return;
 
-            switch (peek().type) {
+            switch (peek()) {
                 case START:
                 case END:
                 case DECLARE:
@@ -529,20 +497,9 @@ class Parser {
     }
 
     private ParseError error(Token token, String message) {
-        reportError(token, message);
+        //hadError is set, so a syntax error stops the program from running
+        errors.error(token, message);
         return new ParseError();
     }
 
-    static void reportError(Token token, String message) {
-        if (token.type == TokenType.EOF) {
-            report(token.line, " at end", message);
-        } else {
-            report(token.line, " at '" + token.lexeme + "'", message);
-        }
-    }
-
-    private static void report(int line, String where, String message) {
-        System.err.println("[line " + line + "] Error" + where + ": " + message);
-    }
-
 }
@@ -0,0 +1,544 @@
+package bisaya;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+//Parsed programs kept on disk, so a script that has not changed is not scanned and parsed again
+//A program is stored under the SHA-256 of VERSION and its source bytes, one file per program:
+//  MAGIC, VERSION, the CRC-32 of the rest, the strings (every lexeme and string literal once),
+//  then the Stmt trees
+//Only what the Parser builds is stored, the Resolver, TypeChecker and Optimizer run again on it
+//The cache is only a shortcut: a missing, stale or damaged file is just a miss
+final class ProgramCache {
+    private static final int MAGIC = 0x42535943; //"BSYC"
+    //bump this whenever the Stmt/Expr trees or the format below change, old files then never match
+    private static final int VERSION = 3;
+    //MAGIC, VERSION and the CRC-32
+    private static final int HEADER = 12;
+
+    private static final TokenType[] TYPES = TokenType.values();
+
+    //node tags, 0 is a missing (null) node
+    private static final byte NULL = 0;
+
+    private static final byte BLOCK = 1;
+    private static final byte EXPRESSION = 2;
+    private static final byte IF = 3;
+    private static final byte PRINT = 4;
+    private static final byte VAR = 5;
+    private static final byte FOR = 6;
+    private static final byte WHILE = 7;
+    private static final byte MULTI_VAR = 8;
+    private static final byte INPUT = 9;
+
+    private static final byte ASSIGN = 1;
+    private static final byte UNARY = 2;
+    private static final byte BINARY = 3;
+    private static final byte GROUPING = 4;
+    private static final byte LITERAL = 5;
+    private static final byte LOGICAL = 6;
+    private static final byte VARIABLE = 7;
+    private static final byte POSTFIX = 8;
+
+    private final Path directory;
+
+    ProgramCache(Path directory) {
+        this.directory = directory;
+    }
+
+    //the file name a program with this source is stored under
+    String key(Source source) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            //every Java platform has SHA-256
+            throw new IllegalStateException(e);
+        }
+
+        digest.update(new byte[] {(byte) (VERSION >>> 24), (byte) (VERSION >>> 16), (byte) (VERSION >>> 8), (byte) VERSION});
+        source.digest(digest);
+
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return key.append(".bsc").toString();
+    }
+
+    //the statements stored under key, or null when there are none
+    List<Stmt> load(String key) {
+        Path file = directory.resolve(key);
+        if (!Files.isRegularFile(file)) return null;
+
+        try {
+            //one read for the whole program
+            byte[] bytes = Files.readAllBytes(file);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            if (bytes.length < HEADER || in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+
+            //a flipped bit can still read as a program, just not the one in the source
+            CRC32 crc = new CRC32();
+            crc.update(bytes, HEADER, bytes.length - HEADER);
+            if (in.readInt() != (int) crc.getValue()) return null;
+            return new Reader(in).program();
+        } catch (IOException | RuntimeException | StackOverflowError e) {
+            //a damaged file, e.g. one cut short or nested deeper than any parsed program: parse the
+            //script again and store it anew
+            return null;
+        }
+    }
+
+    //Stores the statements of a program that parsed without errors
+    //Written to a temporary file first, so a run reading the same key never sees half a file
+    void store(String key, List<Stmt> statements) {
+        try {
+            byte[] body = new Writer().program(statements);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER + body.length);
+            DataOutputStream header = new DataOutputStream(bytes);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeInt((int) crc.getValue());
+            header.write(body);
+
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, key, ".tmp");
+            try {
+                Files.write(temporary, bytes.toByteArray());
+                try {
+                    Files.move(temporary, directory.resolve(key), StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporary, directory.resolve(key), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            //the program still runs, it just is not cached
+        }
+    }
+
+    //WRITING-------------------------------------------------------------------------------------
+    //Counts, string indexes and lines are varints: 7 bits a byte, low bits first, the high bit set
+    //on every byte but the last. Most of them fit in one byte
+    private static final class Writer implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final List<String> stringList = new ArrayList<>();
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private int line = 0;
+
+        byte[] program(List<Stmt> statements) throws IOException {
+            writeStatements(statements);
+            byte[] trees = out.toByteArray();
+
+            //the strings go first, so the Reader has them all before the first Token
+            out.reset();
+            writeInt(stringList.size());
+            for (String string : stringList) {
+                //not writeUTF, a string literal may be longer than 64K
+                byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+                writeInt(utf8.length);
+                out.write(utf8);
+            }
+            out.write(trees);
+            return out.toByteArray();
+        }
+
+        private void writeStatements(List<Stmt> statements) {
+            writeInt(statements.size());
+            for (Stmt statement : statements) {
+                write(statement);
+            }
+        }
+
+        private void write(Stmt stmt) {
+            if (stmt == null) {
+                out.write(NULL);
+            } else {
+                stmt.accept(this);
+            }
+        }
+
+        private void write(Expr expr) {
+            if (expr == null) {
+                out.write(NULL);
+            } else {
+                expr.accept(this);
+            }
+        }
+
+        //the line is written as the (zigzag) difference to the line of the Token before
+        private void write(Token token) {
+            out.write(token.type.ordinal());
+            writeInt(string(token.lexeme));
+            writeValue(token.literal);
+            int delta = token.line - line;
+            writeInt((delta << 1) ^ (delta >> 31));
+            line = token.line;
+        }
+
+        //Value tag, then the string index, the bits of a TIPIK or the (zigzag, so -1 is small too) int
+        private void writeValue(Object value) {
+            byte tag = Value.tagOf(value);
+            out.write(tag);
+            if (tag == Value.STRING) {
+                writeInt(string((String) value));
+            } else if (tag == Value.DOUBLE) {
+                long bits = Value.bitsOf(value);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    out.write((int) (bits >>> shift));
+                }
+            } else if (tag != Value.NIL) {
+                int bits = (int) Value.bitsOf(value);
+                writeInt((bits << 1) ^ (bits >> 31));
+            }
+        }
+
+        private int string(String string) {
+            Integer index = strings.get(string);
+            if (index == null) {
+                index = stringList.size();
+                strings.put(string, index);
+                stringList.add(string);
+            }
+            return index;
+        }
+
+        private void writeInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+
+        @Override
+        public Void visitBlockStmt(Stmt.Block stmt) {
+            out.write(BLOCK);
+            writeStatements(stmt.statements);
+            return null;
+        }
+
+        @Override
+        public Void visitExpressionStmt(Stmt.Expression stmt) {
+            out.write(EXPRESSION);
+            write(stmt.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitIfStmt(Stmt.If stmt) {
+            out.write(IF);
+            write(stmt.condition);
+            write(stmt.thenBranch);
+            write(stmt.elseBranch);
+            return null;
+        }
+
+        @Override
+        public Void visitPrintStmt(Stmt.Print stmt) {
+            out.write(PRINT);
+            write(stmt.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitVarStmt(Stmt.Var stmt) {
+            out.write(VAR);
+            write(stmt.name);
+            write(stmt.initializer);
+            out.write(stmt.dataType.ordinal());
+            return null;
+        }
+
+        @Override
+        public Void visitForStmt(Stmt.For stmt) {
+            out.write(FOR);
+            write(stmt.keyword);
+            write(stmt.initializer);
+            write(stmt.condition);
+            write(stmt.increment);
+            write(stmt.body);
+            return null;
+        }
+
+        @Override
+        public Void visitWhileStmt(Stmt.While stmt) {
+            out.write(WHILE);
+            write(stmt.keyword);
+            write(stmt.condition);
+            write(stmt.body);
+            return null;
+        }
+
+        @Override
+        public Void visitMultiVarStmt(Stmt.MultiVar stmt) {
+            out.write(MULTI_VAR);
+            out.write(stmt.dataType.ordinal());
+            writeInt(stmt.vars.size());
+            for (Stmt.Var var : stmt.vars) {
+                write(var);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitInputStmt(Stmt.Input stmt) {
+            out.write(INPUT);
+            writeInt(stmt.names.size());
+            for (Token name : stmt.names) {
+                write(name);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitAssignExpr(Expr.Assign expr) {
+            out.write(ASSIGN);
+            write(expr.name);
+            write(expr.value);
+            return null;
+        }
+
+        @Override
+        public Void visitUnaryExpr(Expr.Unary expr) {
+            out.write(UNARY);
+            write(expr.operator);
+            write(expr.right);
+            return null;
+        }
+
+        @Override
+        public Void visitBinaryExpr(Expr.Binary expr) {
+            out.write(BINARY);
+            write(expr.left);
+            write(expr.operator);
+            write(expr.right);
+            return null;
+        }
+
+        @Override
+        public Void visitGroupingExpr(Expr.Grouping expr) {
+            out.write(GROUPING);
+            write(expr.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitLiteralExpr(Expr.Literal expr) {
+            out.write(LITERAL);
+            writeValue(expr.value);
+            return null;
+        }
+
+        @Override
+        public Void visitLogicalExpr(Expr.Logical expr) {
+            out.write(LOGICAL);
+            write(expr.left);
+            write(expr.operator);
+            write(expr.right);
+            return null;
+        }
+
+        @Override
+        public Void visitVariableExpr(Expr.Variable expr) {
+            out.write(VARIABLE);
+            write(expr.name);
+            return null;
+        }
+
+        @Override
+        public Void visitPostfixExpr(Expr.Postfix expr) {
+            out.write(POSTFIX);
+            write(expr.expression);
+            write(expr.operator);
+            return null;
+        }
+    }
+
+    //READING-------------------------------------------------------------------------------------
+    private static final class Reader {
+        private final DataInputStream in;
+        private String[] strings;
+        private int line = 0;
+
+        Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        List<Stmt> program() throws IOException {
+            strings = new String[readCount()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] utf8 = new byte[readCount()];
+                in.readFully(utf8);
+                strings[i] = new String(utf8, StandardCharsets.UTF_8);
+            }
+
+            List<Stmt> statements = readStatements();
+            if (in.read() != -1) throw new IOException("Trailing bytes after the program");
+            return statements;
+        }
+
+        private List<Stmt> readStatements() throws IOException {
+            int count = readCount();
+            List<Stmt> statements = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                statements.add(readStmt());
+            }
+            return statements;
+        }
+
+        private Stmt readStmt() throws IOException {
+            byte tag = in.readByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case BLOCK:
+                    return new Stmt.Block(readStatements());
+                case EXPRESSION:
+                    return new Stmt.Expression(readExpr());
+                case IF: {
+                    Expr condition = readExpr();
+                    Stmt thenBranch = readStmt();
+                    return new Stmt.If(condition, thenBranch, readStmt());
+                }
+                case PRINT:
+                    return new Stmt.Print(readExpr());
+                case VAR:
+                    return readVar();
+                case FOR: {
+                    Token keyword = readToken();
+                    Stmt initializer = readStmt();
+                    Expr condition = readExpr();
+                    Expr increment = readExpr();
+                    return new Stmt.For(keyword, initializer, condition, increment, readStmt());
+                }
+                case WHILE: {
+                    Token keyword = readToken();
+                    Expr condition = readExpr();
+                    return new Stmt.While(keyword, condition, readStmt());
+                }
+                case MULTI_VAR: {
+                    TokenType dataType = TYPES[in.readUnsignedByte()];
+                    int count = readCount();
+                    List<Stmt.Var> vars = new ArrayList<>();
+                    for (int i = 0; i < count; i++) {
+                        if (in.readByte() != VAR) throw new IOException("Expected a declaration");
+                        vars.add(readVar());
+                    }
+                    return new Stmt.MultiVar(dataType, vars);
+                }
+                case INPUT: {
+                    int count = readCount();
+                    List<Token> names = new ArrayList<>();
+                    for (int i = 0; i < count; i++) {
+                        names.add(readToken());
+                    }
+                    return new Stmt.Input(names);
+                }
+            }
+
+            throw new IOException("Unknown statement tag " + tag);
+        }
+
+        private Stmt.Var readVar() throws IOException {
+            Token name = readToken();
+            Expr initializer = readExpr();
+            return new Stmt.Var(name, initializer, TYPES[in.readUnsignedByte()]);
+        }
+
+        private Expr readExpr() throws IOException {
+            byte tag = in.readByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case ASSIGN: {
+                    Token name = readToken();
+                    return new Expr.Assign(name, readExpr());
+                }
+                case UNARY: {
+                    Token operator = readToken();
+                    return new Expr.Unary(operator, readExpr());
+                }
+                case BINARY: {
+                    Expr left = readExpr();
+                    Token operator = readToken();
+                    return new Expr.Binary(left, operator, readExpr());
+                }
+                case GROUPING:
+                    return new Expr.Grouping(readExpr());
+                case LITERAL:
+                    return new Expr.Literal(readValue());
+                case LOGICAL: {
+                    Expr left = readExpr();
+                    Token operator = readToken();
+                    return new Expr.Logical(left, operator, readExpr());
+                }
+                case VARIABLE:
+                    return new Expr.Variable(readToken());
+                case POSTFIX: {
+                    Expr expression = readExpr();
+                    return new Expr.Postfix(expression, readToken());
+                }
+            }
+
+            throw new IOException("Unknown expression tag " + tag);
+        }
+
+        private Token readToken() throws IOException {
+            TokenType type = TYPES[in.readUnsignedByte()];
+            String lexeme = strings[readInt()];
+            Object literal = readValue();
+            int delta = readInt();
+            line += (delta >>> 1) ^ -(delta & 1);
+            return new Token(type, lexeme, literal, line);
+        }
+
+        private Object readValue() throws IOException {
+            byte tag = in.readByte();
+            if (tag == Value.STRING) return strings[readInt()];
+            if (tag == Value.NIL) return null;
+            if (tag == Value.DOUBLE) return Value.box(tag, in.readLong(), null);
+
+            int bits = readInt();
+            return Value.box(tag, (bits >>> 1) ^ -(bits & 1), null);
+        }
+
+        //the varints of the Writer
+        private int readInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (b & 0x7F) << shift;
+                if (b < 0x80) return value;
+            }
+            throw new IOException("Malformed number");
+        }
+
+        //A count or a length, checked before anything is allocated for it: every element takes at
+        //least one byte, so a count past the bytes left in the file can only come from a damaged one
+        private int readCount() throws IOException {
+            int count = readInt();
+            if (count < 0 || count > in.available()) throw new IOException("Count " + count + " past the end of the file");
+            return count;
+        }
+    }
+}
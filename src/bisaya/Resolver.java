@@ -0,0 +1,234 @@
+package bisaya;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Static pass that runs between Parser.parse() and Interpreter.interpret()
+//Every variable use gets the (depth, slot) of its declaration so the Interpreter
+//can read it straight out of the array backed Environment
+class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+    //one map per scope: variable name -> declaration, index 0 is the global scope
+    private final List<Map<String, Stmt.Var>> scopes = new ArrayList<>();
+    private final Errors errors;
+
+    Resolver(Errors errors) {
+        this.errors = errors;
+    }
+
+    void resolve(List<Stmt> statements) {
+        beginScope();
+        resolveAll(statements);
+        endScope();
+    }
+
+    private void resolveAll(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            resolve(statement);
+        }
+    }
+
+    private void resolve(Stmt stmt) {
+        stmt.accept(this);
+    }
+
+    private void resolve(Expr expr) {
+        expr.accept(this);
+    }
+
+    //STATEMENTS----------------------------------------------------------------------------------
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        //a block without MUGNA gets no scope, so the depths inside it skip it too
+        stmt.scoped = declaresVariables(stmt.statements);
+        if (!stmt.scoped) {
+            resolveAll(stmt.statements);
+            return null;
+        }
+
+        beginScope();
+        resolveAll(stmt.statements);
+        stmt.slotCount = scopes.get(scopes.size() - 1).size();
+        endScope();
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        resolve(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        resolve(stmt.condition);
+        resolve(stmt.thenBranch);
+        if (stmt.elseBranch != null) resolve(stmt.elseBranch);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        resolve(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        return null;
+    }
+
+    @Override
+    public Void visitForStmt(Stmt.For stmt) {
+        //a MUGNA initializer gets its own scope, shared by every iteration
+        stmt.scoped = stmt.initializer instanceof Stmt.MultiVar;
+        if (stmt.scoped) beginScope();
+
+        if (stmt.initializer != null) resolve(stmt.initializer);
+        if (stmt.condition != null) resolve(stmt.condition);
+        if (stmt.increment != null) resolve(stmt.increment);
+        resolve(stmt.body);
+
+        if (stmt.scoped) {
+            stmt.slotCount = scopes.get(scopes.size() - 1).size();
+            endScope();
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        resolve(stmt.condition);
+        resolve(stmt.body);
+        return null;
+    }
+
+    @Override
+    public Void visitMultiVarStmt(Stmt.MultiVar stmt) {
+        for (Stmt.Var var : stmt.vars) {
+            //the initializer runs before the variable exists, so it sees the outer one
+            if (var.initializer != null) resolve(var.initializer);
+            declare(var);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitInputStmt(Stmt.Input stmt) {
+        for (int i = 0; i < stmt.names.size(); i++) {
+            Token name = stmt.names.get(i);
+            int depth = resolveLocal(name);
+            stmt.depths[i] = depth;
+            stmt.declarations[i] = declarationAt(depth, name);
+            stmt.slots[i] = slotOf(stmt.declarations[i]);
+        }
+        return null;
+    }
+
+    //EXPRESSIONS---------------------------------------------------------------------------------
+    @Override
+    public Void visitAssignExpr(Expr.Assign expr) {
+        resolve(expr.value);
+        expr.depth = resolveLocal(expr.name);
+        expr.declaration = declarationAt(expr.depth, expr.name);
+        expr.slot = slotOf(expr.declaration);
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        resolve(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        resolve(expr.left);
+        resolve(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        resolve(expr.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(Expr.Literal expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(Expr.Logical expr) {
+        resolve(expr.left);
+        resolve(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Expr.Variable expr) {
+        expr.depth = resolveLocal(expr.name);
+        expr.declaration = declarationAt(expr.depth, expr.name);
+        expr.slot = slotOf(expr.declaration);
+        return null;
+    }
+
+    @Override
+    public Void visitPostfixExpr(Expr.Postfix expr) {
+        resolve(expr.expression);
+        return null;
+    }
+
+    //SCOPES--------------------------------------------------------------------------------------
+    private void beginScope() {
+        scopes.add(new HashMap<>());
+    }
+
+    private void endScope() {
+        scopes.remove(scopes.size() - 1);
+    }
+
+    private void declare(Stmt.Var var) {
+        Map<String, Stmt.Var> scope = scopes.get(scopes.size() - 1);
+        if (scope.containsKey(var.name.lexeme)) {
+            errors.error(var.name, "Ang sulodanan '" + var.name.lexeme + "' gideklarar na sa kini nga tapok.");
+            var.slot = scope.get(var.name.lexeme).slot;
+            return;
+        }
+
+        var.slot = scope.size();
+        scope.put(var.name.lexeme, var);
+    }
+
+    //only the statements directly in the block count, nested blocks have their own scope
+    private static boolean declaresVariables(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            if (statement instanceof Stmt.MultiVar) return true;
+        }
+
+        return false;
+    }
+
+    //returns how many scopes up the variable was declared, or -1 if it was never declared
+    private int resolveLocal(Token name) {
+        for (int i = scopes.size() - 1; i >= 0; i--) {
+            if (scopes.get(i).containsKey(name.lexeme)) {
+                return scopes.size() - 1 - i;
+            }
+        }
+
+        errors.error(name, "Wala pa gideklarar ang sulodanan '" + name.lexeme + "'.");
+        return -1;
+    }
+
+    private Stmt.Var declarationAt(int depth, Token name) {
+        if (depth < 0) return null;
+        return scopes.get(scopes.size() - 1 - depth).get(name.lexeme);
+    }
+
+    private int slotOf(Stmt.Var declaration) {
+        return declaration == null ? -1 : declaration.slot;
+    }
+}
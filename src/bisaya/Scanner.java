@@ -1,18 +1,24 @@
 package bisaya;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import lexer.Dfa;
+import lexer.Lexer;
 
 import static bisaya.TokenType.*;
 
 class Scanner {
-    //source is the raw source code
-    private final String source;
+    //source is the raw source code, as UTF-8 bytes (see Source)
+    private final Source source;
 
-    //our scanner must generate list of tokens
-    private final List<Token> tokens = new ArrayList<>();
+    //our scanner must generate list of tokens, kept as rows of a TokenBuffer
+    private final TokenBuffer tokens;
 
     //Store reserved keywords here
     private static final Map<String, TokenType> keywords;
@@ -49,343 +55,366 @@ class Scanner {
 
         keywords.put("SAMTANG", WHILE);
         keywords.put("DAWAT", INPUT);
-    }
-
-    //helpers in scanning
-    private int start = 0;
-    private int current = 0;
-    private int line = 1;
 
-    Scanner(String source){
-        this.source = source;
+        DFA = tokens(keywords);
     }
 
-
-    //SCANNER MAIN FUNCTIONS HERE-------------------------------------------------------------------
-    List<Token> scanTokens() {
-        while (!isAtEnd()) {
-            // We are at the beginning of the next lexeme.
-            start = current;
-            scanToken();
-        }
-
-        //Appends one final “end of file” token
-        //this is important ensuring the parses knows the end of the input
-        tokens.add(new Token(EOF, "", null, line));
-
-        return tokens;
-    }
-
-    private void scanToken() {
-        char c = advance();
-
-        switch (c){
-            //SINGLE CHARACTERS
-            //(, ), [, ], {, }
-            //+ , /, *, %, =
-            //,
-            //$, &
-            case '(': addToken(LEFT_PAREN); break;
-            case ')': addToken(RIGHT_PAREN); break;
-            case '{': addToken(LEFT_CURLY); break;
-            case '}': addToken(RIGHT_CURLY); break;
-            case '[':
-//                addToken(LEFT_BRACE);
-                escape();
-                break;
-//            case ']': addToken(RIGHT_BRACE); break;
-            case '+':
-                addToken(match('+') ? INCREMENT : PLUS);
-                break;
-            case '*': addToken(STAR); break;
-            case '/': addToken(SLASH); break;
-            case '%': addToken(MODULO); break;
-            case ',': addToken(COMMA); break;
-            case '$': addToken(NEW_LINE, '\n'); break;
-            case ':': addToken(COLON); break;
-            case '&': addToken(CONCAT); break;
-
-            //ONE OR MORE CHARACTERS
-            //=, ==
-            //>, >=
-            //<, <=, <>
-            //-, --
-            case '=':
-                addToken(match('=') ? EQUAL_EQUAL : EQUAL);
-                break;
-            case '>':
-                addToken(match('=') ? GREATER_EQUAL : GREATER);
-                break;
-            case '<':
-                addToken(match('=') ? LESSER_EQUAL : match('>') ? NOT_EQUAL : LESSER);
-                break;
-            case '-':
-                if(match('-')){
-                    while(peek() != '\n' && !isAtEnd()){
-                        advance();
-                    }
-
-                } else {
-                    addToken(MINUS);
-                }
-                break;
-
-            //WHITE SPACE AND NEW LINE
-            case ' ':
-                break;
-            case '\t':
-                break;
-            case '\r':
-                break;
-            case '\n':
-                line++;
-                break;
-
-            //CHARACTER LITERAL
-            case '\'':
-                character();
-                break;
-
-            //STRING, TRUE, FALSE LITERAL
-            case '"':
-                string();
-                break;
-
-            default:
-                if (isDigit(c)) {
-                    number();
-                } else if (isAlpha(c)) {
-                    //Check first through this function if the scanned text is a reserved word or an identifier
-                    //TODO: SOME RESERVED WORDS ARE SEPARATED BY SPACE. EX. "KUNG WALA"
-                    identifierOrReserved();
-                } else {
-                    Bisaya.error(line, String.format("Unexpected character: %c", c));
-                }
-                break;
+    private static final TokenType[] TYPES = TokenType.values();
+
+    //The tokens of the language, compiled once into the tables of the shared lexer
+    private static final Dfa DFA;
+
+    private static Dfa tokens(Map<String, TokenType> keywords) {
+        Dfa.Builder dfa = new Dfa.Builder();
+
+        //SINGLE CHARACTERS
+        //(, ), {, }, *, /, %, ,, $, :, &
+        dfa.literal("(", LEFT_PAREN.ordinal());
+        dfa.literal(")", RIGHT_PAREN.ordinal());
+        dfa.literal("{", LEFT_CURLY.ordinal());
+        dfa.literal("}", RIGHT_CURLY.ordinal());
+        dfa.literal("*", STAR.ordinal());
+        dfa.literal("/", SLASH.ordinal());
+        dfa.literal("%", MODULO.ordinal());
+        dfa.literal(",", COMMA.ordinal());
+        dfa.literal("$", NEW_LINE.ordinal());
+        dfa.literal(":", COLON.ordinal());
+        dfa.literal("&", CONCAT.ordinal());
+
+        //ONE OR MORE CHARACTERS
+        //+, ++, =, ==, >, >=, <, <=, <>, -
+        dfa.literal("+", PLUS.ordinal());
+        dfa.literal("++", INCREMENT.ordinal());
+        dfa.literal("=", EQUAL.ordinal());
+        dfa.literal("==", EQUAL_EQUAL.ordinal());
+        dfa.literal(">", GREATER.ordinal());
+        dfa.literal(">=", GREATER_EQUAL.ordinal());
+        dfa.literal("<", LESSER.ordinal());
+        dfa.literal("<=", LESSER_EQUAL.ordinal());
+        dfa.literal("<>", NOT_EQUAL.ordinal());
+        dfa.literal("-", MINUS.ordinal());
+
+        //-- comment until the end of the line
+        int comment = dfa.literal("--", Dfa.SKIP);
+        dfa.onAnyBut(comment, "\n", comment);
+
+        //WHITE SPACE AND NEW LINE
+        dfa.blanks(" \t\r\n");
+
+        //CHARACTER LITERAL 'x', the letter takes one to three UTF-8 bytes (lead byte >= 0xE0: three)
+        //A lone ' is an error that only takes the ' itself, like before
+        int quote = dfa.state();
+        dfa.on(dfa.start(), "'", quote).fail(quote, "Unterminated character");
+        int letter = dfa.state();
+        int oneMore = dfa.state();
+        int twoMore = dfa.state();
+        dfa.on(quote, (char) 0, (char) 0x7F, letter)
+                .on(quote, (char) 0x80, (char) 0xDF, oneMore)
+                .on(quote, (char) 0xE0, (char) 0xEF, twoMore)
+                .on(twoMore, (char) 0, (char) 0xFF, oneMore)
+                .on(oneMore, (char) 0, (char) 0xFF, letter)
+                .on(letter, "'", dfa.state(CHARACTER.ordinal()));
+
+        //STRING "...", TRUE "OO" and FALSE "DILI" are told apart in scanNext()
+        int string = dfa.state();
+        int unterminated = dfa.state();
+        dfa.on(dfa.start(), "\"", string)
+                .onAnyBut(string, "\"", string)
+                .on(string, "\"", dfa.state(STRING.ordinal()))
+                .onEnd(string, unterminated)
+                .fail(unterminated, "Unterminated string");
+
+        //ESCAPE [...], a ] right after the closing ] is part of the value (e.g []])
+        int escape = dfa.state();
+        int closed = dfa.state(STRING.ordinal());
+        int unclosed = dfa.state();
+        dfa.on(dfa.start(), "[", escape)
+                .onAnyBut(escape, "]", escape)
+                .on(escape, "]", closed)
+                .on(closed, "]", dfa.state(STRING.ordinal()))
+                .onEnd(escape, unclosed)
+                .fail(unclosed, "Wala'y panapos nga simbolo ang '['.");
+
+        //NUMBER and DOUBLE, the '.' is only taken with a digit after it
+        int number = dfa.state(NUMBER.ordinal());
+        int dot = dfa.state();
+        int fraction = dfa.state(DOUBLE.ordinal());
+        dfa.on(dfa.start(), '0', '9', number).on(number, '0', '9', number)
+                .on(number, ".", dot)
+                .on(dot, '0', '9', fraction).on(fraction, '0', '9', fraction);
+
+        //IDENTIFIERS (myVariable, averagevariable)
+        int identifier = dfa.state(IDENTIFIER.ordinal());
+        dfa.on(dfa.start(), 'a', 'z', identifier).on(dfa.start(), 'A', 'Z', identifier).on(dfa.start(), "_", identifier)
+                .on(identifier, 'a', 'z', identifier).on(identifier, 'A', 'Z', identifier).on(identifier, "_", identifier)
+                .on(identifier, '0', '9', identifier);
+
+        //RESERVED WORDS, each one a path through the identifier states
+        //A keyword followed by a space takes the space along (e.g. "KUNG ") so that a two-word
+        //keyword can go on from there, the second word has to be whole (KUNG WALAY is no keyword)
+        int notWord = dfa.state();
+        dfa.on(notWord, 'a', 'z', notWord).on(notWord, 'A', 'Z', notWord).on(notWord, "_", notWord)
+                .on(notWord, '0', '9', notWord);
+        for (Map.Entry<String, TokenType> keyword : keywords.entrySet()) {
+            //doble na ang DILI sa map, the DILI keyword is the not operator
+            //since dili man sad mahitabo nga maabot diri ang DILI nga FALSE kay ginatreat man shag string
+            TokenType type = keyword.getValue() == FALSE ? NOT : keyword.getValue();
+            if (keyword.getKey().indexOf(' ') >= 0) {
+                int end = dfa.path(keyword.getKey());
+                dfa.acceptAtStop(end, type.ordinal())
+                        .on(end, 'a', 'z', notWord).on(end, 'A', 'Z', notWord).on(end, "_", notWord)
+                        .on(end, '0', '9', notWord);
+            } else {
+                dfa.literal(keyword.getKey(), type.ordinal());
+                dfa.literal(keyword.getKey() + " ", type.ordinal());
+            }
         }
 
+        return dfa.build();
     }
 
-    private void addToken(TokenType type){
-        addToken(type, null);
+    //the shared lexer, scanning the source with the tables above (null when scanning in parallel)
+    private final Lexer lexer;
+
+    //PARALLEL SCANNING: a large source is cut into sections right after a new line, each one is
+    //lexed on the pool into arrays, and scanNext() hands their tokens out in order
+    //A section is lexed on its own, as if no string or [] runs into it from the section before.
+    //When one does, that section is lexed again from where the token ended, so the tokens, lines
+    //and errors are always the same as when scanning in one go
+    static final int MIN_SECTION = 1 << 20;
+
+    private final List<ForkJoinTask<Section>> sections;
+    private int nextSection = 0;
+    private Section section = null;
+    private int sectionToken = 0;
+    private int sectionError = 0;
+    //where the next section has to start, and the new lines before it
+    private int expectedStart = 0;
+    private int linesBefore = 0;
+
+    //lexical errors are reported here, on the thread that pulls the tokens
+    private final Errors errors;
+
+    Scanner(Source source, Errors errors){
+        this(source, null, errors);
     }
 
-    private void addToken(TokenType type, Object literal){
-        String lexeme = source.substring(start, current);
-        tokens.add(new Token(type, lexeme,literal,line));
-    }
-
-
-
+    //With a pool a source of a few MB or more is lexed in parallel (Bisaya --parallel)
+    Scanner(Source source, ForkJoinPool pool, Errors errors){
+        this.source = source;
+        this.errors = errors;
+        this.tokens = new TokenBuffer(source, this);
 
+        int size = pool == null ? 0 : Math.max(MIN_SECTION, source.length() / (4 * pool.getParallelism()));
+        if (size == 0 || source.length() < 2 * size) {
+            this.lexer = new Lexer(DFA, source);
+            this.sections = null;
+            return;
+        }
 
-    //LITERALS FUNCTIONS HERE-----------------------------------------------------------------
-    private void character(){
-        if(peekNext() != '\''){
-            Bisaya.error(line, "Unterminated character");
-        } else {
-            char value = peek();
-            advance();
-            advance();
-            addToken(CHARACTER, value);
+        this.lexer = null;
+        this.sections = new ArrayList<>();
+        for (int from = 0; from < source.length(); ) {
+            int stop = lineAfter(from + size);
+            //every section scans its own view, a Source is not safe to share between threads
+            Source view = source.view();
+            int start = from;
+            sections.add(pool.submit(() -> scan(view, start, stop)));
+            from = stop;
         }
     }
 
-    private void string(){
-        StringBuilder sb = new StringBuilder();
-
-        while(peek() != '"' && !isAtEnd()){
-            if(peek() == '\n'){
-                line++;
-            }
+    //the first position after the next new line from index on
+    private int lineAfter(int index) {
+        while (index < source.length()) {
+            if (source.charAt(index++) == '\n') return index;
+        }
+        return source.length();
+    }
 
-            //for printing purposes
-            if (peek() == '$') {
-                sb.append('\n');
-            } else {
-                sb.append(peek());
-            }
 
-            advance();
-        }
+    //SCANNER MAIN FUNCTIONS HERE-------------------------------------------------------------------
+    //Nothing is scanned here yet: the Parser pulls tokens out of the returned stream
+    //and the stream calls scanNext() whenever it runs out
+    TokenBuffer scanTokens() {
+        return tokens;
+    }
 
-        if(isAtEnd()){
-            Bisaya.error(line, "Unterminated string");
+    //Scans until one more token is added, or the EOF token at the end of the source
+    void scanNext() {
+        if (sections != null) {
+            nextFromSections();
             return;
         }
 
-        //For the closing ""
-        advance();
-
-        //Trimming the string excluding the surrounding quotes
-//        String value = source.substring(start + 1, current - 1);
-        String value = sb.toString();
+        for (int kind = lexer.next(); kind != Dfa.END; kind = lexer.next()) {
+            int start = lexer.start();
+            int end = lexer.end();
+            if (kind == Dfa.ERROR) {
+                errors.error(lexer.line(), errorMessage(source, lexer));
+                continue;
+            }
 
-        //3 possible tokentypes only for words enclosed by ""
-        //STRING, TRUE, FALSE
-        TokenType type = STRING;
-        if(value.equals("OO")){
-            type = TRUE;
-        } else if (value.equals("DILI")){
-            type = FALSE;
+            //the literal is not stored, TokenBuffer.literal() reads it back from the source when needed
+            tokens.add(type(source, TYPES[kind], start, end), start, end - start, lexer.line());
+            return;
         }
 
-        addToken(type, value);
+        //Appends one final “end of file” token
+        //this is important ensuring the parses knows the end of the input
+        tokens.add(EOF, source.length(), 0, lexer.line());
     }
 
-    private void escape(){
-        StringBuilder sb = new StringBuilder();
-        while(!isAtEnd()){
-            if(peek() == ']'){
-                //kita natag closing nga ], pero check sa nato
-                //if naay sunod nga ] kay pasabot ana kay mahimong string ang una nga ] (e.g []])
-                if(peekNext() == ']'){
-                    sb.append(peek());
-                    advance();
+    //Same as scanNext(), with the tokens and errors of the sections lexed in parallel
+    private void nextFromSections() {
+        for (;;) {
+            if (section == null) {
+                if (nextSection == sections.size()) {
+                    tokens.add(EOF, source.length(), 0, linesBefore + 1);
+                    return;
                 }
 
-                advance();
+                Section next = sections.get(nextSection++).join();
+                if (next.from != expectedStart) {
+                    //the last token of the section before ran on into this one (a string or [] over
+                    //more lines), so this one is lexed again from where that token ended
+                    if (expectedStart >= next.stop) continue;
+                    next = scan(source, expectedStart, next.stop);
+                }
 
-                String value = sb.toString();
-                addToken(STRING, value);
-                return;
+                section = next;
+                sectionToken = 0;
+                sectionError = 0;
             }
 
-            sb.append(peek());
-            advance();
-        }
-
-        Bisaya.error(line, "Wala'y panapos nga simbolo ang '['.");
-    }
-
-    private void number() {
-        while(isDigit(peek())){
-            advance();
-        }
-
-        if(peek() == '.' && isDigit(peekNext()) ){
-            //Consume now the '.'. Safe to move forward
-            advance();
+            //an error comes out right before the token after it, like in scanNext()
+            while (sectionError < section.errors.size() && section.errors.get(sectionError).before <= sectionToken) {
+                ScanError error = section.errors.get(sectionError++);
+                errors.error(linesBefore + error.line, error.message);
+            }
 
-            //Consume remaing decimal digits
-            while(isDigit(peek())){
-                advance();
+            if (sectionToken < section.count) {
+                int i = sectionToken++;
+                tokens.add(TYPES[section.types[i]], section.starts[i], section.lengths[i], linesBefore + section.lines[i]);
+                return;
             }
 
-            //SUGGESTION: Implement double parsing yourself but it is time consuming
-            addToken(DOUBLE, Double.parseDouble(source.substring(start, current)));
-        }else{
-            //meaning number sha di double
-            addToken(NUMBER, Integer.parseInt(source.substring(start, current)));
+            expectedStart = section.end;
+            linesBefore += section.newlines;
+            section = null;
         }
     }
 
-    //For identifiers (myVariable, averagevariable)c and reserved words (DILI, OO, SAMTANG)
-    private void identifierOrReserved() {
-        while (isAlphaNumeric(peek())){
-            advance();
-        }
-
-        String text = source.substring(start, current);
-//        System.out.println("Original string: " + text);
-
-        //Check from the reserved keywords if the scanned text is found there
-        TokenType type = keywords.get(text);
-        if (type == null) {
-            type = IDENTIFIER; //variable name
-            addToken(type);
-        }else{
-            //now we have to check if naay sumpay pa ang keyword (e.g. KUNG DILI)
-            //at this point, naa tas isa ka space - advance()
-
-            if(peek() == ' '){ // if space, consume it
-                advance();
-            }
-
-            //check sa nato og valid keyword sad ba ang next token
-            //create tag temp variables to preserve the integrity of the algorithm
-            int preservedCurrValue = current;
-            int tempStart = current;
-
-            while (isAlphaNumeric(peek())){
-                advance();
+    //Lexes the tokens that start in [from, stop), lines counted from 1 at from
+    private static Section scan(Source source, int from, int stop) {
+        Section section = new Section(from, stop);
+        Lexer lexer = new Lexer(DFA, source, from, stop);
+        for (int kind = lexer.next(); kind != Dfa.END; kind = lexer.next()) {
+            int start = lexer.start();
+            int end = lexer.end();
+            if (kind == Dfa.ERROR) {
+                section.errors.add(new ScanError(section.count, lexer.line(), errorMessage(source, lexer)));
+                continue;
             }
 
-            String potentialSecondKeyword = source.substring(tempStart, current);
-//            System.out.println("Checking the keywords: " + text + " " + potentialSecondKeyword);
-
-            //now concat the two keywords
-            TokenType type2 = keywords.get(text + " " + potentialSecondKeyword);
-
-            if(type2 == null){ //meaning the second word is not a valid second keyword
-                // we revert the values of the marker variables to their original values
-                //System.out.println("Not valid combination");
-                current = preservedCurrValue;
-                if(text.equals("DILI")) { //the not operator
-                    //doble na ang DILI sa map so i catch nlang sa nako diri
-                    //since dili man sad mahitabo nga maabot diri ang DILI nga FALSE
-                    //kay ginatreat man shag string
-                    type = NOT;
-                }
-
-                addToken(type);
-            }else{
-                //System.out.println("Valid combination");
-                // meaning valid sha
-                addToken(type2);
-            }
+            section.add(type(source, TYPES[kind], start, end), start, end - start, lexer.line());
         }
-    }
-
 
+        section.end = lexer.end();
+        section.newlines = lexer.line() - 1;
+        return section;
+    }
 
+    //3 possible tokentypes only for words enclosed by ""
+    //STRING, TRUE, FALSE
+    private static TokenType type(Source source, TokenType type, int start, int end) {
+        if (type != STRING || source.charAt(start) != '"') return type;
 
-    //HELPER FUNCTIONS HERE---------------------------------------------------------------------
-    private boolean isAtEnd() {
-        return current >= source.length();
+        int length = end - start - 2;
+        if(length == 2 && source.startsWith("OO", start + 1)){
+            return TRUE;
+        } else if (length == 4 && source.startsWith("DILI", start + 1)){
+            return FALSE;
+        }
+        return STRING;
     }
 
-    private char advance() {
-        return source.charAt(current++);
-    }
+    private static String errorMessage(Source source, Lexer lexer) {
+        if (lexer.message() != null) return lexer.message();
 
-    private boolean match(char expected){
-        if(isAtEnd() || source.charAt(current) != expected){
-            return false;
+        int start = lexer.start();
+        char c = source.charAt(start);
+        if (c >= 0x80) {
+            //a character outside ASCII, report it whole instead of byte by byte
+            lexer.moveTo(start + source.sequenceLength(start));
+            return "Unexpected character: " + source.substring(start, lexer.end());
         }
-
-        current++;
-        return true;
+        return String.format("Unexpected character: %c", c);
     }
 
-    private char peek() {
-        if (isAtEnd()) return '\0';
-        return source.charAt(current);
-    }
+    //The tokens one worker lexed from a section of the source, as rows of parallel arrays like TokenBuffer
+    private static final class Section {
+        final int from;
+        final int stop;
+
+        byte[] types;
+        int[] starts;
+        int[] lengths;
+        int[] lines;
+        int count = 0;
+
+        final List<ScanError> errors = new ArrayList<>();
+
+        //where the lexer stopped (past stop if the last token ran on) and the new lines up to there
+        int end;
+        int newlines;
+
+        Section(int from, int stop) {
+            this.from = from;
+            this.stop = stop;
+
+            //scripts run about one token per three bytes
+            int capacity = (stop - from) / 3 + 16;
+            types = new byte[capacity];
+            starts = new int[capacity];
+            lengths = new int[capacity];
+            lines = new int[capacity];
+        }
 
-    private char peekNext() {
-        if (current + 1 >= source.length()) return '\0';
-        return source.charAt(current + 1);
-    }
+        void add(TokenType type, int start, int length, int line) {
+            if (count == types.length) {
+                types = Arrays.copyOf(types, count * 2);
+                starts = Arrays.copyOf(starts, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+                lines = Arrays.copyOf(lines, count * 2);
+            }
 
-    private boolean isDigit(char c) {
-        return c >= '0' && c <= '9';
+            types[count] = (byte) type.ordinal();
+            starts[count] = start;
+            lengths[count] = length;
+            lines[count] = line;
+            count++;
+        }
     }
 
-    private boolean isAlpha(char c) {
-        return (c >= 'a' && c <= 'z') ||
-                (c >= 'A' && c <= 'Z') ||
-                c == '_';
-    }
+    //an error found by a worker, reported when the token stream gets to token before
+    private static final class ScanError {
+        final int before;
+        final int line;
+        final String message;
 
-    private boolean isAlphaNumeric(char c) {
-        return isAlpha(c) || isDigit(c);
+        ScanError(int before, int line, String message) {
+            this.before = before;
+            this.line = line;
+            this.message = message;
+        }
     }
 
     public void printTokens(){
-        for(Token token : tokens){
-            System.out.println(token);
+        for(int i = 0; ; i++){
+            System.out.println(tokens.token(i));
             System.out.println();
+            if(tokens.type(i) == EOF) break;
         }
     }
 }
@@ -0,0 +1,451 @@
+package bisaya;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+//Runs many small Bisaya programs at once in one JVM, over a framed protocol on stdin/stdout or on
+//a local TCP port (--port, one session per connection):
+//  RUN <id> <source bytes> <input bytes>\n<source><input>
+//      -> DONE <id> <status> <millis> <peak bytes> <allocated bytes> <output bytes> <error bytes>\n<output><errors>
+//  STATS\n
+//      -> STATS <name>=<value> ...\n
+//Sizes are UTF-8 byte counts, input is what DAWAT reads (no prompts). status is OK, COMPILE_ERROR,
+//RUNTIME_ERROR, TIMEOUT or FAILED. Jobs answer in the order they finish, not the order they came in
+//Every job runs on a thread of its own, a virtual thread when the JVM has them, in a BisayaContext
+//of its own. Programs are compiled once and shared through an in-memory cache keyed by source
+//At most --jobs programs run at the same time, the rest wait; a job that has not finished
+//--timeout ms after it came in is answered with TIMEOUT, and the program itself is stopped at its
+//next loop iteration by the time limit of its context. --max-memory and --max-string limit each job
+//the same way, peak and allocated bytes are what its context counted (0 when it never ran)
+public final class ScriptService {
+    static final int DEFAULT_TIMEOUT_MILLIS = 10_000;
+    private static final int CACHE_SIZE = 1024;
+
+    enum Status {
+        OK, COMPILE_ERROR, RUNTIME_ERROR, TIMEOUT, FAILED
+    }
+
+    //what a job sends back
+    private static final class Result {
+        final Status status;
+        final String output;
+        final String errors;
+        final long peakBytes;
+        final long allocatedBytes;
+
+        Result(Status status, String output, String errors) {
+            this(status, output, errors, 0, 0);
+        }
+
+        Result(Status status, String output, String errors, long peakBytes, long allocatedBytes) {
+            this.status = status;
+            this.output = output;
+            this.errors = errors;
+            this.peakBytes = peakBytes;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+
+    private static final class Job {
+        final String id;
+        final String source;
+        final String input;
+        final Session session;
+        final long start = System.nanoTime();
+        final CompletableFuture<Result> result = new CompletableFuture<>();
+
+        Job(String id, String source, String input, Session session) {
+            this.id = id;
+            this.source = source;
+            this.input = input;
+            this.session = session;
+        }
+    }
+
+    private final BisayaEngine engine;
+    private final long timeoutMillis;
+    private final long memoryLimit;
+    private final int stringLimit;
+    private final int concurrency;
+    private final Semaphore permits;
+    private final ExecutorService threads;
+    private final Counters counters = new Counters();
+
+    //source -> its compiled program, the least recently used one goes first
+    //only programs without compile errors are kept, so every job still gets its own error messages
+    private final Map<String, BisayaProgram> programs = Collections.synchronizedMap(new LinkedHashMap<String, BisayaProgram>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, BisayaProgram> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    });
+
+    //memoryLimit and stringLimit as in BisayaContext, 0 for no limit
+    ScriptService(BisayaEngine engine, int concurrency, long timeoutMillis, long memoryLimit, int stringLimit) {
+        this.engine = engine;
+        this.concurrency = concurrency;
+        this.timeoutMillis = timeoutMillis;
+        this.memoryLimit = memoryLimit;
+        this.stringLimit = stringLimit;
+        this.permits = new Semaphore(concurrency);
+        this.threads = newThreads(concurrency);
+    }
+
+    public static void main(String[] args) throws IOException {
+        BisayaEngine.Backend backend = BisayaEngine.Backend.INTERPRETER;
+        int concurrency = Runtime.getRuntime().availableProcessors();
+        long timeout = DEFAULT_TIMEOUT_MILLIS;
+        long memoryLimit = 0;
+        int stringLimit = 0;
+        int port = -1;
+        String cache = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            boolean hasValue = i + 1 < args.length;
+            if (arg.equals("--vm")) {
+                backend = BisayaEngine.Backend.VM;
+            } else if (arg.equals("--closures")) {
+                backend = BisayaEngine.Backend.CLOSURES;
+            } else if (arg.equals("--jvm")) {
+                backend = BisayaEngine.Backend.JVM;
+            } else if (arg.equals("--jobs") && hasValue) {
+                concurrency = Integer.parseInt(args[++i]);
+            } else if (arg.equals("--timeout") && hasValue) {
+                timeout = Long.parseLong(args[++i]);
+            } else if (arg.equals("--max-memory") && hasValue) {
+                memoryLimit = Long.parseLong(args[++i]);
+            } else if (arg.equals("--max-string") && hasValue) {
+                stringLimit = Integer.parseInt(args[++i]);
+            } else if (arg.equals("--port") && hasValue) {
+                port = Integer.parseInt(args[++i]);
+            } else if (arg.equals("--cache") && hasValue) {
+                cache = args[++i];
+            } else {
+                System.err.println("Usage: ScriptService [--vm | --closures | --jvm] [--jobs n] [--timeout ms] [--max-memory bytes] [--max-string chars] [--port n] [--cache dir]");
+                System.exit(64);
+            }
+        }
+
+        BisayaEngine engine = new BisayaEngine(backend, false, cache != null ? Paths.get(cache) : null);
+        ScriptService service = new ScriptService(engine, concurrency, timeout, memoryLimit, stringLimit);
+        if (port >= 0) {
+            service.listen(port);
+        } else {
+            service.serve(System.in, System.out);
+        }
+    }
+
+    //Accepts connections on the loopback address until the process ends
+    void listen(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.err.println("ScriptService listening on " + server.getLocalSocketAddress());
+            for (;;) {
+                Socket socket = server.accept();
+                Thread session = new Thread(() -> {
+                    try (Socket connection = socket) {
+                        serve(connection.getInputStream(), connection.getOutputStream());
+                    } catch (IOException e) {
+                        //the client went away, its jobs were answered or will be dropped
+                    }
+                }, "bisaya-session");
+                session.setDaemon(true);
+                session.start();
+            }
+        }
+    }
+
+    //One session: reads requests until in ends, then waits for the answers to all of its jobs
+    void serve(InputStream in, OutputStream out) throws IOException {
+        Session session = new Session(out);
+        InputStream input = new BufferedInputStream(in, 64 * 1024);
+
+        for (String line = readLine(input); line != null; line = readLine(input)) {
+            String[] parts = line.trim().split(" +");
+            if (parts[0].isEmpty()) continue;
+
+            if (parts[0].equals("STATS")) {
+                session.write(("STATS " + counters.line(concurrency - permits.availablePermits()) + "\n").getBytes(StandardCharsets.UTF_8));
+            } else if (parts[0].equals("RUN") && parts.length == 4) {
+                int sourceLength;
+                int inputLength;
+                try {
+                    sourceLength = Integer.parseInt(parts[2]);
+                    inputLength = Integer.parseInt(parts[3]);
+                } catch (NumberFormatException e) {
+                    sourceLength = -1;
+                    inputLength = -1;
+                }
+
+                //without the sizes the next request cannot be found, so the session ends here
+                if (sourceLength < 0 || inputLength < 0) {
+                    session.write(("ERROR Bad sizes in: " + line + "\n").getBytes(StandardCharsets.UTF_8));
+                    break;
+                }
+
+                byte[] source = readBytes(input, sourceLength);
+                byte[] jobInput = readBytes(input, inputLength);
+                if (source == null || jobInput == null) break;
+
+                submit(new Job(parts[1], new String(source, StandardCharsets.UTF_8), new String(jobInput, StandardCharsets.UTF_8), session));
+            } else {
+                session.write(("ERROR Unknown request: " + line + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        session.awaitJobs();
+    }
+
+    private void submit(Job job) {
+        counters.submitted.increment();
+        job.session.started();
+
+        threads.execute(() -> {
+            try {
+                job.result.complete(execute(job));
+            } catch (Throwable e) {
+                //a bug or a StackOverflowError, the service itself keeps going
+                job.result.complete(new Result(Status.FAILED, "", e + "\n"));
+            }
+        });
+
+        job.result
+                .completeOnTimeout(new Result(Status.TIMEOUT, "", "Timed out after " + timeoutMillis + " ms.\n"), timeoutMillis, TimeUnit.MILLISECONDS)
+                .thenAccept(result -> respond(job, result));
+    }
+
+    //null when the job timed out before it could start
+    private Result execute(Job job) throws InterruptedException {
+        permits.acquire();
+        try {
+            if (job.result.isDone()) return null;
+
+            StringWriter output = new StringWriter();
+            StringBuilder errors = new StringBuilder();
+            BisayaContext context = engine.newContext(new StringReader(job.input), output, collect(errors));
+
+            //the same deadline as the answer, so a timed out program stops instead of holding its permit
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - job.start);
+            context.setTimeLimit(Math.max(1, timeoutMillis - elapsed));
+            context.setMemoryLimit(memoryLimit);
+            context.setStringLimit(stringLimit);
+
+            BisayaProgram program = programs.get(job.source);
+            if (program != null) {
+                counters.cacheHits.increment();
+            } else {
+                program = context.compile(job.source);
+                if (program == null) return new Result(Status.COMPILE_ERROR, output.toString(), errors.toString());
+                programs.put(job.source, program);
+            }
+
+            Status status = Status.OK;
+            if (!context.run(program)) {
+                //stopped by its time limit, the error says which loop it was in
+                boolean late = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - job.start) >= timeoutMillis;
+                status = late ? Status.TIMEOUT : Status.RUNTIME_ERROR;
+            }
+            return new Result(status, output.toString(), errors.toString(), context.peakMemory(), context.allocatedMemory());
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void respond(Job job, Result result) {
+        long nanos = System.nanoTime() - job.start;
+        counters.record(result, nanos);
+
+        byte[] output = result.output.getBytes(StandardCharsets.UTF_8);
+        byte[] errors = result.errors.getBytes(StandardCharsets.UTF_8);
+        String header = "DONE " + job.id + " " + result.status + " " + TimeUnit.NANOSECONDS.toMillis(nanos)
+                + " " + result.peakBytes + " " + result.allocatedBytes + " " + output.length + " " + errors.length + "\n";
+        job.session.write(header.getBytes(StandardCharsets.UTF_8), output, errors);
+        job.session.finished();
+    }
+
+    //the same text ErrorReporter.console() prints, one line per error
+    private static ErrorReporter collect(StringBuilder errors) {
+        return new ErrorReporter() {
+            @Override
+            public void error(int line, String where, String message) {
+                errors.append("[line ").append(line).append("] Error").append(where).append(": ").append(message).append('\n');
+            }
+
+            @Override
+            public void runtimeError(int line, String message) {
+                errors.append(message).append("\n[line ").append(line).append("]\n");
+            }
+        };
+    }
+
+    //Virtual threads where the JVM has them (Java 21 and up), looked up by reflection so the service
+    //still builds for Java 11. Without them a fixed pool of platform threads runs the jobs
+    private static ExecutorService newThreads(int concurrency) {
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            ThreadFactory daemons = task -> {
+                Thread thread = new Thread(task, "bisaya-job");
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newFixedThreadPool(concurrency, daemons);
+        }
+    }
+
+    //null at the end of the input
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        for (int b = in.read(); b != '\n'; b = in.read()) {
+            if (b == -1) return line.size() > 0 ? line.toString("UTF-8") : null;
+            line.write(b);
+        }
+        return line.toString("UTF-8");
+    }
+
+    //null when the input ends first
+    private static byte[] readBytes(InputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        for (int read = 0; read < length; ) {
+            int n = in.read(bytes, read, length - read);
+            if (n < 0) return null;
+            read += n;
+        }
+        return bytes;
+    }
+
+    //The answers of one connection: written whole, one at a time, and counted so the session
+    //can wait for the jobs still running when its input ends
+    private static final class Session {
+        private final OutputStream out;
+        private int pending = 0;
+
+        Session(OutputStream out) {
+            this.out = new BufferedOutputStream(out, 64 * 1024);
+        }
+
+        synchronized void write(byte[]... parts) {
+            try {
+                for (byte[] part : parts) {
+                    out.write(part);
+                }
+                out.flush();
+            } catch (IOException e) {
+                //the client is gone, there is no one left to answer
+            }
+        }
+
+        synchronized void started() {
+            pending++;
+        }
+
+        synchronized void finished() {
+            pending--;
+            notifyAll();
+        }
+
+        synchronized void awaitJobs() {
+            while (pending > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    //Throughput, latency and memory since the service started, latency is from the moment a job came in
+    //Percentiles come from power-of-two buckets of microseconds, so they are the bucket's upper bound
+    static final class Counters {
+        private final long started = System.nanoTime();
+
+        final LongAdder submitted = new LongAdder();
+        final LongAdder cacheHits = new LongAdder();
+        private final LongAdder[] byStatus = new LongAdder[Status.values().length];
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+
+        //what the jobs' contexts counted, for sizing the pool and spotting scripts that take too much
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final AtomicLong maxPeakBytes = new AtomicLong();
+
+        Counters() {
+            for (int i = 0; i < byStatus.length; i++) {
+                byStatus[i] = new LongAdder();
+            }
+        }
+
+        void record(Result result, long nanos) {
+            byStatus[result.status.ordinal()].increment();
+            allocatedBytes.add(result.allocatedBytes);
+            maxPeakBytes.accumulateAndGet(result.peakBytes, Math::max);
+            completed.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+
+            long micros = Math.max(1, nanos / 1000);
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(micros));
+        }
+
+        String line(int running) {
+            long done = completed.sum();
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            StringBuilder line = new StringBuilder();
+            line.append("submitted=").append(submitted.sum());
+            line.append(" completed=").append(done);
+            for (Status status : Status.values()) {
+                line.append(' ').append(status.name().toLowerCase()).append('=').append(byStatus[status.ordinal()].sum());
+            }
+            line.append(" running=").append(running);
+            line.append(" cache_hits=").append(cacheHits.sum());
+            line.append(" jobs_per_second=").append(String.format("%.1f", done / seconds));
+            line.append(" mean_ms=").append(String.format("%.3f", done == 0 ? 0.0 : totalNanos.sum() / 1e6 / done));
+            line.append(" p50_ms=").append(String.format("%.3f", percentile(done, 0.50)));
+            line.append(" p99_ms=").append(String.format("%.3f", percentile(done, 0.99)));
+            line.append(" max_ms=").append(String.format("%.3f", maxNanos.get() / 1e6));
+            line.append(" allocated_bytes=").append(allocatedBytes.sum());
+            line.append(" max_peak_bytes=").append(maxPeakBytes.get());
+            return line.toString();
+        }
+
+        private double percentile(long count, double fraction) {
+            long rank = (long) Math.ceil(count * fraction);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank && seen > 0) return (1L << i) / 1000.0;
+            }
+            return 0;
+        }
+    }
+}
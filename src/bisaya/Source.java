@@ -0,0 +1,144 @@
+package bisaya;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+import lexer.Text;
+
+//Program text as UTF-8 bytes, read by the Lexer in blocks and by the Scanner one byte at a time
+//A script file is memory-mapped, so it is neither copied nor decoded up front
+//Every character the Scanner matches on is ASCII and in UTF-8 an ASCII byte is always that
+//character, so charAt() and read() simply hand out the byte; bytes of other characters are >= 0x80 and
+//only ever end up inside a string, comment or error message, which substring() decodes
+//Offsets are byte offsets
+//Reads go through a small byte[] window copied in bulk from the mapping, so scanning costs an
+//array access per character instead of a ByteBuffer call, and memory stays bounded
+final class Source implements Text {
+    private static final int WINDOW = 64 * 1024;
+
+    private final ByteBuffer bytes;
+    private final int length;
+
+    //bytes [windowStart, windowStart + windowLength) of the source
+    private final byte[] window;
+    private int windowStart = 0;
+    private int windowLength = 0;
+
+    private Source(ByteBuffer bytes) {
+        this.bytes = bytes;
+        this.length = bytes.limit();
+        this.window = new byte[Math.min(WINDOW, length)];
+    }
+
+    //maps the whole file read-only, the mapping stays valid after the channel is closed
+    static Source map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new Source(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    //The same bytes with a window of its own, for another thread: the mapping is shared but
+    //the window is not, and slide() moves the buffer position
+    Source view() {
+        return new Source(bytes.duplicate());
+    }
+
+    //for text that is already in memory, e.g. a line typed in the prompt
+    static Source of(String text) {
+        return new Source(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    //the byte at index as a char, the character itself when it is ASCII
+    char charAt(int index) {
+        int offset = index - windowStart;
+        if (offset >= 0 && offset < windowLength) return (char) (window[offset] & 0xFF);
+
+        slide(index);
+        return (char) (window[index - windowStart] & 0xFF);
+    }
+
+    @Override
+    public void read(int index, char[] chars, int offset, int count) {
+        for (int i = 0; i < count; ) {
+            int from = index + i - windowStart;
+            if (from < 0 || from >= windowLength) {
+                slide(index + i);
+                from = index + i - windowStart;
+            }
+
+            //every byte of the window from index + i on that is still wanted
+            int to = offset + i;
+            int n = Math.min(count - i, windowLength - from);
+            for (int j = 0; j < n; j++) {
+                chars[to + j] = (char) (window[from + j] & 0xFF);
+            }
+            i += n;
+        }
+    }
+
+    //moves the window to the chunk that holds index
+    private void slide(int index) {
+        if (index < 0 || index >= length) throw new IndexOutOfBoundsException("Index " + index + " out of source length " + length);
+
+        windowStart = index - index % WINDOW;
+        windowLength = Math.min(window.length, length - windowStart);
+        bytes.position(windowStart);
+        bytes.get(window, 0, windowLength);
+    }
+
+    //feeds every byte of the source to digest, e.g. for the ProgramCache key
+    void digest(MessageDigest digest) {
+        ByteBuffer all = bytes.duplicate();
+        all.position(0).limit(length);
+        digest.update(all);
+    }
+
+    //same as String.startsWith for an ASCII prefix
+    boolean startsWith(String prefix, int offset) {
+        if (offset + prefix.length() > length) return false;
+
+        for (int i = 0; i < prefix.length(); i++) {
+            if (charAt(offset + i) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    //the UTF-8 decoder copies ASCII runs as they are, so an ASCII lexeme is never really decoded
+    String substring(int start, int end) {
+        if (start == end) return "";
+
+        int offset = start - windowStart;
+        if (offset >= 0 && end - windowStart <= windowLength) {
+            return new String(window, offset, end - start, StandardCharsets.UTF_8);
+        }
+
+        //the text crosses the window, copy it byte by byte
+        byte[] text = new byte[end - start];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = (byte) charAt(start + i);
+        }
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    //how many bytes the UTF-8 encoded character starting at index takes
+    int sequenceLength(int index) {
+        int lead = charAt(index);
+        int size;
+        if (lead < 0x80) size = 1;
+        else if (lead >= 0xF0) size = 4;
+        else if (lead >= 0xE0) size = 3;
+        else size = 2;
+
+        return Math.min(size, length - index);
+    }
+}
@@ -9,7 +9,7 @@ abstract class Stmt {
         R visitIfStmt(If stmt);
         R visitPrintStmt(Print stmt);
         R visitVarStmt(Var stmt);
-        R visitForStmt(While stmt);
+        R visitForStmt(For stmt);
         R visitWhileStmt(While stmt);
         R visitMultiVarStmt(MultiVar stmt);
         R visitInputStmt(Input stmt);
@@ -18,10 +18,17 @@ abstract class Stmt {
 
     abstract <R> R accept(Visitor<R> visitor);
 
+    //Expressions are not final: the Optimizer puts folded constants in their place
+
     // Nested Stmt classes here.-----------------------------------
     static class Block extends Stmt {
         final List<Stmt> statements;
 
+        //number of variables the block declares, filled in by the Resolver
+        int slotCount = 0;
+        //false when the block declares nothing, it then runs in the enclosing scope
+        boolean scoped = true;
+
         Block(List<Stmt> statements) {
             this.statements = statements;
         }
@@ -33,7 +40,7 @@ abstract class Stmt {
     }
 
     static class Expression extends Stmt {
-        final Expr expression;
+        Expr expression;
 
         Expression(Expr expression) {
             this.expression = expression;
@@ -46,7 +53,7 @@ abstract class Stmt {
     }
 
     static class If extends Stmt {
-        final Expr condition;
+        Expr condition;
         final Stmt thenBranch;
         final Stmt elseBranch;
 
@@ -63,7 +70,7 @@ abstract class Stmt {
     }
 
     static class Print extends Stmt {
-        final Expr expression;
+        Expr expression;
 
         Print(Expr expression) {
             this.expression = expression;
@@ -78,8 +85,16 @@ abstract class Stmt {
     static class Input extends Stmt{
         public final List<Token> names;
 
+        //filled in by the Resolver, one entry per name
+        final int[] depths;
+        final int[] slots;
+        final Var[] declarations;
+
         public Input(List<Token> names) {
             this.names = names;
+            this.depths = new int[names.size()];
+            this.slots = new int[names.size()];
+            this.declarations = new Var[names.size()];
         }
 
         @Override
@@ -90,10 +105,20 @@ abstract class Stmt {
 
     static class Var extends Stmt {
         final Token name;
-        final Expr initializer;
+        Expr initializer;
+        final TokenType dataType;
+
+        //slot in the declaring scope, filled in by the Resolver
+        int slot = -1;
+        //set by the TypeChecker when a TIPIK initializer has to be cut down to a NUMERO
+        boolean truncate = false;
+        //or when a NUMERO initializer has to be widened to a TIPIK
+        boolean widen = false;
+
         Var(Token name, Expr initializer, TokenType dataType) {
             this.name = name;
             this.initializer = initializer;
+            this.dataType = dataType;
         }
 
         @Override
@@ -122,11 +147,43 @@ abstract class Stmt {
         }
     }
 
+    //ALANG SA (initializer, condition, increment) PUNDOK {...}
+    //initializer, condition and increment are null when left out
+    static class For extends Stmt {
+        //ALANG SA, for the line of a RuntimeError at the loop itself
+        final Token keyword;
+        final Stmt initializer;
+        Expr condition;
+        Expr increment;
+        final Stmt body;
+
+        //number of variables the initializer declares, filled in by the Resolver
+        int slotCount = 0;
+        //false when the initializer declares nothing, the loop then runs in the enclosing scope
+        boolean scoped = true;
+
+        For(Token keyword, Stmt initializer, Expr condition, Expr increment, Stmt body) {
+            this.keyword = keyword;
+            this.initializer = initializer;
+            this.condition = condition;
+            this.increment = increment;
+            this.body = body;
+        }
+
+        @Override
+        <R> R accept(Visitor<R> visitor) {
+            return visitor.visitForStmt(this);
+        }
+    }
+
     static class While extends Stmt {
-        final Expr condition;
+        //SAMTANG, for the line of a RuntimeError at the loop itself
+        final Token keyword;
+        Expr condition;
         final Stmt body;
 
-        While(Expr condition, Stmt body) {
+        While(Token keyword, Expr condition, Stmt body) {
+            this.keyword = keyword;
             this.condition = condition;
             this.body = body;
         }
@@ -0,0 +1,109 @@
+package bisaya;
+
+//Compact token stream between the Scanner and the Parser
+//Instead of one Token object per lexeme every token is a row in parallel arrays:
+//type ordinal, start offset and length in the source, and line
+//The arrays are a small ring (WINDOW rows), filled by pulling from the Scanner when the Parser
+//looks at a token that was not scanned yet, so the whole token list is never in memory
+//Lexemes and literals are cut out of the source only when someone asks for them,
+//and token() builds a real Token only for the AST nodes and errors that need one
+final class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    //the Parser looks at most one token back (previous) and one ahead (peekNext)
+    private static final int WINDOW = 8;
+    private static final int MASK = WINDOW - 1;
+
+    private final Source source;
+    private final Scanner scanner;
+    private final byte[] types = new byte[WINDOW];
+    private final int[] starts = new int[WINDOW];
+    private final int[] lengths = new int[WINDOW];
+    private final int[] lines = new int[WINDOW];
+
+    //tokens added so far, token i lives in row i & MASK
+    private int count = 0;
+    private boolean ended = false;
+
+    TokenBuffer(Source source, Scanner scanner) {
+        this.source = source;
+        this.scanner = scanner;
+    }
+
+    //called by the Scanner
+    void add(TokenType type, int start, int length, int line) {
+        int row = count & MASK;
+        types[row] = (byte) type.ordinal();
+        starts[row] = start;
+        lengths[row] = length;
+        lines[row] = line;
+        count++;
+
+        if (type == TokenType.EOF) ended = true;
+    }
+
+    int count() {
+        return count;
+    }
+
+    //Scans up to the token at index, past the end every index is the EOF token
+    private int row(int index) {
+        while (index >= count) {
+            if (ended) return (count - 1) & MASK;
+            scanner.scanNext();
+        }
+
+        if (index < count - WINDOW) {
+            throw new IllegalStateException("Token " + index + " already left the window.");
+        }
+        return index & MASK;
+    }
+
+    TokenType type(int index) {
+        return TYPES[types[row(index)]];
+    }
+
+    int line(int index) {
+        return lines[row(index)];
+    }
+
+    String lexeme(int index) {
+        int row = row(index);
+        return source.substring(starts[row], starts[row] + lengths[row]);
+    }
+
+    //Same values the Scanner used to store in Token.literal, computed from the source text
+    Object literal(int index) {
+        int row = row(index);
+        int start = starts[row];
+        int end = start + lengths[row];
+        if (start == end) return null;
+
+        //NUMBER, DOUBLE and CHARACTER are also the types of the NUMERO, TIPIK and LETRA keywords
+        char first = source.charAt(start);
+        switch (type(index)) {
+            case NUMBER:
+                return first >= '0' && first <= '9' ? Integer.parseInt(source.substring(start, end)) : null;
+            case DOUBLE:
+                return first >= '0' && first <= '9' ? Double.parseDouble(source.substring(start, end)) : null;
+            case CHARACTER:
+                //'x', the letter itself can take more than one byte
+                return first == '\'' ? source.substring(start + 1, end - 1).charAt(0) : null;
+            case NEW_LINE:
+                return '\n';
+            case STRING:
+            case TRUE:
+            case FALSE:
+                //[...] is taken as is, "..." turns every $ into a new line, OO/DILI keywords have none
+                if (first == '[') return source.substring(start + 1, end - 1);
+                if (first == '"') return source.substring(start + 1, end - 1).replace('$', '\n');
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    Token token(int index) {
+        return new Token(type(index), lexeme(index), literal(index), line(index));
+    }
+}
@@ -0,0 +1,368 @@
+package bisaya;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static bisaya.TokenType.*;
+
+//Static pass that runs after the Resolver
+//Gives every expression its type from the MUGNA declarations, rejects mismatches before the
+//program runs and picks the type specialized Operation for every binary operator
+//It also checks that a variable has a value before it is read, so no engine ever sees a null
+class TypeChecker implements Expr.Visitor<TokenType>, Stmt.Visitor<Void> {
+    //declarations that surely have a value at the current point of the program
+    private Set<Stmt.Var> assigned = new HashSet<>();
+    private final Errors errors;
+
+    TypeChecker(Errors errors) {
+        this.errors = errors;
+    }
+
+    void check(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            check(statement);
+        }
+    }
+
+    private void check(Stmt stmt) {
+        stmt.accept(this);
+    }
+
+    //returns null when the expression already had an error, so it is not reported twice
+    private TokenType check(Expr expr) {
+        TokenType type = expr.accept(this);
+        expr.type = type;
+        return type;
+    }
+
+    //STATEMENTS----------------------------------------------------------------------------------
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        check(stmt.statements);
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        check(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        check(stmt.condition);
+        Set<Stmt.Var> beforeBranches = new HashSet<>(assigned);
+
+        check(stmt.thenBranch);
+        Set<Stmt.Var> afterThen = assigned;
+
+        assigned = beforeBranches;
+        if (stmt.elseBranch != null) check(stmt.elseBranch);
+
+        //only what both branches assign is sure to have a value after the KUNG
+        assigned.retainAll(afterThen);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        check(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        return null;
+    }
+
+    @Override
+    public Void visitForStmt(Stmt.For stmt) {
+        if (stmt.initializer != null) check(stmt.initializer);
+        if (stmt.condition != null) check(stmt.condition);
+
+        //the body might not run at all, the increment always runs after it
+        Set<Stmt.Var> beforeBody = new HashSet<>(assigned);
+        check(stmt.body);
+        if (stmt.increment != null) check(stmt.increment);
+        if (!runsOnce(stmt.condition, startValues(stmt.initializer))) assigned = beforeBody;
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        check(stmt.condition);
+
+        //the body might not run at all
+        Set<Stmt.Var> beforeBody = new HashSet<>(assigned);
+        check(stmt.body);
+        if (!runsOnce(stmt.condition, Collections.emptyMap())) assigned = beforeBody;
+        return null;
+    }
+
+    @Override
+    public Void visitMultiVarStmt(Stmt.MultiVar stmt) {
+        for (Stmt.Var var : stmt.vars) {
+            if (var.initializer != null) {
+                TokenType given = check(var.initializer);
+                var.truncate = checkStore(var.name, stmt.dataType, given);
+                var.widen = stmt.dataType == DOUBLE && given == NUMBER;
+                assigned.add(var);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitInputStmt(Stmt.Input stmt) {
+        for (Stmt.Var declaration : stmt.declarations) {
+            assigned.add(declaration);
+        }
+        return null;
+    }
+
+    //EXPRESSIONS---------------------------------------------------------------------------------
+    @Override
+    public TokenType visitAssignExpr(Expr.Assign expr) {
+        TokenType given = check(expr.value);
+        expr.truncate = checkStore(expr.name, expr.declaration.dataType, given);
+        expr.widen = expr.declaration.dataType == DOUBLE && given == NUMBER;
+        assigned.add(expr.declaration);
+
+        //the assignment evaluates to the value given, not the stored one
+        return given;
+    }
+
+    @Override
+    public TokenType visitUnaryExpr(Expr.Unary expr) {
+        TokenType right = check(expr.right);
+
+        switch (expr.operator.type) {
+            case MINUS:
+                if (right != null && !isNumber(right)) {
+                    errors.error(expr.operator, "Operand must be a number.");
+                    return null;
+                }
+                return DOUBLE;
+            case NOT:
+                return BOOLEAN;
+        }
+
+        //Unreachable
+        return null;
+    }
+
+    @Override
+    public TokenType visitBinaryExpr(Expr.Binary expr) {
+        TokenType left = check(expr.left);
+        TokenType right = check(expr.right);
+
+        switch (expr.operator.type) {
+            case EQUAL_EQUAL:
+                expr.operation = Operation.EQUAL;
+                return BOOLEAN;
+            case NOT_EQUAL:
+                expr.operation = Operation.NOT_EQUAL;
+                return BOOLEAN;
+            case CONCAT:
+                expr.operation = Operation.CONCAT;
+                return STRING;
+        }
+
+        if (left == null || right == null) return null;
+
+        boolean bothInts = left == NUMBER && right == NUMBER;
+        switch (expr.operator.type) {
+            case PLUS:
+                if (bothInts) {
+                    expr.operation = Operation.INT_ADD;
+                    return NUMBER;
+                }
+                if (isNumber(left) && isNumber(right)) {
+                    expr.operation = Operation.DOUBLE_ADD;
+                    return DOUBLE;
+                }
+                if ((left == STRING || isNumber(left)) && (right == STRING || isNumber(right))) {
+                    expr.operation = Operation.STRING_ADD;
+                    return STRING;
+                }
+
+                errors.error(expr.operator, "Operands must be two numbers or two strings.");
+                return null;
+            case MINUS:
+                return numeric(expr, Operation.SUBTRACT, Operation.SUBTRACT, DOUBLE);
+            case STAR:
+                return numeric(expr, Operation.MULTIPLY, Operation.MULTIPLY, DOUBLE);
+            case SLASH:
+                return numeric(expr, Operation.DIVIDE, Operation.DIVIDE, DOUBLE);
+            case MODULO:
+                return numeric(expr, Operation.INT_MODULO, Operation.DOUBLE_MODULO, DOUBLE);
+            case GREATER:
+                return numeric(expr, Operation.INT_GREATER, Operation.DOUBLE_GREATER, BOOLEAN);
+            case GREATER_EQUAL:
+                return numeric(expr, Operation.INT_GREATER_EQUAL, Operation.DOUBLE_GREATER_EQUAL, BOOLEAN);
+            case LESSER:
+                return numeric(expr, Operation.INT_LESSER, Operation.DOUBLE_LESSER, BOOLEAN);
+            case LESSER_EQUAL:
+                return numeric(expr, Operation.INT_LESSER_EQUAL, Operation.DOUBLE_LESSER_EQUAL, BOOLEAN);
+        }
+
+        //Unreachable
+        return null;
+    }
+
+    @Override
+    public TokenType visitGroupingExpr(Expr.Grouping expr) {
+        return check(expr.expression);
+    }
+
+    @Override
+    public TokenType visitLiteralExpr(Expr.Literal expr) {
+        return Value.typeOf(expr.tag);
+    }
+
+    @Override
+    public TokenType visitLogicalExpr(Expr.Logical expr) {
+        TokenType left = check(expr.left);
+
+        //the right side might be skipped
+        Set<Stmt.Var> afterLeft = new HashSet<>(assigned);
+        TokenType right = check(expr.right);
+        assigned = afterLeft;
+
+        if (left == null || right == null) return null;
+
+        //UG/O give back one of their operands, so both need the same type
+        if (left != right) {
+            errors.error(expr.operator, "Ang duha ka bili sa '" + expr.operator.lexeme.trim() + "' kinahanglan parehas og klase sa datos.");
+            return null;
+        }
+
+        return left;
+    }
+
+    @Override
+    public TokenType visitVariableExpr(Expr.Variable expr) {
+        if (!assigned.contains(expr.declaration)) {
+            errors.error(expr.name, "Ang sulodanan '" + expr.name.lexeme + "' wala pa matagaan og bili.");
+            return null;
+        }
+
+        return expr.declaration.dataType;
+    }
+
+    @Override
+    public TokenType visitPostfixExpr(Expr.Postfix expr) {
+        if (!(expr.expression instanceof Expr.Variable)) {
+            errors.error(expr.operator, "Ang pagdungag og usa sa kantidad mamahimo ra sa sa usa ka sulodanan.");
+            return null;
+        }
+
+        TokenType type = check(expr.expression);
+        if (type != null && !isNumber(type)) {
+            errors.error(expr.operator, "Pwede ra ma-increment ang mga numero.");
+            return null;
+        }
+
+        //postfix gives back the original value as a TIPIK
+        return DOUBLE;
+    }
+
+    //HELPER FUNCTIONS----------------------------------------------------------------------------
+    private TokenType numeric(Expr.Binary expr, Operation intOperation, Operation doubleOperation, TokenType result) {
+        TokenType left = expr.left.type;
+        TokenType right = expr.right.type;
+
+        if (!isNumber(left) || !isNumber(right)) {
+            errors.error(expr.operator, "Operands must be numbers.");
+            return null;
+        }
+
+        expr.operation = left == NUMBER && right == NUMBER ? intOperation : doubleOperation;
+        return result;
+    }
+
+    //NUMERO takes a TIPIK by truncating it, TIPIK takes a NUMERO by widening it, nothing else converts
+    //Returns true when the value has to be truncated
+    private boolean checkStore(Token name, TokenType declared, TokenType given) {
+        if (given == null || given == declared) return false;
+        if (declared == NUMBER && given == DOUBLE) return true;
+        if (declared == DOUBLE && given == NUMBER) return false;
+
+        errors.error(name, String.format("Ang bili nga '%s' dili mahimong ibutang sa sulodanan nga '%s' nga '%s'.", given, name.lexeme, declared));
+        return false;
+    }
+
+    private static boolean isNumber(TokenType type) {
+        return type == NUMBER || type == DOUBLE;
+    }
+
+    //A loop surely runs its body once when it has no condition, or when the condition is true on
+    //the way in from literals alone and the literals the ALANG SA initializer gives its variables
+    //(ALANG SA (MUGNA NUMERO i = 0, i < 3, i++)). Anything else might never run the body
+    private static boolean runsOnce(Expr condition, Map<Stmt.Var, Object> start) {
+        return condition == null || Boolean.TRUE.equals(constant(condition, start));
+    }
+
+    //the literal each variable of the initializer starts with, where it is one
+    private static Map<Stmt.Var, Object> startValues(Stmt initializer) {
+        Map<Stmt.Var, Object> start = new HashMap<>();
+        if (initializer instanceof Stmt.MultiVar) {
+            for (Stmt.Var var : ((Stmt.MultiVar) initializer).vars) {
+                Object value = var.initializer == null ? null : constant(var.initializer, start);
+                if (value != null) start.put(var, value);
+            }
+        } else if (initializer instanceof Stmt.Expression && ((Stmt.Expression) initializer).expression instanceof Expr.Assign) {
+            Expr.Assign assign = (Expr.Assign) ((Stmt.Expression) initializer).expression;
+            Object value = constant(assign.value, start);
+            if (value != null) start.put(assign.declaration, value);
+        }
+        return start;
+    }
+
+    //The value of a condition made of literals, the start values, -, DILI, comparisons, UG and O,
+    //null when it is anything more
+    private static Object constant(Expr expr, Map<Stmt.Var, Object> start) {
+        if (expr instanceof Expr.Literal) return ((Expr.Literal) expr).value;
+        if (expr instanceof Expr.Grouping) return constant(((Expr.Grouping) expr).expression, start);
+        if (expr instanceof Expr.Variable) return start.get(((Expr.Variable) expr).declaration);
+
+        if (expr instanceof Expr.Unary) {
+            Expr.Unary unary = (Expr.Unary) expr;
+            Object right = constant(unary.right, start);
+            if (unary.operator.type == MINUS && right instanceof Number) return -((Number) right).doubleValue();
+            if (unary.operator.type == NOT && right instanceof Boolean) return !(Boolean) right;
+            return null;
+        }
+
+        if (expr instanceof Expr.Logical) {
+            Expr.Logical logical = (Expr.Logical) expr;
+            Object left = constant(logical.left, start);
+            Object right = constant(logical.right, start);
+            if (!(left instanceof Boolean) || !(right instanceof Boolean)) return null;
+            return logical.operator.type == AND ? (Boolean) left && (Boolean) right : (Boolean) left || (Boolean) right;
+        }
+
+        if (expr instanceof Expr.Binary) {
+            Expr.Binary binary = (Expr.Binary) expr;
+            Object left = constant(binary.left, start);
+            Object right = constant(binary.right, start);
+            if (!(left instanceof Number) || !(right instanceof Number)) return null;
+
+            double l = ((Number) left).doubleValue();
+            double r = ((Number) right).doubleValue();
+            switch (binary.operator.type) {
+                case GREATER: return l > r;
+                case GREATER_EQUAL: return l >= r;
+                case LESSER: return l < r;
+                case LESSER_EQUAL: return l <= r;
+                default: return null;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,318 @@
+package bisaya;
+
+//Register based VM that runs the Chunk produced by the Compiler
+//Semantics follow the tree-walking Interpreter, which stays the reference engine
+//Values are never boxed: a register holds its value as a long (see OpCode), a string sits in the
+//strings array under the same number
+class VM {
+    //IPAKITA and the DAWAT prompt write here, same as Interpreter.setOutput()
+    private Output output = Output.console();
+    private Input input = Input.console(true);
+
+    //checked at every LOOP and charged for every string, same as Interpreter.setBudget()
+    private Budget budget = new Budget();
+
+    //a RuntimeError is thrown from here, same as Interpreter.interpret()
+    void interpret(Chunk chunk) {
+        run(chunk, chunk.registers.clone(), chunk.strings.clone());
+    }
+
+    void setOutput(Output output) {
+        this.output = output;
+    }
+
+    void setInput(Input input) {
+        this.input = input;
+    }
+
+    void setBudget(Budget budget) {
+        this.budget = budget;
+    }
+
+    private void run(Chunk chunk, long[] r, String[] s) {
+        final int[] code = chunk.code;
+        int ip = 0;
+
+        for (;;) {
+            int start = ip;
+            int instruction = code[ip];
+
+            switch (instruction) {
+                case OpCode.MOVE: {
+                    int from = code[ip + 2];
+                    int to = code[ip + 1];
+                    r[to] = r[from];
+                    s[to] = s[from];
+                    ip += 3;
+                    break;
+                }
+                //postfix gives back the original value as a TIPIK, a NUMERO goes through the same
+                //double as in the Interpreter. The variable is written first, so i = i++ keeps
+                //the old value like the other engines
+                case OpCode.INCREMENT_INT:
+                case OpCode.DECREMENT_INT: {
+                    int variable = code[ip + 2];
+                    double current = (int) r[variable];
+                    r[variable] = (int) (instruction == OpCode.INCREMENT_INT ? current + 1 : current - 1);
+                    r[code[ip + 1]] = Double.doubleToRawLongBits(current);
+                    ip += 3;
+                    break;
+                }
+                case OpCode.INCREMENT_DOUBLE:
+                case OpCode.DECREMENT_DOUBLE: {
+                    int variable = code[ip + 2];
+                    long old = r[variable];
+                    double current = Double.longBitsToDouble(old);
+                    r[variable] = Double.doubleToRawLongBits(instruction == OpCode.INCREMENT_DOUBLE ? current + 1 : current - 1);
+                    r[code[ip + 1]] = old;
+                    ip += 3;
+                    break;
+                }
+
+                //CONVERSIONS-----------------------------------------------------------------------
+                case OpCode.INT_TO_DOUBLE:
+                    r[code[ip + 1]] = Double.doubleToRawLongBits((int) r[code[ip + 2]]);
+                    ip += 3;
+                    break;
+                case OpCode.DOUBLE_TO_INT:
+                    r[code[ip + 1]] = (int) Double.longBitsToDouble(r[code[ip + 2]]);
+                    ip += 3;
+                    break;
+                case OpCode.INT_TO_STRING:
+                    s[code[ip + 1]] = Integer.toString((int) r[code[ip + 2]]);
+                    ip += 3;
+                    break;
+                case OpCode.DOUBLE_TO_STRING:
+                    s[code[ip + 1]] = Double.toString(Double.longBitsToDouble(r[code[ip + 2]]));
+                    ip += 3;
+                    break;
+                case OpCode.STRINGIFY_DOUBLE:
+                    s[code[ip + 1]] = Interpreter.stringify(Double.longBitsToDouble(r[code[ip + 2]]));
+                    ip += 3;
+                    break;
+                case OpCode.CHARACTER_TO_STRING:
+                    s[code[ip + 1]] = String.valueOf((char) r[code[ip + 2]]);
+                    ip += 3;
+                    break;
+                case OpCode.BOOLEAN_TO_STRING:
+                    s[code[ip + 1]] = r[code[ip + 2]] != 0 ? "OO" : "DILI";
+                    ip += 3;
+                    break;
+
+                //OPERATORS-------------------------------------------------------------------------
+                //every operand is read before the result is written, it may be one of them
+                case OpCode.INT_ADD:
+                    r[code[ip + 1]] = (int) r[code[ip + 2]] + (int) r[code[ip + 3]];
+                    ip += 4;
+                    break;
+                case OpCode.DOUBLE_ADD:
+                    r[code[ip + 1]] = Double.doubleToRawLongBits(number(r, code, ip + 2) + number(r, code, ip + 3));
+                    ip += 4;
+                    break;
+                case OpCode.SUBTRACT:
+                    r[code[ip + 1]] = Double.doubleToRawLongBits(number(r, code, ip + 2) - number(r, code, ip + 3));
+                    ip += 4;
+                    break;
+                case OpCode.MULTIPLY:
+                    r[code[ip + 1]] = Double.doubleToRawLongBits(number(r, code, ip + 2) * number(r, code, ip + 3));
+                    ip += 4;
+                    break;
+                case OpCode.DIVIDE: {
+                    double divisor = number(r, code, ip + 3);
+                    if (divisor == 0) {
+                        throw new RuntimeError(chunk.tokens[start], "Cannot divide by zero.");
+                    }
+                    r[code[ip + 1]] = Double.doubleToRawLongBits(number(r, code, ip + 2) / divisor);
+                    ip += 4;
+                    break;
+                }
+                case OpCode.INT_MODULO: {
+                    int divisor = (int) r[code[ip + 3]];
+                    if (divisor == 0) {
+                        throw new RuntimeError(chunk.tokens[start], "Cannot modulo by zero.");
+                    }
+                    //integer remainder is exact, only the sign of a zero result needs care (-4 % 2 is -0.0)
+                    int dividend = (int) r[code[ip + 2]];
+                    int remainder = dividend % divisor;
+                    r[code[ip + 1]] = Double.doubleToRawLongBits(remainder == 0 && dividend < 0 ? -0.0 : remainder);
+                    ip += 4;
+                    break;
+                }
+                case OpCode.DOUBLE_MODULO: {
+                    double divisor = number(r, code, ip + 3);
+                    if (divisor == 0) {
+                        throw new RuntimeError(chunk.tokens[start], "Cannot modulo by zero.");
+                    }
+                    r[code[ip + 1]] = Double.doubleToRawLongBits(number(r, code, ip + 2) % divisor);
+                    ip += 4;
+                    break;
+                }
+                case OpCode.NEGATE:
+                    r[code[ip + 1]] = Double.doubleToRawLongBits(-number(r, code, ip + 2));
+                    ip += 3;
+                    break;
+                case OpCode.NOT:
+                    r[code[ip + 1]] = r[code[ip + 2]] ^ 1;
+                    ip += 3;
+                    break;
+                //a NUMERO is kept sign extended, so the int forms can compare the longs as they are
+                case OpCode.INT_GREATER:
+                    r[code[ip + 1]] = r[code[ip + 2]] > r[code[ip + 3]] ? 1 : 0;
+                    ip += 4;
+                    break;
+                case OpCode.INT_GREATER_EQUAL:
+                    r[code[ip + 1]] = r[code[ip + 2]] >= r[code[ip + 3]] ? 1 : 0;
+                    ip += 4;
+                    break;
+                case OpCode.INT_LESSER:
+                    r[code[ip + 1]] = r[code[ip + 2]] < r[code[ip + 3]] ? 1 : 0;
+                    ip += 4;
+                    break;
+                case OpCode.INT_LESSER_EQUAL:
+                    r[code[ip + 1]] = r[code[ip + 2]] <= r[code[ip + 3]] ? 1 : 0;
+                    ip += 4;
+                    break;
+                case OpCode.DOUBLE_GREATER:
+                    r[code[ip + 1]] = number(r, code, ip + 2) > number(r, code, ip + 3) ? 1 : 0;
+                    ip += 4;
+                    break;
+                case OpCode.DOUBLE_GREATER_EQUAL:
+                    r[code[ip + 1]] = number(r, code, ip + 2) >= number(r, code, ip + 3) ? 1 : 0;
+                    ip += 4;
+                    break;
+                case OpCode.DOUBLE_LESSER:
+                    r[code[ip + 1]] = number(r, code, ip + 2) < number(r, code, ip + 3) ? 1 : 0;
+                    ip += 4;
+                    break;
+                case OpCode.DOUBLE_LESSER_EQUAL:
+                    r[code[ip + 1]] = number(r, code, ip + 2) <= number(r, code, ip + 3) ? 1 : 0;
+                    ip += 4;
+                    break;
+                case OpCode.EQUAL:
+                    r[code[ip + 1]] = r[code[ip + 2]] == r[code[ip + 3]] ? 1 : 0;
+                    ip += 4;
+                    break;
+                case OpCode.DOUBLE_EQUAL:
+                    //as Double.equals: every NaN is equal to every other, 0.0 and -0.0 are not
+                    r[code[ip + 1]] = Double.doubleToLongBits(number(r, code, ip + 2))
+                            == Double.doubleToLongBits(number(r, code, ip + 3)) ? 1 : 0;
+                    ip += 4;
+                    break;
+                case OpCode.STRING_EQUAL:
+                    r[code[ip + 1]] = s[code[ip + 2]].equals(s[code[ip + 3]]) ? 1 : 0;
+                    ip += 4;
+                    break;
+                case OpCode.CONCAT:
+                    s[code[ip + 1]] = budget.string(chunk.tokens[start], s[code[ip + 2]].concat(s[code[ip + 3]]));
+                    ip += 4;
+                    break;
+
+                //STATEMENTS------------------------------------------------------------------------
+                case OpCode.PRINT:
+                    output.print(s[code[ip + 1]]);
+                    ip += 2;
+                    break;
+                case OpCode.INPUT: {
+                    Stmt.Input statement = chunk.inputs[code[ip + 1]];
+                    ip += 2;
+
+                    input.read(statement.names, output);
+                    for (int i = 0; i < statement.names.size(); i++) {
+                        r[code[ip]] = read(statement, i);
+                        ip++;
+                    }
+                    break;
+                }
+
+                //CONTROL FLOW----------------------------------------------------------------------
+                case OpCode.JUMP:
+                    ip += 2 + code[ip + 1];
+                    break;
+                case OpCode.JUMP_IF_FALSE:
+                    ip = r[code[ip + 1]] == 0 ? ip + 3 + code[ip + 2] : ip + 3;
+                    break;
+                case OpCode.JUMP_IF_TRUE:
+                    ip = r[code[ip + 1]] != 0 ? ip + 3 + code[ip + 2] : ip + 3;
+                    break;
+                case OpCode.JUMP_IF_INT_GREATER:
+                    ip = r[code[ip + 1]] > r[code[ip + 2]] ? ip + 4 + code[ip + 3] : ip + 4;
+                    break;
+                case OpCode.JUMP_IF_INT_GREATER_EQUAL:
+                    ip = r[code[ip + 1]] >= r[code[ip + 2]] ? ip + 4 + code[ip + 3] : ip + 4;
+                    break;
+                case OpCode.JUMP_IF_INT_LESSER:
+                    ip = r[code[ip + 1]] < r[code[ip + 2]] ? ip + 4 + code[ip + 3] : ip + 4;
+                    break;
+                case OpCode.JUMP_IF_INT_LESSER_EQUAL:
+                    ip = r[code[ip + 1]] <= r[code[ip + 2]] ? ip + 4 + code[ip + 3] : ip + 4;
+                    break;
+                case OpCode.LOOP:
+                    budget.backEdge(chunk.tokens[start]);
+                    ip = ip + 2 - code[ip + 1];
+                    break;
+                case OpCode.LOOP_IF_TRUE:
+                    budget.backEdge(chunk.tokens[start]);
+                    ip = r[code[ip + 1]] != 0 ? ip + 3 - code[ip + 2] : ip + 3;
+                    break;
+                case OpCode.LOOP_IF_INT_GREATER:
+                    budget.backEdge(chunk.tokens[start]);
+                    ip = r[code[ip + 1]] > r[code[ip + 2]] ? ip + 4 - code[ip + 3] : ip + 4;
+                    break;
+                case OpCode.LOOP_IF_INT_GREATER_EQUAL:
+                    budget.backEdge(chunk.tokens[start]);
+                    ip = r[code[ip + 1]] >= r[code[ip + 2]] ? ip + 4 - code[ip + 3] : ip + 4;
+                    break;
+                case OpCode.LOOP_IF_INT_LESSER:
+                    budget.backEdge(chunk.tokens[start]);
+                    ip = r[code[ip + 1]] < r[code[ip + 2]] ? ip + 4 - code[ip + 3] : ip + 4;
+                    break;
+                case OpCode.LOOP_IF_INT_LESSER_EQUAL:
+                    budget.backEdge(chunk.tokens[start]);
+                    ip = r[code[ip + 1]] <= r[code[ip + 2]] ? ip + 4 - code[ip + 3] : ip + 4;
+                    break;
+                case OpCode.RETURN:
+                    return;
+
+                //SCOPES----------------------------------------------------------------------------
+                case OpCode.ENTER_SCOPE:
+                    budget.allocate(Budget.frameBytes(code[ip + 1]));
+                    ip += 2;
+                    break;
+                case OpCode.EXIT_SCOPE:
+                    budget.release(Budget.frameBytes(code[ip + 1]));
+                    ip += 2;
+                    break;
+                default:
+                    throw new RuntimeError(chunk.tokens[start], "Wala mailhi nga instruksyon: " + instruction);
+            }
+        }
+    }
+
+    //the TIPIK in the register named at ip
+    private static double number(long[] r, int[] code, int ip) {
+        return Double.longBitsToDouble(r[code[ip]]);
+    }
+
+    //the i-th value of the DAWAT line as a register value of the type of its declaration
+    private long read(Stmt.Input statement, int i) {
+        Token name = statement.names.get(i);
+        TokenType type = statement.declarations[i].dataType;
+        Object value;
+        long bits;
+        if (type == TokenType.NUMBER) {
+            int number = input.intValue(i, name);
+            value = number;
+            bits = number;
+        } else if (type == TokenType.DOUBLE) {
+            double number = input.doubleValue(i, name);
+            value = number;
+            bits = Double.doubleToRawLongBits(number);
+        } else {
+            value = input.value(i, type, name);
+            bits = Value.bitsOf(value);
+        }
+
+        if (input.interactive) output.print("THE VALUE IS: " + value + "\n");
+        return bits;
+    }
+}
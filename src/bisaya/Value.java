@@ -0,0 +1,64 @@
+package bisaya;
+
+//Unboxed value representation used by the Interpreter and the Environment
+//A value is a (tag, bits, ref) triple: NUMERO/TINUOD/LETRA are stored in bits as a long,
+//TIPIK as the raw bits of the double, and only strings use ref
+//Boxing happens at the edges only (IPAKITA, DAWAT, literals from the Parser, error messages)
+final class Value {
+    private Value() {}
+
+    static final byte NIL = 0;
+    static final byte INT = 1;
+    static final byte DOUBLE = 2;
+    static final byte BOOLEAN = 3;
+    static final byte CHARACTER = 4;
+    static final byte STRING = 5;
+
+    static byte tagOf(Object value) {
+        if (value == null) return NIL;
+        if (value instanceof Integer) return INT;
+        if (value instanceof Double) return DOUBLE;
+        if (value instanceof Boolean) return BOOLEAN;
+        if (value instanceof Character) return CHARACTER;
+        return STRING;
+    }
+
+    static long bitsOf(Object value) {
+        if (value instanceof Integer) return (Integer) value;
+        if (value instanceof Double) return Double.doubleToRawLongBits((Double) value);
+        if (value instanceof Boolean) return (Boolean) value ? 1 : 0;
+        if (value instanceof Character) return (Character) value;
+        return 0;
+    }
+
+    static Object box(byte tag, long bits, Object ref) {
+        switch (tag) {
+            case INT: return (int) bits;
+            case DOUBLE: return Double.longBitsToDouble(bits);
+            case BOOLEAN: return bits != 0;
+            case CHARACTER: return (char) bits;
+            case STRING: return ref;
+            default: return null;
+        }
+    }
+
+    static boolean isNumber(byte tag) {
+        return tag == INT || tag == DOUBLE;
+    }
+
+    static double toDouble(byte tag, long bits) {
+        return tag == INT ? (double) (int) bits : Double.longBitsToDouble(bits);
+    }
+
+    //declared type a tag satisfies without conversion, null for NIL
+    static TokenType typeOf(byte tag) {
+        switch (tag) {
+            case INT: return TokenType.NUMBER;
+            case DOUBLE: return TokenType.DOUBLE;
+            case BOOLEAN: return TokenType.BOOLEAN;
+            case CHARACTER: return TokenType.CHARACTER;
+            case STRING: return TokenType.STRING;
+            default: return null;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package lexer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//The token definitions of a language, compiled into tables for the Lexer
+//A state is a row of the transition table with one column per character class, characters
+//that every state treats alike share a class. Every state may accept a token kind: the Lexer
+//keeps going while there is a transition and then backs up to the last accepting state it passed
+//Token kinds are the front end's own numbers (TokenType ordinals), plus SKIP and ERROR below
+public final class Dfa {
+    //accepted but not returned, e.g. white space and comments
+    public static final int SKIP = -1;
+    //not a token, Lexer.message() says why (or null for a character no token starts with)
+    public static final int ERROR = -2;
+    //returned by Lexer.next() once the whole text has been scanned
+    public static final int END = -3;
+
+    static final int NONE = -4;
+
+    static final int DEAD = 0;
+    static final int START = 1;
+
+    //columns before compression: every char below 256, one for all the chars above, one for the end of the text
+    private static final int OTHER = 256;
+    private static final int END_OF_TEXT = 257;
+    private static final int COLUMNS = 258;
+
+    //chars below 256 look up their class directly, everything else is otherClass
+    final byte[] classes;
+    //white space, skipped before a token starts
+    final boolean[] blanks;
+    final int otherClass;
+    final int endClass;
+    //rows are 1 << shift entries apart, so a state finds its row number with a shift
+    final int shift;
+
+    //A state is the offset of its row, s << shift, and the next state on class c is table[state + c]
+    //An accepting next state comes negated, so the Lexer can tell without looking up its kind
+    final int[] table;
+    final int start;
+    final int[] kinds;
+    //kinds accepted only where the scan stops, with no transition for the next character
+    final int[] stopKinds;
+    final String[] messages;
+
+    private Dfa(byte[] classes, boolean[] blanks, int otherClass, int endClass, int shift,
+                int[] table, int[] kinds, int[] stopKinds, String[] messages) {
+        this.classes = classes;
+        this.blanks = blanks;
+        this.otherClass = otherClass;
+        this.endClass = endClass;
+        this.shift = shift;
+        this.table = table;
+        this.start = START << shift;
+        this.kinds = kinds;
+        this.stopKinds = stopKinds;
+        this.messages = messages;
+    }
+
+    public static final class Builder {
+        private final List<int[]> rows = new ArrayList<>();
+        private final List<Integer> kinds = new ArrayList<>();
+        private final List<Integer> stopKinds = new ArrayList<>();
+        private final List<String> messages = new ArrayList<>();
+        //states made by literal(), the only ones another literal may walk through without copying
+        private final List<Boolean> literals = new ArrayList<>();
+        private final boolean[] blanks = new boolean[OTHER];
+
+        public Builder() {
+            state(); //DEAD
+            state(); //START
+        }
+
+        public int start() {
+            return START;
+        }
+
+        public int state() {
+            return state(NONE);
+        }
+
+        public int state(int kind) {
+            rows.add(new int[COLUMNS]);
+            kinds.add(kind);
+            stopKinds.add(NONE);
+            messages.add(null);
+            literals.add(false);
+            return rows.size() - 1;
+        }
+
+        //white space between tokens, a token cannot start with one of these
+        public Builder blanks(String chars) {
+            for (int i = 0; i < chars.length(); i++) {
+                blanks[chars.charAt(i)] = true;
+            }
+            return this;
+        }
+
+        public Builder accept(int state, int kind) {
+            kinds.set(state, kind);
+            return this;
+        }
+
+        //Accepted only if the scan cannot go on from state, which does not accept anything itself:
+        //give state transitions for the characters that must not follow, e.g. letters after a word
+        //that has to end there
+        public Builder acceptAtStop(int state, int kind) {
+            stopKinds.set(state, kind);
+            return this;
+        }
+
+        //reaching state is an error with this message, e.g. an unterminated string
+        public Builder fail(int state, String message) {
+            kinds.set(state, ERROR);
+            messages.set(state, message);
+            return this;
+        }
+
+        public Builder on(int from, String chars, int to) {
+            for (int i = 0; i < chars.length(); i++) {
+                rows.get(from)[chars.charAt(i)] = to;
+            }
+            return this;
+        }
+
+        public Builder on(int from, char first, char last, int to) {
+            for (char c = first; c <= last; c++) {
+                rows.get(from)[c] = to;
+            }
+            return this;
+        }
+
+        //every char except the given ones, but not the end of the text
+        public Builder onAnyBut(int from, String chars, int to) {
+            int[] row = rows.get(from);
+            for (int c = 0; c <= OTHER; c++) {
+                if (chars.indexOf(c) < 0) row[c] = to;
+            }
+            return this;
+        }
+
+        public Builder onEnd(int from, int to) {
+            rows.get(from)[END_OF_TEXT] = to;
+            return this;
+        }
+
+        //A fixed token, e.g. "<=" or a keyword. The path from the start state is shared with the
+        //literals before it, and a state of another rule on the way (an identifier) is copied first,
+        //so "KUNG" accepts its own kind while "KUNGx" still goes on as that identifier
+        public int literal(String text, int kind) {
+            int state = path(text);
+            accept(state, kind);
+            return state;
+        }
+
+        //the states of literal() without accepting anything at the end
+        public int path(String text) {
+            int state = START;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                int next = rows.get(state)[c];
+                if (next == DEAD || !literals.get(next)) {
+                    int copy = state();
+                    if (next != DEAD) {
+                        rows.set(copy, rows.get(next).clone());
+                        kinds.set(copy, kinds.get(next));
+                        messages.set(copy, messages.get(next));
+                    }
+                    literals.set(copy, true);
+                    rows.get(state)[c] = copy;
+                    next = copy;
+                }
+                state = next;
+            }
+            return state;
+        }
+
+        public Dfa build() {
+            int states = rows.size();
+
+            //columns with the same target in every state become one class
+            int[] columnClass = new int[COLUMNS];
+            List<Integer> representatives = new ArrayList<>();
+            for (int column = 0; column < COLUMNS; column++) {
+                int found = -1;
+                for (int c = 0; c < representatives.size() && found < 0; c++) {
+                    if (sameColumn(column, representatives.get(c))) found = c;
+                }
+                if (found < 0) {
+                    found = representatives.size();
+                    representatives.add(column);
+                }
+                columnClass[column] = found;
+            }
+
+            int width = representatives.size();
+            if (width > Byte.MAX_VALUE) throw new IllegalStateException("Too many character classes: " + width);
+
+            byte[] classes = new byte[OTHER];
+            for (int c = 0; c < OTHER; c++) {
+                classes[c] = (byte) columnClass[c];
+            }
+
+            int shift = 32 - Integer.numberOfLeadingZeros(width - 1);
+            int[] table = new int[states << shift];
+            for (int s = 0; s < states; s++) {
+                for (int c = 0; c < width; c++) {
+                    int next = rows.get(s)[representatives.get(c)];
+                    table[(s << shift) + c] = kinds.get(next) != NONE ? -(next << shift) : next << shift;
+                }
+            }
+
+            int[] kindTable = new int[states];
+            int[] stopKindTable = new int[states];
+            for (int s = 0; s < states; s++) {
+                kindTable[s] = kinds.get(s);
+                stopKindTable[s] = stopKinds.get(s);
+            }
+
+            return new Dfa(classes, blanks.clone(), columnClass[OTHER], columnClass[END_OF_TEXT], shift,
+                    table, kindTable, stopKindTable, messages.toArray(new String[0]));
+        }
+
+        private boolean sameColumn(int a, int b) {
+            for (int[] row : rows) {
+                if (row[a] != row[b]) return false;
+            }
+            return true;
+        }
+    }
+}
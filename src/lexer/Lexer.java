@@ -0,0 +1,189 @@
+package lexer;
+
+import java.util.Arrays;
+
+//Scans a Text with the tables of a Dfa, one token per next()
+//The whole loop is a class lookup, a table lookup and an accept check per character, the same
+//for every language. Line numbers count the '\n's scanned so far, inside tokens too
+//The characters are scanned out of a char[] buffer refilled from the Text a block at a time;
+//the buffer always keeps the token being scanned, and grows for a token longer than it
+public final class Lexer {
+    private static final int BUFFER = 8 * 1024;
+
+    private final Dfa dfa;
+    private final Text text;
+    private final int length;
+    //no token starting at or after stop is returned, see Lexer(Dfa, Text, int, int)
+    private final int stop;
+
+    //chars [bufferStart, bufferStart + filled) of the text
+    private char[] buffer;
+    private int bufferStart = 0;
+    private int filled = 0;
+
+    //the last token is [start, end), end is also where the next token starts
+    private int start = 0;
+    private int end = 0;
+    private int line = 1;
+    //the state the last token was accepted in
+    private int row = Dfa.DEAD;
+
+    public Lexer(Dfa dfa, Text text) {
+        this(dfa, text, 0, text.length());
+    }
+
+    //Scans only the tokens that start in [from, stop), e.g. one piece of a text split up between
+    //threads. The last one may still run past stop, end() then says where it did end
+    //Line numbers start again at 1 from from
+    public Lexer(Dfa dfa, Text text, int from, int stop) {
+        this.dfa = dfa;
+        this.text = text;
+        this.length = text.length();
+        this.stop = stop;
+        this.buffer = new char[Math.min(BUFFER, Math.max(stop - from, 1))];
+        this.bufferStart = from;
+        this.start = from;
+        this.end = from;
+    }
+
+    //The kind of the next token, longest match first. Blanks and SKIP tokens are passed over,
+    //a character no token starts with comes back alone as an ERROR without a message
+    public int next() {
+        final byte[] classes = dfa.classes;
+        final boolean[] blanks = dfa.blanks;
+        final int[] table = dfa.table;
+        final int otherClass = dfa.otherClass;
+
+        int position = end;
+        char[] chars = buffer;
+        int base = bufferStart;
+        int limit = base + filled;
+        for (;;) {
+            //the fast path: white space between tokens is skipped without going through the table
+            while (position < stop) {
+                if (position >= limit) {
+                    if (!fill(position)) break;
+                    chars = buffer;
+                    base = bufferStart;
+                    limit = base + filled;
+                }
+
+                char c = chars[position - base];
+                if (c >= 256 || !blanks[c]) break;
+                if (c == '\n') line++;
+                position++;
+            }
+
+            start = position;
+            if (position >= stop) {
+                end = position;
+                return Dfa.END;
+            }
+
+            //states are row offsets into the table, an accepting state comes negated (see Dfa)
+            int state = dfa.start;
+            int newlines = 0;
+            int accepted = Dfa.DEAD;
+            int acceptedEnd = position;
+            int acceptedNewlines = 0;
+            for (;;) {
+                if (position >= limit) {
+                    if (!fill(start)) break;
+                    chars = buffer;
+                    base = bufferStart;
+                    limit = base + filled;
+                }
+
+                char c = chars[position - base];
+                int next = table[state + (c < 256 ? classes[c] : otherClass)];
+                if (next == Dfa.DEAD) break;
+
+                position++;
+                if (c == '\n') newlines++;
+                if (next < 0) {
+                    state = -next;
+                    accepted = state;
+                    acceptedEnd = position;
+                    acceptedNewlines = newlines;
+                } else {
+                    state = next;
+                }
+            }
+
+            int kind;
+            if (state == accepted && position < length) {
+                //the usual case, the scan stopped right at the end of a token
+                row = accepted >> dfa.shift;
+                kind = dfa.kinds[row];
+            } else if (position >= length && table[state + dfa.endClass] < 0) {
+                //past the end only an end of text transition can still lead somewhere, e.g. an unterminated string
+                row = -table[state + dfa.endClass] >> dfa.shift;
+                kind = dfa.kinds[row];
+                acceptedEnd = position;
+                acceptedNewlines = newlines;
+            } else if (dfa.stopKinds[state >> dfa.shift] != Dfa.NONE) {
+                row = state >> dfa.shift;
+                kind = dfa.stopKinds[row];
+                acceptedEnd = position;
+                acceptedNewlines = newlines;
+            } else if (accepted != Dfa.DEAD) {
+                row = accepted >> dfa.shift;
+                kind = dfa.kinds[row];
+            } else {
+                //no token starts here, give up on just this character
+                row = Dfa.DEAD;
+                if (chars[start - base] == '\n') line++;
+                end = start + 1;
+                return Dfa.ERROR;
+            }
+
+            position = acceptedEnd;
+            line += acceptedNewlines;
+            if (kind == Dfa.SKIP) continue;
+
+            end = position;
+            return kind;
+        }
+    }
+
+    //Reads the next block after the buffer, keeping the chars from keep on
+    //false at the end of the text
+    private boolean fill(int keep) {
+        //moveTo() may have gone past the buffer
+        int from = Math.max(bufferStart + filled, keep);
+        if (from >= length) return false;
+
+        int kept = from - keep;
+        System.arraycopy(buffer, keep - bufferStart, buffer, 0, kept);
+        if (kept == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+
+        int count = Math.min(buffer.length - kept, length - from);
+        text.read(from, buffer, kept, count);
+        bufferStart = keep;
+        filled = kept + count;
+        return true;
+    }
+
+    //the next token starts at position instead, e.g. after an error the front end skipped itself
+    public void moveTo(int position) {
+        end = position;
+    }
+
+    public int start() {
+        return start;
+    }
+
+    public int end() {
+        return end;
+    }
+
+    //the line at the end of the last token
+    public int line() {
+        return line;
+    }
+
+    //why the last ERROR is not a token
+    public String message() {
+        return dfa.messages[row];
+    }
+}
@@ -0,0 +1,25 @@
+package lexer;
+
+//The characters a Lexer scans
+//bisaya.Source hands out UTF-8 bytes, a plain String hands out its chars
+//The Lexer copies them into its own buffer a block at a time and scans the buffer
+public interface Text {
+    int length();
+
+    //copies the count chars from index on into chars, starting at offset
+    void read(int index, char[] chars, int offset, int count);
+
+    static Text of(String source) {
+        return new Text() {
+            @Override
+            public int length() {
+                return source.length();
+            }
+
+            @Override
+            public void read(int index, char[] chars, int offset, int count) {
+                source.getChars(index, index + count, chars, offset);
+            }
+        };
+    }
+}
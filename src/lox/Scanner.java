@@ -5,6 +5,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import lexer.Dfa;
+import lexer.Lexer;
+import lexer.Text;
+
 import static lox.TokenType.*;
 
 class Scanner {
@@ -34,6 +38,76 @@ class Scanner {
         keywords.put("true",   TRUE);
         keywords.put("var",    VAR);
         keywords.put("while",  WHILE);
+
+        DFA = tokens(keywords);
+    }
+
+    private static final TokenType[] TYPES = TokenType.values();
+
+    //The tokens of the language, compiled once into the tables of the shared lexer
+    private static final Dfa DFA;
+
+    private static Dfa tokens(Map<String, TokenType> keywords) {
+        Dfa.Builder dfa = new Dfa.Builder();
+
+        dfa.literal("(", LEFT_PAREN.ordinal());
+        dfa.literal(")", RIGHT_PAREN.ordinal());
+        dfa.literal("{", LEFT_BRACE.ordinal());
+        dfa.literal("}", RIGHT_BRACE.ordinal());
+        dfa.literal(",", COMMA.ordinal());
+        dfa.literal(".", DOT.ordinal());
+        dfa.literal("-", MINUS.ordinal());
+        dfa.literal("+", PLUS.ordinal());
+        dfa.literal(";", SEMICOLON.ordinal());
+        dfa.literal("*", STAR.ordinal());
+
+        //Special cases like (!=, ==, >=, <=)
+        dfa.literal("!", BANG.ordinal());
+        dfa.literal("!=", BANG_EQUAL.ordinal());
+        dfa.literal("=", EQUAL.ordinal());
+        dfa.literal("==", EQUAL_EQUAL.ordinal());
+        dfa.literal("<", LESS.ordinal());
+        dfa.literal("<=", LESS_EQUAL.ordinal());
+        dfa.literal(">", GREATER.ordinal());
+        dfa.literal(">=", GREATER_EQUAL.ordinal());
+
+        //Dvision is a spceial case because '/' might also be '//' which is a comment
+        dfa.literal("/", SLASH.ordinal());
+        int comment = dfa.literal("//", Dfa.SKIP);
+        dfa.onAnyBut(comment, "\n", comment);
+
+        //Ignoring whitespace, new lines are counted by the lexer
+        dfa.blanks(" \r\t\n");
+
+        //String literal
+        int string = dfa.state();
+        int unterminated = dfa.state();
+        dfa.on(dfa.start(), "\"", string)
+                .onAnyBut(string, "\"", string)
+                .on(string, "\"", dfa.state(STRING.ordinal()))
+                .onEnd(string, unterminated)
+                .fail(unterminated, "Unterminated string");
+
+        //Number literal, the '.' is only taken with a digit after it
+        int number = dfa.state(NUMBER.ordinal());
+        int dot = dfa.state();
+        int fraction = dfa.state(NUMBER.ordinal());
+        dfa.on(dfa.start(), '0', '9', number).on(number, '0', '9', number)
+                .on(number, ".", dot)
+                .on(dot, '0', '9', fraction).on(fraction, '0', '9', fraction);
+
+        //For identifiers like (myVariable, averagevariable) inshort variable names or function names
+        int identifier = dfa.state(IDENTIFIER.ordinal());
+        dfa.on(dfa.start(), 'a', 'z', identifier).on(dfa.start(), 'A', 'Z', identifier).on(dfa.start(), "_", identifier)
+                .on(identifier, 'a', 'z', identifier).on(identifier, 'A', 'Z', identifier).on(identifier, "_", identifier)
+                .on(identifier, '0', '9', identifier);
+
+        //reserved words, each one a path through the identifier states
+        for (Map.Entry<String, TokenType> keyword : keywords.entrySet()) {
+            dfa.literal(keyword.getKey(), keyword.getValue().ordinal());
+        }
+
+        return dfa.build();
     }
 
     //helpers in scanning
@@ -47,100 +121,37 @@ class Scanner {
     }
 
     List<Token> scanTokens() {
-        while (!isAtEnd()) {
-            // We are at the beginning of the next lexeme.
-            start = current;
-            scanToken();
+        Lexer lexer = new Lexer(DFA, Text.of(source));
+        for (int kind = lexer.next(); kind != Dfa.END; kind = lexer.next()) {
+            start = lexer.start();
+            current = lexer.end();
+            line = lexer.line();
+
+            if (kind == Dfa.ERROR) {
+                //Scanning other symbols like @#^
+                Lox.error(line, lexer.message() != null ? lexer.message() : "Unexpected character.");
+                continue;
+            }
+
+            TokenType type = TYPES[kind];
+            switch (type) {
+                case STRING: string(); break;
+                case NUMBER: number(); break;
+                default: addToken(type); break;
+            }
         }
 
         //Appends one final “end of file” token
         //this is important ensuring the parses knows the end of the input
+        line = lexer.line();
         tokens.add(new Token(EOF, "", null, line));
         return tokens;
     }
 
-    private void scanToken() {
-        char c = advance();
-        switch (c) {
-            case '(': addToken(LEFT_PAREN); break;
-            case ')': addToken(RIGHT_PAREN); break;
-            case '{': addToken(LEFT_BRACE); break;
-            case '}': addToken(RIGHT_BRACE); break;
-            case ',': addToken(COMMA); break;
-            case '.': addToken(DOT); break;
-            case '-': addToken(MINUS); break;
-            case '+': addToken(PLUS); break;
-            case ';': addToken(SEMICOLON); break;
-            case '*': addToken(STAR); break;
-            //Special cases like (!=, ==, >=, <=)
-            case '!':
-                addToken(match('=') ? BANG_EQUAL : BANG);
-                break;
-            case '=':
-                addToken(match('=') ? EQUAL_EQUAL : EQUAL);
-                break;
-            case '<':
-                addToken(match('=') ? LESS_EQUAL : LESS);
-                break;
-            case '>':
-                addToken(match('=') ? GREATER_EQUAL : GREATER);
-                break;
-            //Dvision is a spceial case because '/' might also be '//' which is a comment
-            case '/':
-                if (match('/')) {
-                    // A comment goes until the end of the line.
-                    while (peek() != '\n' && !isAtEnd()){
-                        advance();
-                    }
-                } else {
-                    addToken(SLASH);
-                }
-                break;
-            //Ignoring whitespace
-            case ' ':
-            case '\r':
-            case '\t':
-                break;
-            //Proceed to the next line
-            case '\n':
-                line++;
-                break;
-            //String literal
-            case '"': string(); break;
-            //Scanning other symbols like @#^
-            default:
-                if (isDigit(c)) {
-                    number();
-                } else if (isAlpha(c)) {
-                    //Check first through this function if the scanned text is a reserved word or an identifier
-                    identifier();
-                } else {
-                    Lox.error(line, "Unexpected character.");
-                }
-                break;
-        }
-    }
-
     //LITERALS HERE!!!!-------------------------------------------------------------------------
 
     //For string literal
     private void string(){
-        while(peek() != '"' && !isAtEnd()){
-            if(peek() == '\n'){
-                line++;
-            }
-
-            advance();
-        }
-
-        if(isAtEnd()){
-            Lox.error(line, "Unterminated string");
-            return;
-        }
-
-        //For the closing ""
-        advance();
-
         //Trimming the string excluding the surrounding quotes
         String value =  source.substring(start + 1, current - 1);
         addToken(STRING, value);
@@ -148,83 +159,10 @@ class Scanner {
 
     //For number literal
     private void number(){
-        while(isDigit(peek())){
-            advance();
-        }
-
-        if(peek() == '.' && isDigit(peekNext()) ){
-            //Consume now the '.'. Safe to move forward
-            advance();
-
-            //Consume remaing decimal digits
-            while(isDigit(peek())){
-                advance();
-            }
-        }
-
         //SUGGESTION: Implement double parsing yourself but it is time consuming
         addToken(NUMBER, Double.parseDouble(source.substring(start, current)));
     }
 
-    //For identifiers like (myVariable, averagevariable) inshort variable names or function names
-    private void identifier() {
-        while (isAlphaNumeric(peek())){
-            advance();
-        }
-
-        String text = source.substring(start, current);
-
-        //Check from the reserved keywords if the scanned text is found there
-        TokenType type = keywords.get(text);
-        if (type == null) {
-            type = IDENTIFIER;
-        }
-
-        addToken(type);
-    }
-
-
-    //HELPER FUNCTIONS HERE!!!!------------------------------------------------------------------
-    private boolean isAlpha(char c) {
-        return (c >= 'a' && c <= 'z') ||
-                (c >= 'A' && c <= 'Z') ||
-                c == '_';
-    }
-    private boolean isAlphaNumeric(char c) {
-        return isAlpha(c) || isDigit(c);
-    }
-
-    //To know when to stop scanning
-    private boolean isAtEnd() {
-        return current >= source.length();
-    }
-
-    //Proceed to next character
-    private char advance() {
-        return source.charAt(current++);
-    }
-
-    //To check for special tokens like !=, ==, >=, <=
-    //Scanner might read them as single character which is not ideal
-    private boolean match(char expected) {
-        if (isAtEnd()) return false;
-        if (source.charAt(current) != expected) return false;
-
-        current++;
-        return true;
-    }
-
-    //Return current character
-    private char peek() {
-        if (isAtEnd()) return '\0';
-        return source.charAt(current);
-    }
-
-    //Return the next chracter (current + 1)
-    private char peekNext() {
-        if (current + 1 >= source.length()) return '\0';
-        return source.charAt(current + 1);
-    }
 
     //Adding a token to the list (2 ways. For example from the expression var x = 10;
     //1 var does not have an actual value
@@ -237,9 +175,5 @@ class Scanner {
         tokens.add(new Token(type, text, literal, line));
     }
 
-    private boolean isDigit(char c) {
-        return c >= '0' && c <= '9';
-    }
-
 
 }
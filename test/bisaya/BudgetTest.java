@@ -0,0 +1,148 @@
+package bisaya;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+//The step limit, the time limit and cancel() end a run the same way on every backend: after the
+//same number of loop iterations, with the same output before it and the same error at the same line
+//The step limits are set right at and one below what the programs need, so one iteration counted
+//more or less anywhere shows up
+final class BudgetTest {
+    //ALANG SA, SAMTANG and a nested pair, 2 + 3 + 2 + (1 + 2) = 10 iterations
+    private static final String LOOPS = "SUGOD\n"
+            + "MUGNA NUMERO x = 0, y = 0\n"
+            + "ALANG SA (MUGNA NUMERO i = 0, i < 2, i++)\n"
+            + "PUNDOK{\n"
+            + "IPAKITA: \"i\" & i\n"
+            + "}\n"
+            + "SAMTANG (y < 3)\n"
+            + "PUNDOK{\n"
+            + "y = y + 1\n"
+            + "IPAKITA: \"y\" & y\n"
+            + "}\n"
+            + "ALANG SA (x = 0, x < 2, x++)\n"
+            + "PUNDOK{\n"
+            + "MUGNA NUMERO z = 0\n"
+            + "SAMTANG (z < 1 + x)\n"
+            + "PUNDOK{\n"
+            + "z++\n"
+            + "}\n"
+            + "IPAKITA: \"z\" & z\n"
+            + "}\n"
+            + "KATAPUSAN";
+
+    //long enough for the hot loop tiers of the Interpreter to take over
+    private static final String HOT = "SUGOD\n"
+            + "MUGNA NUMERO sum = 0\n"
+            + "ALANG SA (MUGNA NUMERO i = 0, i < 100000, i++)\n"
+            + "PUNDOK{\n"
+            + "sum = sum + i\n"
+            + "}\n"
+            + "MUGNA TIPIK d = 0\n"
+            + "SAMTANG (d < 50000)\n"
+            + "PUNDOK{\n"
+            + "d = d + 1\n"
+            + "}\n"
+            + "IPAKITA: sum & \" \" & d\n"
+            + "KATAPUSAN";
+
+    private static final String ENDLESS = "SUGOD\n"
+            + "MUGNA NUMERO x = 0\n"
+            + "SAMTANG (x >= 0)\n"
+            + "PUNDOK{\n"
+            + "x = 1\n"
+            + "}\n"
+            + "KATAPUSAN";
+
+    public static void main(String[] args) {
+        steps("loops", LOOPS, 10, "i0i1y1y2y3z1z2\n[No Error]\n");
+        steps("hot loops", HOT, 150000, "704982704 50000\n[No Error]\n");
+        time();
+        cancel();
+        cancelBeforeRun();
+        Tests.done("BudgetTest");
+    }
+
+    private static void steps(String what, String source, long iterations, String output) {
+        for (long limit : new long[] {0, iterations, iterations - 1, 1}) {
+            Tests.Run reference = Tests.run(BisayaEngine.Backend.INTERPRETER, source, "", context -> context.setStepLimit(limit));
+            if (limit == 0 || limit >= iterations) {
+                Tests.equal(what + " within " + limit + " steps", output, reference.toString());
+            } else {
+                Tests.check(what + " stopped at " + limit + " steps", !reference.ok
+                        && reference.errors.startsWith("Step limit of " + limit + " loop iterations reached.\n"));
+            }
+
+            for (BisayaEngine.Backend backend : BisayaEngine.Backend.values()) {
+                Tests.equal(what + " with " + limit + " steps on " + backend, reference.toString(),
+                        Tests.run(backend, source, "", context -> context.setStepLimit(limit)).toString());
+            }
+        }
+    }
+
+    private static void time() {
+        for (BisayaEngine.Backend backend : BisayaEngine.Backend.values()) {
+            long start = System.nanoTime();
+            Tests.Run run = Tests.run(backend, ENDLESS, "", context -> context.setTimeLimit(200));
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            Tests.equal("time limit on " + backend, "Time limit of 200 ms reached.\n[line 3]\n", run.toString());
+            Tests.check("time limit on " + backend + " took " + millis + " ms", millis >= 200 && millis < 5000);
+        }
+    }
+
+    private static void cancel() {
+        for (BisayaEngine.Backend backend : BisayaEngine.Backend.values()) {
+            BisayaEngine engine = new BisayaEngine(backend, false, null);
+            Tests.Run run = Tests.run(engine, ENDLESS, "", context -> {
+                Thread canceller = new Thread(() -> {
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    context.cancel();
+                });
+                canceller.setDaemon(true);
+                canceller.start();
+            });
+            Tests.equal("cancel on " + backend, "Program was cancelled.\n[line 3]\n", run.toString());
+        }
+    }
+
+    //a cancel() between compile() and run() stops that run at its first loop iteration, and only
+    //that run: the one after it is not cancelled, not even after a run without loops
+    private static void cancelBeforeRun() {
+        for (BisayaEngine.Backend backend : BisayaEngine.Backend.values()) {
+            StringWriter out = new StringWriter();
+            StringBuilder errors = new StringBuilder();
+            BisayaContext context = new BisayaEngine(backend, false, null).newContext(new StringReader(""), out, new ErrorReporter() {
+                @Override
+                public void error(int line, String where, String message) {
+                    errors.append(message).append('\n');
+                }
+
+                @Override
+                public void runtimeError(int line, String message) {
+                    errors.append(message).append("\n[line ").append(line).append("]\n");
+                }
+            });
+            //ends ENDLESS with another error when the cancel() is lost, instead of never
+            context.setStepLimit(1_000_000);
+            BisayaProgram endless = context.compile(ENDLESS);
+            BisayaProgram loops = context.compile(LOOPS);
+            BisayaProgram straight = context.compile("SUGOD\nIPAKITA: \"x\"\nKATAPUSAN");
+
+            context.cancel();
+            Tests.check("cancelled before run on " + backend, !context.run(endless));
+            Tests.equal("cancelled before run on " + backend, "Program was cancelled.\n[line 3]\n", errors.toString());
+            Tests.check("run after a cancelled one on " + backend, context.run(loops));
+
+            context.cancel();
+            Tests.check("cancelled run without loops on " + backend, context.run(straight));
+            Tests.check("run after it on " + backend, context.run(loops));
+            Tests.equal("output on " + backend, "i0i1y1y2y3z1z2\n[No Error]\nx\n[No Error]\ni0i1y1y2y3z1z2\n[No Error]\n", out.toString());
+            Tests.equal("errors on " + backend, "Program was cancelled.\n[line 3]\n", errors.toString());
+        }
+    }
+}
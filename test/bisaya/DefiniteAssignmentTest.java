@@ -0,0 +1,52 @@
+package bisaya;
+
+//A variable declared without a value can only be read where every way there assigned it
+//A loop body counts only when the loop surely runs it: an ALANG SA whose condition is true on
+//the way in from literals and the literals its initializer gives, or a loop with no condition.
+//Where the first test depends on anything else the body might never run
+final class DefiniteAssignmentTest {
+    private static final String UNASSIGNED = "Ang sulodanan 'x' wala pa matagaan og bili.";
+
+    public static void main(String[] args) {
+        runs("ALANG SA that declares its variable",
+                "MUGNA NUMERO x\nALANG SA (MUGNA NUMERO i = 0, i < 3, i++)\nPUNDOK{\nx = i\n}\nIPAKITA: x\n",
+                "2");
+        runs("ALANG SA over a variable declared before",
+                "MUGNA NUMERO x, i\nALANG SA (i = 1, i <= 1, i++)\nPUNDOK{\nx = i * 10\n}\nIPAKITA: x\n",
+                "10");
+        runs("assigned by the increment",
+                "MUGNA NUMERO x\nALANG SA (MUGNA NUMERO i = 0, i < 2, x = i++)\nPUNDOK{\nIPAKITA: i\n}\nIPAKITA: x\n",
+                "011");
+        runs("negative start and UG",
+                "MUGNA TIPIK x\nALANG SA (MUGNA NUMERO i = -2, i < 0 UG (i >= -5), i++)\nPUNDOK{\nKUNG (i > 0)\nPUNDOK{\nx = 1\n}\nKUNG WALA\nPUNDOK{\nx = i / 4\n}\n}\nIPAKITA: x\n",
+                "-0.25");
+
+        rejected("SAMTANG over a variable",
+                "MUGNA NUMERO x, y = 0\nSAMTANG (y < 3)\nPUNDOK{\nx = y\ny++\n}\nIPAKITA: x\n", 8);
+        rejected("ALANG SA that never runs",
+                "MUGNA NUMERO x\nALANG SA (MUGNA NUMERO i = 5, i < 3, i++)\nPUNDOK{\nx = i\n}\nIPAKITA: x\n", 7);
+        rejected("ALANG SA that starts from a variable",
+                "MUGNA NUMERO x, n = 0\nALANG SA (MUGNA NUMERO i = n, i < 3, i++)\nPUNDOK{\nx = i\n}\nIPAKITA: x\n", 7);
+        rejected("assigned in one branch of the body",
+                "MUGNA NUMERO x\nALANG SA (MUGNA NUMERO i = 0, i < 3, i++)\nPUNDOK{\nKUNG (i > 1)\nPUNDOK{\nx = i\n}\n}\nIPAKITA: x\n", 10);
+        rejected("read in the condition before the body",
+                "MUGNA NUMERO x\nALANG SA (MUGNA NUMERO i = 0, i < x, i++)\nPUNDOK{\nx = i\n}\n", 3);
+
+        Tests.done("DefiniteAssignmentTest");
+    }
+
+    private static String program(String body) {
+        return "SUGOD\n" + body + "KATAPUSAN";
+    }
+
+    private static void runs(String what, String body, String output) {
+        for (BisayaEngine.Backend backend : BisayaEngine.Backend.values()) {
+            Tests.equal(what + " on " + backend, output + "\n[No Error]\n", Tests.run(backend, program(body)).toString());
+        }
+    }
+
+    private static void rejected(String what, String body, int line) {
+        Tests.equal(what, "[line " + line + "] Error at 'x': " + UNASSIGNED + "\n",
+                Tests.run(BisayaEngine.Backend.INTERPRETER, program(body)).toString());
+    }
+}
@@ -0,0 +1,36 @@
+package bisaya;
+
+//Operands are evaluated left to right and a variable on the left gives its value from before the
+//right operand assigns or steps it, on every backend, in every place the VM compiles an operator:
+//arithmetic, comparisons, ==, & and + on strings, and the conditions of KUNG and the loops
+final class EvaluationOrderTest {
+    public static void main(String[] args) {
+        expect("assignment on the right",
+                "MUGNA NUMERO a = 1, b\nb = a + (a = 5)\nIPAKITA: b & \" \" & a\n",
+                "6 5\n");
+        expect("postfix on the right",
+                "MUGNA TIPIK x = 1, y\ny = x + x++\nIPAKITA: y & \" \" & x\n",
+                "2 2\n");
+        expect("postfix deeper on the right",
+                "MUGNA NUMERO a = 1, b\nb = a + (2 + (a = 3))\nIPAKITA: b & \" \" & a\n",
+                "6 3\n");
+        expect("comparison and equality",
+                "MUGNA NUMERO a = 1\nIPAKITA: (a < (a = 0)) & (a <> (a = 2)) & (a == (a = 7))\n",
+                "DILIOODILI\n");
+        expect("strings",
+                "MUGNA LETRA c = 'a'\nMUGNA NUMERO n = 1\nIPAKITA: c & (c = 'b') & $ & \"\" + n + n++ & $ & n & (n = 9)\n",
+                "ab\n11.0\n29\n");
+        expect("conditions of KUNG and SAMTANG",
+                "MUGNA NUMERO i = 0, j = 1\nKUNG (i < (i = 1))\nPUNDOK{\nIPAKITA: \"kung\" & $\n}\n"
+                        + "i = 0\nSAMTANG (i < (i = j))\nPUNDOK{\nKUNG (j < 3)\nPUNDOK{\nj = j + 1\n}\nIPAKITA: i & $\n}\n",
+                "kung\n1\n2\n3\n\n");
+        Tests.done("EvaluationOrderTest");
+    }
+
+    private static void expect(String what, String body, String output) {
+        String source = "SUGOD\n" + body + "KATAPUSAN";
+        for (BisayaEngine.Backend backend : BisayaEngine.Backend.values()) {
+            Tests.equal(what + " on " + backend, output + "[No Error]\n", Tests.run(backend, source).toString());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package bisaya;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+//Runs every sample program in src/bisaya/Utils on every backend and compares what it printed, the
+//errors included, with test/bisaya/golden/<name>.out. DAWAT reads <name>.in when there is one
+//The golden files are what the interpreter at 2b4e077, before the engine API, printed for each
+//sample: its output on stdout then its errors on stderr, without the prompts and debug lines of
+//its DAWAT and stringify(), with one reader for all of stdin, and stopped after a syntax error
+//Run from the root of the repository. With --update the Interpreter's output is written as the
+//new golden files instead, check the diff before committing them
+final class GoldenTest {
+    private static final Path SAMPLES = Paths.get("src", "bisaya", "Utils");
+    private static final Path GOLDEN = Paths.get("test", "bisaya", "golden");
+
+    public static void main(String[] args) throws IOException {
+        boolean update = args.length > 0 && args[0].equals("--update");
+
+        List<Path> samples;
+        try (Stream<Path> files = Files.list(SAMPLES)) {
+            samples = files.filter(file -> file.toString().endsWith(".txt")).sorted().collect(Collectors.toList());
+        }
+        Tests.check("samples found in " + SAMPLES, !samples.isEmpty());
+
+        for (Path sample : samples) {
+            String name = sample.getFileName().toString().replaceFirst("\\.txt$", "");
+            String source = read(sample);
+            Path in = GOLDEN.resolve(name + ".in");
+            String input = Files.exists(in) ? read(in) : "";
+            Path out = GOLDEN.resolve(name + ".out");
+
+            if (update) {
+                Files.createDirectories(GOLDEN);
+                Files.write(out, Tests.run(BisayaEngine.Backend.INTERPRETER, source, input, context -> {}).toString().getBytes(StandardCharsets.UTF_8));
+                continue;
+            }
+
+            if (!Files.exists(out)) {
+                Tests.check(name + ": no " + out + ", run with --update", false);
+                continue;
+            }
+            String expected = read(out);
+            for (BisayaEngine.Backend backend : BisayaEngine.Backend.values()) {
+                Tests.equal(name + " on " + backend, expected, Tests.run(backend, source, input, context -> {}).toString());
+            }
+        }
+        Tests.done("GoldenTest");
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,95 @@
+package bisaya;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+//Every backend charges a program the same memory (see Budget): Budget.frameBytes() for each scope
+//every time it is entered, a loop body once per iteration and a scoped ALANG SA once, and every
+//string & and + make. So the peak and the total of a run are the same numbers everywhere, run
+//after run, and the memory and string limits end a run at the same place
+final class MemoryTest {
+    private static final long ONE_SLOT = Budget.frameBytes(1);
+    private static final long TWO_SLOTS = Budget.frameBytes(2);
+
+    //a string of two characters and its array
+    private static final long TWO_CHARACTERS = 24 + 16 + 2 * 2;
+
+    public static void main(String[] args) {
+        charged("a scoped block",
+                "KUNG (OO)\nPUNDOK{\nMUGNA NUMERO a = 1, b = 2\n}\n",
+                TWO_SLOTS, TWO_SLOTS);
+        charged("a SAMTANG body, once per iteration",
+                "MUGNA NUMERO x = 0\nSAMTANG (x < 3)\nPUNDOK{\nMUGNA NUMERO y = x\nx = y + 1\n}\n",
+                ONE_SLOT, 3 * ONE_SLOT);
+        charged("a scoped ALANG SA, once for the loop",
+                "ALANG SA (MUGNA NUMERO i = 0, i < 3, i++)\nPUNDOK{\nMUGNA NUMERO z = i\n}\n",
+                2 * ONE_SLOT, 4 * ONE_SLOT);
+        charged("blocks without MUGNA",
+                "MUGNA NUMERO x = 0\nALANG SA (x = 0, x < 3, x++)\nPUNDOK{\nKUNG (x > 0)\nPUNDOK{\nx = x\n}\n}\n",
+                0, 0);
+        charged("a string from &",
+                "MUGNA LETRA c = 'a'\nIPAKITA: c & c\n",
+                TWO_CHARACTERS, TWO_CHARACTERS);
+        charged("strings in a loop body",
+                "MUGNA NUMERO x = 0\nSAMTANG (x < 3)\nPUNDOK{\nMUGNA NUMERO y = x\nIPAKITA: \"n\" & y\nx = y + 1\n}\n",
+                ONE_SLOT + TWO_CHARACTERS, 3 * (ONE_SLOT + TWO_CHARACTERS));
+
+        memoryLimit("a loop of frames",
+                "MUGNA NUMERO x = 0\nSAMTANG (x < 3)\nPUNDOK{\nMUGNA NUMERO y = x\nx = y + 1\n}\nIPAKITA: x\n");
+        memoryLimit("a loop of strings",
+                "MUGNA NUMERO x = 0\nSAMTANG (x < 3)\nPUNDOK{\nMUGNA NUMERO y = x\nIPAKITA: \"n\" & y\nx = y + 1\n}\n");
+        stringLimit();
+        Tests.done("MemoryTest");
+    }
+
+    private static String program(String body) {
+        return "SUGOD\n" + body + "KATAPUSAN";
+    }
+
+    //twice in one context on every backend, the second run must not get any of the first for free
+    private static void charged(String what, String body, long peak, long total) {
+        String source = program(body);
+        for (BisayaEngine.Backend backend : BisayaEngine.Backend.values()) {
+            BisayaContext context = new BisayaEngine(backend, false, null)
+                    .newContext(new StringReader(""), new StringWriter(), ErrorReporter.console());
+            BisayaProgram program = context.compile(source);
+            for (int run = 1; run <= 2; run++) {
+                Tests.check(what + " runs on " + backend, context.run(program));
+                Tests.equal(what + ", peak of run " + run + " on " + backend, peak, context.peakMemory());
+                Tests.equal(what + ", total of run " + run + " on " + backend, total, context.allocatedMemory());
+            }
+        }
+    }
+
+    //right at the peak the program runs, a byte under it every backend stops it at the same place
+    private static void memoryLimit(String what, String body) {
+        String source = program(body);
+        Tests.Run unlimited = Tests.run(BisayaEngine.Backend.INTERPRETER, source);
+        long peak = unlimited.peakMemory;
+
+        for (long limit : new long[] {peak, peak - 1}) {
+            Tests.Run reference = Tests.run(BisayaEngine.Backend.INTERPRETER, source, "", context -> context.setMemoryLimit(limit));
+            if (limit == peak) {
+                Tests.equal(what + " within " + limit + " bytes", unlimited.toString(), reference.toString());
+            } else {
+                Tests.check(what + " stopped at " + limit + " bytes", !reference.ok
+                        && reference.errors.startsWith("Memory limit of " + limit + " bytes reached.\n"));
+            }
+
+            for (BisayaEngine.Backend backend : BisayaEngine.Backend.values()) {
+                Tests.equal(what + " with " + limit + " bytes on " + backend, reference.toString(),
+                        Tests.run(backend, source, "", context -> context.setMemoryLimit(limit)).toString());
+            }
+        }
+    }
+
+    private static void stringLimit() {
+        String source = program("MUGNA NUMERO n = 12\nIPAKITA: \"ab\" & $\nIPAKITA: \"abc\" + \"d\" & n\n");
+        for (BisayaEngine.Backend backend : BisayaEngine.Backend.values()) {
+            Tests.equal("string of 6 with a limit of 6 on " + backend, "ab\nabcd12\n[No Error]\n",
+                    Tests.run(backend, source, "", context -> context.setStringLimit(6)).toString());
+            Tests.equal("string of 6 with a limit of 5 on " + backend, "ab\nString of 6 characters is over the limit of 5.\n[line 4]\n",
+                    Tests.run(backend, source, "", context -> context.setStringLimit(5)).toString());
+        }
+    }
+}
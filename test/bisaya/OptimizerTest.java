@@ -0,0 +1,123 @@
+package bisaya;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+//What the Optimizer leaves of each IPAKITA, and that a program runs the same with and without it
+//on every backend: the same output, the same errors at the same lines, the same memory, and the
+//same string and memory limit errors
+final class OptimizerTest {
+    public static void main(String[] args) {
+        //folded, Groupings dropped
+        tree("MUGNA NUMERO n = 2\nIPAKITA: 1 + 2 * 3\nIPAKITA: (1 + 2) + n\nIPAKITA: -(2 + 3)\nIPAKITA: 7 % 2 == 1.0\n",
+                "7.0", "(+ 3 n)", "-5.0", "true");
+        tree("IPAKITA: 1 < 2 UG (3 >= 4)\nIPAKITA: 'a' <> 'b'\n",
+                "(UG true false)", "true");
+
+        //identities that give x exactly, and ones that would not
+        tree("MUGNA NUMERO n = 2\nMUGNA TIPIK d = 1.5\nIPAKITA: n + 0\nIPAKITA: 0 + n\nIPAKITA: d * 1\nIPAKITA: 1 * d\nIPAKITA: d / 1\nIPAKITA: d - 0\n",
+                "n", "n", "d", "d", "d", "d");
+        tree("MUGNA NUMERO n = 2\nMUGNA TIPIK d = 1.5\nIPAKITA: n * 1\nIPAKITA: n / 1\nIPAKITA: d + 0\nIPAKITA: 0 - d\nIPAKITA: 1 / d\n",
+                "(* n 1)", "(/ n 1)", "(+ d 0)", "(- 0 d)", "(/ 1 d)");
+
+        //a division by zero stays for the engines to throw, and only when it runs
+        tree("IPAKITA: 1 / 0\nIPAKITA: 5 % 0\nIPAKITA: 5.5 % (1 - 1)\n",
+                "(/ 1 0)", "(% 5 0)", "(% 5.5 0.0)");
+
+        //strings are made at run time, where the Budget sees them
+        tree("MUGNA LETRA c = 'x'\nIPAKITA: \"ab\" & \"cd\"\nIPAKITA: \"ab\" + 1\nIPAKITA: c & \"\"\nIPAKITA: 1 & 2\n",
+                "(& ab cd)", "(+ ab 1)", "(& c )", "(& 1 2)");
+
+        same("arithmetic",
+                "MUGNA NUMERO n = 2\nMUGNA TIPIK d = 1.5\n"
+                        + "IPAKITA: 1 + 2 * 3 & $ & (1 + 2) + n & $ & -(2 + 3) & $ & 7 % 2 & $ & -7 % 7\n"
+                        + "IPAKITA: $ & n + 0 & \" \" & d * 1 & \" \" & n * 1 & \" \" & d - 0 & \" \" & 10 / 4\n",
+                "", 0, 0);
+        same("division by zero in a branch that does not run",
+                "MUGNA NUMERO n = 2\nKUNG (n > 5)\nPUNDOK{\nIPAKITA: 1 / 0\n}\nIPAKITA: \"ok\"\n",
+                "", 0, 0);
+        same("division by zero",
+                "IPAKITA: \"a\"\nIPAKITA: 1 / 0\n",
+                "", 0, 0);
+        same("modulo by zero",
+                "MUGNA NUMERO n = 2\nIPAKITA: n\nIPAKITA: 5 % (n - 2)\nIPAKITA: 5 % 0\n",
+                "", 0, 0);
+        same("strings",
+                "MUGNA LETRA c = 'x'\nIPAKITA: \"ab\" & \"cd\" & $ & \"ab\" + 1 & $ & c & \"\" & $ & 1 & 2 & (1 < 2)\n",
+                "", 0, 0);
+
+        //a constant chain over the limit is stopped at the same & as without the Optimizer
+        String chain = "IPAKITA: \"ab\"\nIPAKITA: \"abcd\" & \"efgh\" & \"ij\"\n";
+        same("constant strings within the string limit", chain, "", 0, 10);
+        same("constant strings over the string limit", chain, "", 0, 9);
+        same("constant strings over the string limit at the first &", chain, "", 0, 7);
+        same("constant strings over the memory limit", chain, "", 58, 0);
+
+        Tests.done("OptimizerTest");
+    }
+
+    private static String program(String body) {
+        return "SUGOD\n" + body + "KATAPUSAN";
+    }
+
+    //the optimized IPAKITA expressions, as AstPrinter shows them
+    private static void tree(String body, String... expected) {
+        List<String> printed = new ArrayList<>();
+        AstPrinter printer = new AstPrinter();
+        for (Stmt stmt : compile(program(body), true)) {
+            if (stmt instanceof Stmt.Print) printed.add(printer.print(((Stmt.Print) stmt).expression));
+        }
+        Tests.equal("optimized " + body.replace("\n", "; "), String.join("\n", expected), String.join("\n", printed));
+    }
+
+    //optimized and not, with these limits (0 for none), on every backend
+    private static void same(String what, String body, String input, long memoryLimit, int stringLimit) {
+        String source = program(body);
+        String expected = null;
+        for (BisayaEngine.Backend backend : BisayaEngine.Backend.values()) {
+            String plain = run(backend, source, false, input, memoryLimit, stringLimit);
+            String optimized = run(backend, source, true, input, memoryLimit, stringLimit);
+            Tests.equal(what + " optimized on " + backend, plain, optimized);
+
+            //and every backend does the same
+            if (expected == null) expected = plain;
+            Tests.equal(what + " on " + backend, expected, plain);
+        }
+    }
+
+    //BisayaEngine.compile() without the cache, and with or without its last pass
+    private static List<Stmt> compile(String source, boolean optimize) {
+        Errors errors = new Errors(ErrorReporter.console());
+        List<Stmt> statements = new Parser(new Scanner(Source.of(source), errors).scanTokens(), errors).parse();
+        new Resolver(errors).resolve(statements);
+        new TypeChecker(errors).check(statements);
+        Tests.check("no compile errors in " + source, !errors.hadError);
+
+        if (optimize) new Optimizer().optimize(statements);
+        return statements;
+    }
+
+    //what the run printed and reported, then the memory it counted
+    private static String run(BisayaEngine.Backend backend, String source, boolean optimize, String input, long memoryLimit, int stringLimit) {
+        StringWriter out = new StringWriter();
+        StringBuilder errors = new StringBuilder();
+        BisayaContext context = new BisayaEngine(backend, false, null).newContext(new StringReader(input), out, new ErrorReporter() {
+            @Override
+            public void error(int line, String where, String message) {
+                errors.append("[line ").append(line).append("] Error").append(where).append(": ").append(message).append('\n');
+            }
+
+            @Override
+            public void runtimeError(int line, String message) {
+                errors.append(message).append("\n[line ").append(line).append("]\n");
+            }
+        });
+        context.setMemoryLimit(memoryLimit);
+        context.setStringLimit(stringLimit);
+
+        context.run(new BisayaProgram(compile(source, optimize)));
+        return out + "" + errors + "peak " + context.peakMemory() + ", allocated " + context.allocatedMemory() + "\n";
+    }
+}
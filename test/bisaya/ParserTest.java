@@ -0,0 +1,92 @@
+package bisaya;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//The Pratt loop in Parser.expression() builds the same trees as the chain of one method per
+//precedence level it replaced: = < & < O < UG < == <> < > >= < <= < + - % < * / < DILI - < ++,
+//all of them left associative but =, and the same errors. The trees below are what the parser
+//before it made, printed with AstPrinter
+final class ParserTest {
+    private static final String[][] TREES = {
+            {"x = y = 1 + 2", "(= x (= y (+ 1 2)))"},
+            {"x = a & b", "(= x (& a b))"},
+            {"a & b O c UG d", "(& a (O b (UG c d)))"},
+            {"a O b UG c O d", "(O (O a (UG b c)) d)"},
+            {"a UG b O c UG d", "(O (UG a b) (UG c d))"},
+            {"a == b <> c == d", "(== (<> (== a b) c) d)"},
+            {"a < b < c", "(< (< a b) c)"},
+            {"a >= b <= c > d", "(> (<= (>= a b) c) d)"},
+            {"a < b == c > d", "(== (< a b) (> c d))"},
+            {"1 + 2 * 3 - 4 / 5 % 6", "(% (- (+ 1 (* 2 3)) (/ 4 5)) 6)"},
+            {"a % b * c", "(% a (* b c))"},
+            {"a * b % c", "(% (* a b) c)"},
+            {"a - b - c", "(- (- a b) c)"},
+            {"a / b / c", "(/ (/ a b) c)"},
+            {"-a * -b", "(* (- a) (- b))"},
+            {"DILI a == b", "(== (DILI a) b)"},
+            {"- -a", "(- (- a))"},
+            {"DILI DILI a", "(DILI (DILI a))"},
+            {"x++ + y++", "(+ (post++ x) (post++ y))"},
+            {"-x++", "(- (post++ x))"},
+            {"x++ * 2", "(* (post++ x) 2)"},
+            {"(a & b) + c", "(+ (group (& a b)) c)"},
+            {"a + b & c + d", "(& (+ a b) (+ c d))"},
+            {"x = a < b UG c", "(= x (UG (< a b) c))"},
+            {"x = a & b O c", "(= x (& a (O b c)))"},
+            {"a & (x = b) & c", "(& (& a (group (= x b))) c)"},
+            {"-(a + b) * c", "(* (- (group (+ a b))) c)"},
+            {"a + -b * c % d", "(% (+ a (* (- b) c)) d)"},
+            {"a < -b UG DILI c O d == e & f", "(& (O (UG (< a (- b)) (DILI c)) (== d e)) f)"},
+            {"x = y++ + -z * (w = 2)", "(= x (+ (post++ y) (* (- z) (group (= w 2)))))"},
+    };
+
+    //the first error of each, as the parser before reported it
+    private static final String[][] ERRORS = {
+            {"1 = 2", "[line 2] Error at '=': Invalid assignment target."},
+            {"x++ = 2", "[line 2] Error at '=': Invalid assignment target."},
+            {"a + ", "[line 3] Error at 'KATAPUSAN': Expect expression."},
+            {"(a + b", "[line 3] Error at 'KATAPUSAN': Expect ')' after expression."},
+            {"a & & b", "[line 2] Error at '&': Expect expression."},
+    };
+
+    public static void main(String[] args) {
+        StringBuilder source = new StringBuilder("SUGOD\n");
+        for (String[] tree : TREES) {
+            source.append("IPAKITA: ").append(tree[0]).append('\n');
+        }
+        source.append("KATAPUSAN");
+
+        List<String> errors = new ArrayList<>();
+        List<Stmt> statements = parse(source.toString(), errors);
+        Tests.equal("no errors", "[]", errors.toString());
+        Tests.equal("statements", TREES.length, statements.size());
+
+        AstPrinter printer = new AstPrinter();
+        for (int i = 0; i < TREES.length && i < statements.size(); i++) {
+            Tests.equal(TREES[i][0], TREES[i][1], printer.print(((Stmt.Print) statements.get(i)).expression));
+        }
+
+        for (String[] error : ERRORS) {
+            errors.clear();
+            parse("SUGOD\nIPAKITA: " + error[0] + "\nKATAPUSAN", errors);
+            Tests.equal(error[0], error[1], errors.isEmpty() ? null : errors.get(0));
+        }
+        Tests.done("ParserTest");
+    }
+
+    private static List<Stmt> parse(String source, List<String> messages) {
+        Errors errors = new Errors(new ErrorReporter() {
+            @Override
+            public void error(int line, String where, String message) {
+                messages.add("[line " + line + "] Error" + where + ": " + message);
+            }
+
+            @Override
+            public void runtimeError(int line, String message) {
+                messages.add(message);
+            }
+        });
+        return new Parser(new Scanner(Source.of(source), errors).scanTokens(), errors).parse();
+    }
+}
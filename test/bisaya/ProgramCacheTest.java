@@ -0,0 +1,138 @@
+package bisaya;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+//A cache file that is cut short, has a flipped bit or claims more than it holds is a miss: the
+//script is parsed again, runs the same as without a cache and is stored anew
+//Nothing in a damaged file may throw, allocate what the file only claims to have, or load as
+//some other program
+final class ProgramCacheTest {
+    private static final String SOURCE = "SUGOD\n"
+            + "MUGNA NUMERO x = 3, y\n"
+            + "MUGNA TIPIK d = 1.5\n"
+            + "y = x * 2\n"
+            + "ALANG SA (MUGNA NUMERO i = 0, i < 3, i++)\n"
+            + "PUNDOK{\n"
+            + "KUNG (i <> 1 UG d > 1)\n"
+            + "PUNDOK{\n"
+            + "IPAKITA: \"i=\" & i & $\n"
+            + "}\n"
+            + "}\n"
+            + "IPAKITA: x + y & 'c' & (d > 2)\n"
+            + "KATAPUSAN";
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("bisaya-cache");
+        try {
+            test(directory);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(ProgramCacheTest::delete);
+            }
+        }
+        Tests.done("ProgramCacheTest");
+    }
+
+    private static void test(Path directory) throws IOException {
+        String expected = Tests.run(BisayaEngine.Backend.INTERPRETER, SOURCE).toString();
+        Tests.equal("program without a cache", "i=0\ni=2\n9cDILI\n[No Error]\n", expected);
+
+        //the first run stores the program, the next one loads it
+        Tests.equal("run that stores the program", expected, run(directory));
+        ProgramCache cache = new ProgramCache(directory);
+        String key = cache.key(Source.of(SOURCE));
+        Path file = directory.resolve(key);
+        Tests.check("cache file written", Files.isRegularFile(file));
+        Tests.check("cache file loads", cache.load(key) != null);
+        Tests.equal("run from the cache", expected, run(directory));
+        byte[] good = Files.readAllBytes(file);
+
+        for (int length = 0; length < good.length; length++) {
+            damaged(cache, key, file, "cut to " + length + " bytes", Arrays.copyOf(good, length));
+        }
+        for (int i = 0; i < good.length; i++) {
+            for (int bit = 0; bit < 8; bit++) {
+                byte[] flipped = good.clone();
+                flipped[i] ^= 1 << bit;
+                damaged(cache, key, file, "bit " + bit + " of byte " + i + " flipped", flipped);
+            }
+        }
+
+        //claims of 2^31-1 strings, or of one string that long, in a file a few bytes long, with a
+        //checksum that matches so the Reader gets to them
+        byte[] header = Arrays.copyOf(good, 8);
+        damaged(cache, key, file, "huge string count", concat(header, crcOf(HUGE), HUGE));
+        byte[] hugeString = concat(new byte[] {1}, HUGE);
+        damaged(cache, key, file, "huge string length", concat(header, crcOf(hugeString), hugeString));
+        byte[] trailing = concat(Arrays.copyOfRange(good, 12, good.length), new byte[] {0});
+        damaged(cache, key, file, "trailing byte", concat(header, crcOf(trailing), trailing));
+
+        //a run after every miss stored the program again
+        Files.write(file, good);
+        Tests.equal("a damaged file is rewritten", expected, run(directory));
+        List<Stmt> reloaded = cache.load(key);
+        Tests.check("rewritten file loads", reloaded != null);
+    }
+
+    //2^31-1 as a varint, the most a count can be
+    private static final byte[] HUGE = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+
+    private static void damaged(ProgramCache cache, String key, Path file, String what, byte[] bytes) throws IOException {
+        Files.write(file, bytes);
+        List<Stmt> statements;
+        try {
+            statements = cache.load(key);
+        } catch (RuntimeException | Error e) {
+            Tests.check(what + ": load threw " + e, false);
+            return;
+        }
+        Tests.check(what + ": is a miss", statements == null);
+
+        //only run the engine on a few of them, the load above is what is tested for the rest
+        if (bytes.length % 7 == 0) {
+            Files.write(file, bytes);
+            Tests.equal(what + ": runs from the source",
+                    Tests.run(BisayaEngine.Backend.INTERPRETER, SOURCE).toString(), run(file.getParent()));
+        }
+    }
+
+    private static String run(Path directory) {
+        return Tests.run(new BisayaEngine(BisayaEngine.Backend.INTERPRETER, false, directory), SOURCE, "", context -> {}).toString();
+    }
+
+    //the CRC-32 a file with this body would have
+    private static byte[] crcOf(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        int value = (int) crc.getValue();
+        return new byte[] {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) length += part.length;
+        byte[] all = new byte[length];
+        int at = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, all, at, part.length);
+            at += part.length;
+        }
+        return all;
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.delete(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package bisaya;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+//A source lexed in parallel sections gives the same tokens, lexemes, lines and errors as when it
+//is lexed in one go. The source is built so that a token runs over the end of a section in every
+//way one can: a string over more lines, a [] over more lines, a string longer than a whole
+//section, a comment across the point where a section is cut, and errors right around a cut
+final class ScannerTest {
+    private static final int PARALLELISM = 4;
+
+    //the ordinary lines between the cuts, with a bit of every kind of token
+    private static final String[] LINES = {
+            "MUGNA NUMERO x1 = 12, y_2 = 3\n",
+            "MUGNA TIPIK d = 3.25 -- a comment\n",
+            "KUNG (x1 >= y_2 UG d <> 1.5 O DILI (x1 == 3))\n",
+            "PUNDOK{\n",
+            "IPAKITA: x1 & \" \" & 'c' & [[] & $ & \"OO\" & \"DILI\"\n",
+            "}\n",
+            "KUNG WALA\n",
+            "x1 = x1 + 1 - y_2 * 2 / 4 % 3\n",
+            "ALANG SA (x1 = 0, x1 < 10, x1++)\n",
+            "\n",
+            "   \t-- only a comment\n",
+    };
+
+    public static void main(String[] args) {
+        ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+        try {
+            String source = source();
+            Tests.check("source long enough to be cut, " + source.length() + " characters",
+                    source.length() >= 2 * Scanner.MIN_SECTION && source.length() / (4 * PARALLELISM) <= Scanner.MIN_SECTION);
+            compare("generated source", source, pool);
+
+            //a source too short to be cut is scanned in one go either way
+            compare("short source", "SUGOD\nIPAKITA: \"a\nb\" & [x\ny] -- c\n#\nKATAPUSAN\n\"open", pool);
+        } finally {
+            pool.shutdown();
+        }
+        Tests.done("ScannerTest");
+    }
+
+    //The cuts are made the way the Scanner makes them: at the first new line MIN_SECTION or more
+    //after the start of the section, so the source can put a token right across each one
+    private static String source() {
+        StringBuilder source = new StringBuilder("SUGOD\n");
+        int from = 0;
+        int line = 0;
+
+        String[] across = {"string", "comment", "escape", "errors", "long string"};
+        for (String kind : across) {
+            int cut = from + Scanner.MIN_SECTION;
+            line = fill(source, cut - 40, line);
+            switch (kind) {
+                case "string":
+                    source.append("IPAKITA: \"");
+                    for (int i = 0; i < 20; i++) source.append("part ").append(i).append(" $\n");
+                    source.append("end\"\n");
+                    break;
+                case "comment":
+                    source.append("x1 = 2 -- ");
+                    while (source.length() < cut + 100) source.append("comment ");
+                    source.append('\n');
+                    break;
+                case "escape":
+                    source.append("IPAKITA: [");
+                    for (int i = 0; i < 20; i++) source.append("x \" -- ").append(i).append('\n');
+                    source.append("]\n");
+                    break;
+                case "errors":
+                    while (source.length() < cut + 100) source.append("x1 # y_2 @\n");
+                    break;
+                default:
+                    //over the next cut as well, its section is all inside the string
+                    source.append("IPAKITA: \"");
+                    while (source.length() < cut + Scanner.MIN_SECTION + 1000) source.append("text -- not a comment\n");
+                    source.append("\"\n");
+                    break;
+            }
+            from = lineAfter(source, cut);
+            if (kind.equals("long string")) from = lineAfter(source, from + Scanner.MIN_SECTION);
+        }
+
+        //an error outside ASCII, and a string that never ends
+        line = fill(source, source.length() + 1000, line);
+        source.append("IPAKITA: é €\nKATAPUSAN\nIPAKITA: \"never closed\nx1 = 1\n");
+        return source.toString();
+    }
+
+    private static int fill(StringBuilder source, int length, int line) {
+        while (source.length() < length) {
+            source.append(LINES[line++ % LINES.length]);
+        }
+        return line;
+    }
+
+    private static int lineAfter(CharSequence source, int index) {
+        while (index < source.length()) {
+            if (source.charAt(index++) == '\n') return index;
+        }
+        return source.length();
+    }
+
+    private static void compare(String what, String text, ForkJoinPool pool) {
+        List<String> sequentialErrors = new ArrayList<>();
+        List<String> parallelErrors = new ArrayList<>();
+        TokenBuffer sequential = new Scanner(Source.of(text), new Errors(collect(sequentialErrors))).scanTokens();
+        TokenBuffer parallel = new Scanner(Source.of(text), pool, new Errors(collect(parallelErrors))).scanTokens();
+
+        //the first token that differs, if any
+        int count = 0;
+        String difference = null;
+        for (int i = 0; difference == null; i++) {
+            String expected = describe(sequential, i);
+            String actual = describe(parallel, i);
+            if (!expected.equals(actual)) difference = "token " + i + ": " + expected + " <> " + actual;
+            if (sequential.type(i) == TokenType.EOF || parallel.type(i) == TokenType.EOF) break;
+            count++;
+        }
+
+        Tests.equal(what + ": tokens", null, difference);
+        Tests.check(what + ": tokens scanned, " + count, count > 0);
+        Tests.equal(what + ": errors", sequentialErrors, parallelErrors);
+        Tests.check(what + ": errors reported, " + sequentialErrors.size(), !sequentialErrors.isEmpty());
+    }
+
+    private static String describe(TokenBuffer tokens, int i) {
+        return tokens.type(i) + " [" + tokens.lexeme(i) + "] line " + tokens.line(i);
+    }
+
+    private static ErrorReporter collect(List<String> errors) {
+        return new ErrorReporter() {
+            @Override
+            public void error(int line, String where, String message) {
+                errors.add("[line " + line + "] Error" + where + ": " + message);
+            }
+
+            @Override
+            public void runtimeError(int line, String message) {
+                errors.add(message + " [line " + line + "]");
+            }
+        };
+    }
+}
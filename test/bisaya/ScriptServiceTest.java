@@ -0,0 +1,289 @@
+package bisaya;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+//ScriptService.serve() over a pipe, the way a client drives it: RUN and DONE frames, STATS, every
+//status a job can end with, answers in the order jobs finish, and many jobs at once each in a
+//context of its own
+//The answers go to a buffer instead of a second pipe: a PipedInputStream breaks once the thread
+//that wrote to it last has ended, and every job answers from a thread of its own
+final class ScriptServiceTest {
+    private static final String ENDLESS = "SUGOD\nMUGNA NUMERO x = 0\nSAMTANG (x >= 0)\nPUNDOK{\nx = 1\n}\nKATAPUSAN";
+
+    //reads two numbers, prints their sum and the sum of 0 up to the first one
+    private static final String SUM = "SUGOD\n"
+            + "MUGNA NUMERO a, b, total = 0\n"
+            + "DAWAT: a, b\n"
+            + "ALANG SA (MUGNA NUMERO i = 0, i <= a, i++)\n"
+            + "PUNDOK{\n"
+            + "total = total + i\n"
+            + "}\n"
+            + "IPAKITA: a + b & \" \" & total\n"
+            + "KATAPUSAN";
+
+    public static void main(String[] args) throws Exception {
+        protocol();
+        for (BisayaEngine.Backend backend : BisayaEngine.Backend.values()) {
+            statuses(backend);
+        }
+        outOfOrder();
+        concurrent();
+        Tests.done("ScriptServiceTest");
+    }
+
+    //RUN answered with DONE and its output, STATS with the counters, anything else with ERROR
+    private static void protocol() throws Exception {
+        Session session = new Session(new ScriptService(new BisayaEngine(), 2, 5000, 0, 0));
+        session.run("one", SUM, "3, 4\n");
+        Answer done = session.next();
+        Tests.equal("DONE id", "one", done.id);
+        Tests.equal("DONE status", "OK", done.status);
+        Tests.equal("DONE output", "7 6\n[No Error]\n", done.output);
+        Tests.equal("DONE errors", "", done.errors);
+        Tests.check("DONE memory counted", done.peakBytes > 0 && done.allocatedBytes >= done.peakBytes);
+
+        //the sizes are UTF-8 bytes
+        session.run("two", "SUGOD\nIPAKITA: \"ñandú €\"\nKATAPUSAN", "");
+        Tests.equal("UTF-8 output", "ñandú €\n[No Error]\n", session.next().output);
+
+        session.send("STATS\n");
+        String stats = session.nextLine();
+        Tests.check("STATS answered: " + stats, stats.startsWith("STATS submitted=2 completed=2 ok=2 compile_error=0 runtime_error=0 timeout=0 failed=0 running=0 "));
+
+        session.send("HELLO\n");
+        Tests.equal("unknown request", "ERROR Unknown request: HELLO", session.nextLine());
+
+        //without sizes the next request cannot be found, so the session ends there
+        session.send("RUN three x y\n");
+        Tests.equal("bad sizes", "ERROR Bad sizes in: RUN three x y", session.nextLine());
+        session.awaitEnd("bad sizes");
+    }
+
+    //OK, COMPILE_ERROR, RUNTIME_ERROR, TIMEOUT and FAILED on every backend
+    private static void statuses(BisayaEngine.Backend backend) throws Exception {
+        Session session = new Session(new ScriptService(new BisayaEngine(backend, false, null), 4, 1000, 0, 0));
+        StringBuilder deep = new StringBuilder("SUGOD\nIPAKITA: ");
+        for (int i = 0; i < 200_000; i++) deep.append('(');
+        deep.append('1');
+        for (int i = 0; i < 200_000; i++) deep.append(')');
+        deep.append("\nKATAPUSAN");
+
+        session.run("ok", SUM, "2, 2\n");
+        session.run("compile", "SUGOD\nIPAKITA: y\nKATAPUSAN", "");
+        session.run("runtime", "SUGOD\nIPAKITA: \"a\"\nIPAKITA: 1 / 0\nKATAPUSAN", "");
+        session.run("timeout", ENDLESS, "");
+        session.run("failed", deep.toString(), "");
+        session.close();
+
+        Map<String, Answer> answers = session.all(5);
+        String on = " on " + backend;
+        Tests.equal("OK" + on, "OK 4 3\n[No Error]\n", answers.get("ok").status + " " + answers.get("ok").output);
+        Tests.equal("COMPILE_ERROR" + on, "COMPILE_ERROR [line 2] Error at 'y': Wala pa gideklarar ang sulodanan 'y'.\n",
+                answers.get("compile").status + " " + answers.get("compile").errors);
+        Tests.equal("RUNTIME_ERROR" + on, "RUNTIME_ERROR a Cannot divide by zero.\n[line 3]\n",
+                answers.get("runtime").status + " " + answers.get("runtime").output + " " + answers.get("runtime").errors);
+        Tests.equal("TIMEOUT" + on, "TIMEOUT", answers.get("timeout").status);
+        Tests.check("TIMEOUT error" + on + ": " + answers.get("timeout").errors, answers.get("timeout").errors.endsWith("[line 3]\n")
+                || answers.get("timeout").errors.equals("Timed out after 1000 ms.\n"));
+        Tests.equal("FAILED" + on, "FAILED java.lang.StackOverflowError\n", answers.get("failed").status + " " + answers.get("failed").errors);
+        session.awaitEnd("statuses" + on);
+    }
+
+    //a job that is still running does not hold back the answer of one that came in after it
+    private static void outOfOrder() throws Exception {
+        Session session = new Session(new ScriptService(new BisayaEngine(), 2, 1500, 0, 0));
+        session.run("slow", ENDLESS, "");
+        session.run("fast", SUM, "1, 2\n");
+        Answer first = session.next();
+        Answer second = session.next();
+        Tests.equal("first answer", "fast OK", first.id + " " + first.status);
+        Tests.equal("second answer", "slow TIMEOUT", second.id + " " + second.status);
+        Tests.check("slow job ran until its timeout, " + second.millis + " ms", second.millis >= 1500);
+        session.close();
+        session.awaitEnd("out of order");
+    }
+
+    //Jobs of one program with different input run at once, each with its own globals, input and
+    //output, sharing one compiled program
+    private static void concurrent() throws Exception {
+        Session session = new Session(new ScriptService(new BisayaEngine(), 4, 2000, 0, 0));
+        int jobs = 24;
+        for (int i = 0; i < jobs; i++) {
+            session.run("sum" + i, SUM, (20_000 + i) + ", " + i + "\n");
+        }
+        Map<String, Answer> answers = session.all(jobs);
+        for (int i = 0; i < jobs; i++) {
+            long a = 20_000 + i;
+            Tests.equal("job " + i, "OK " + (a + i) + " " + a * (a + 1) / 2 + "\n[No Error]\n",
+                    answers.get("sum" + i).status + " " + answers.get("sum" + i).output);
+        }
+
+        //four endless jobs hold all four permits until they time out, a fifth waits for one
+        for (int i = 0; i < 5; i++) {
+            session.run("endless" + i, ENDLESS, "");
+        }
+        Thread.sleep(500);
+        session.send("STATS\n");
+        String stats = session.nextLine();
+        Tests.check("four running at once: " + stats, stats.contains(" running=4 "));
+        //at most one compile for each job that started before the program was in the cache
+        long cacheHits = Long.parseLong(stats.replaceFirst(".* cache_hits=([0-9]+) .*", "$1"));
+        Tests.check("the rest from the cache: " + stats, cacheHits >= jobs - 4);
+
+        session.close();
+        Map<String, Answer> endless = session.all(5);
+        for (int i = 0; i < 5; i++) {
+            Tests.equal("endless job " + i, "TIMEOUT", endless.get("endless" + i).status);
+        }
+        session.awaitEnd("concurrent");
+    }
+
+    private static final class Answer {
+        final String id;
+        final String status;
+        final long millis;
+        final long peakBytes;
+        final long allocatedBytes;
+        final String output;
+        final String errors;
+
+        Answer(String[] header, String output, String errors) {
+            this.id = header[1];
+            this.status = header[2];
+            this.millis = Long.parseLong(header[3]);
+            this.peakBytes = Long.parseLong(header[4]);
+            this.allocatedBytes = Long.parseLong(header[5]);
+            this.output = output;
+            this.errors = errors;
+        }
+    }
+
+    //One serve() on a thread of its own, requests written to it through a pipe
+    private static final class Session {
+        private final PipedOutputStream requests = new PipedOutputStream();
+        private final Answers answers = new Answers();
+        private final Thread thread;
+
+        Session(ScriptService service) throws IOException {
+            PipedInputStream in = new PipedInputStream(requests, 1 << 20);
+            thread = new Thread(() -> {
+                try {
+                    service.serve(in, answers);
+                } catch (IOException e) {
+                    Tests.check("serve() threw " + e, false);
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void send(String request) throws IOException {
+            requests.write(request.getBytes(StandardCharsets.UTF_8));
+            requests.flush();
+        }
+
+        void run(String id, String source, String input) throws IOException {
+            byte[] sourceBytes = source.getBytes(StandardCharsets.UTF_8);
+            byte[] inputBytes = input.getBytes(StandardCharsets.UTF_8);
+            requests.write(("RUN " + id + " " + sourceBytes.length + " " + inputBytes.length + "\n").getBytes(StandardCharsets.UTF_8));
+            requests.write(sourceBytes);
+            requests.write(inputBytes);
+            requests.flush();
+        }
+
+        void close() throws IOException {
+            requests.close();
+        }
+
+        String nextLine() throws InterruptedException {
+            return answers.line();
+        }
+
+        Answer next() throws InterruptedException {
+            String[] header = nextLine().split(" ");
+            Tests.equal("DONE header", 8, header.length);
+            Tests.equal("DONE", "DONE", header[0]);
+            String output = answers.text(Integer.parseInt(header[6]));
+            String errors = answers.text(Integer.parseInt(header[7]));
+            return new Answer(header, output, errors);
+        }
+
+        //the next count answers by id
+        Map<String, Answer> all(int count) throws InterruptedException {
+            Map<String, Answer> all = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                Answer answer = next();
+                all.put(answer.id, answer);
+            }
+            return all;
+        }
+
+        //serve() returns once its input ended and every job answered
+        void awaitEnd(String what) throws InterruptedException {
+            thread.join(10_000);
+            Tests.check(what + ": serve() returned", !thread.isAlive());
+            Tests.equal(what + ": nothing more answered", 0, answers.available());
+        }
+    }
+
+    //What serve() wrote, taken out line by line and frame by frame as it comes in
+    private static final class Answers extends OutputStream {
+        private static final long WAIT_MILLIS = 20_000;
+
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        private int read = 0;
+
+        @Override
+        public synchronized void write(int b) {
+            written.write(b);
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) {
+            written.write(bytes, offset, length);
+            notifyAll();
+        }
+
+        synchronized int available() {
+            return written.size() - read;
+        }
+
+        synchronized String line() throws InterruptedException {
+            for (;;) {
+                byte[] bytes = written.toByteArray();
+                for (int i = read; i < bytes.length; i++) {
+                    if (bytes[i] != '\n') continue;
+                    String line = new String(bytes, read, i - read, StandardCharsets.UTF_8);
+                    read = i + 1;
+                    return line;
+                }
+                await();
+            }
+        }
+
+        synchronized String text(int length) throws InterruptedException {
+            while (written.size() - read < length) await();
+            String text = new String(written.toByteArray(), read, length, StandardCharsets.UTF_8);
+            read += length;
+            return text;
+        }
+
+        //a service that never answers fails the runner instead of hanging it
+        private void await() throws InterruptedException {
+            long start = System.nanoTime();
+            wait(WAIT_MILLIS);
+            if (System.nanoTime() - start >= WAIT_MILLIS * 1_000_000) {
+                Tests.check("an answer within " + WAIT_MILLIS + " ms", false);
+                Tests.done("ScriptServiceTest");
+            }
+        }
+    }
+}
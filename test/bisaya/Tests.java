@@ -0,0 +1,99 @@
+package bisaya;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.function.Consumer;
+
+//Shared by the test runners in this directory. There is no test framework in the build, every
+//runner is a plain main() in package bisaya so it can reach the package-private classes:
+//  javac -encoding UTF-8 -d /tmp/bisaya-test $(find src test -name '*.java')
+//  java -cp /tmp/bisaya-test bisaya.GoldenTest
+//A runner prints every check that failed and exits with 1 when there was one
+final class Tests {
+    private Tests() {}
+
+    private static int checks = 0;
+    private static int failures = 0;
+
+    //What one run of a program left behind
+    static final class Run {
+        final boolean ok;
+        //what IPAKITA printed, [No Error] included
+        final String output;
+        //every error reported, one per line in the form of the command line
+        final String errors;
+        final long peakMemory;
+        final long allocatedMemory;
+
+        Run(boolean ok, String output, String errors, long peakMemory, long allocatedMemory) {
+            this.ok = ok;
+            this.output = output;
+            this.errors = errors;
+            this.peakMemory = peakMemory;
+            this.allocatedMemory = allocatedMemory;
+        }
+
+        //what a user would see
+        @Override
+        public String toString() {
+            return output + errors;
+        }
+    }
+
+    static Run run(BisayaEngine.Backend backend, String source) {
+        return run(backend, source, "", context -> {});
+    }
+
+    //input is what DAWAT reads, setup sets the limits of the context before the run
+    static Run run(BisayaEngine.Backend backend, String source, String input, Consumer<BisayaContext> setup) {
+        return run(new BisayaEngine(backend, false, null), source, input, setup);
+    }
+
+    static Run run(BisayaEngine engine, String source, String input, Consumer<BisayaContext> setup) {
+        StringWriter out = new StringWriter();
+        StringBuilder errors = new StringBuilder();
+        BisayaContext context = engine.newContext(new StringReader(input), out, new ErrorReporter() {
+            @Override
+            public void error(int line, String where, String message) {
+                errors.append("[line ").append(line).append("] Error").append(where).append(": ").append(message).append('\n');
+            }
+
+            @Override
+            public void runtimeError(int line, String message) {
+                errors.append(message).append("\n[line ").append(line).append("]\n");
+            }
+        });
+        setup.accept(context);
+
+        boolean ok = context.eval(source);
+        return new Run(ok, out.toString(), errors.toString(), context.peakMemory(), context.allocatedMemory());
+    }
+
+    static void check(String what, boolean condition) {
+        checks++;
+        if (condition) return;
+
+        failures++;
+        System.out.println("FAILED: " + what);
+    }
+
+    static void equal(String what, Object expected, Object actual) {
+        checks++;
+        if (expected == null ? actual == null : expected.equals(actual)) return;
+
+        failures++;
+        System.out.println("FAILED: " + what);
+        System.out.println("  expected: " + show(expected));
+        System.out.println("  actual:   " + show(actual));
+    }
+
+    //at the end of main(), the exit code tells a script whether the runner passed
+    static void done(String runner) {
+        System.out.println(runner + ": " + checks + " checks, " + failures + " failed");
+        if (failures > 0) System.exit(1);
+    }
+
+    private static String show(Object value) {
+        return value == null ? "null" : value.toString().replace("\n", "\\n");
+    }
+}
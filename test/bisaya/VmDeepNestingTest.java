@@ -0,0 +1,41 @@
+package bisaya;
+
+//Deeply nested programs on the VM: every value of an expression needs a register of its own until
+//its operator runs, every scope its own slots, and the Compiler has to give the chunk all of them
+//Each program also runs on the Interpreter, the VM has to print the same
+final class VmDeepNestingTest {
+    public static void main(String[] args) {
+        for (int depth : new int[] {1, 300}) {
+            expect("x + (x + (...)) " + depth + " deep", nestedSum(depth, "NUMERO", "1"), (depth + 1) + "\n[No Error]\n");
+            expect("TIPIK sum " + depth + " deep", nestedSum(depth, "TIPIK", "0.5"), Interpreter.stringify((depth + 1) * 0.5) + "\n[No Error]\n");
+            expect("& " + depth + " deep", nestedConcat(depth), "a".repeat(depth + 1) + "\n[No Error]\n");
+            expect("KUNG " + depth + " deep", nestedBlocks(depth), depth + "\n[No Error]\n");
+        }
+        Tests.done("VmDeepNestingTest");
+    }
+
+    private static void expect(String what, String source, String expected) {
+        Tests.equal(what + " on the interpreter", expected, Tests.run(BisayaEngine.Backend.INTERPRETER, source).toString());
+        Tests.equal(what + " on the VM", expected, Tests.run(BisayaEngine.Backend.VM, source).toString());
+    }
+
+    //x + (x + (... + x)), every operand waits for the parenthesis on its right
+    private static String nestedSum(int depth, String type, String value) {
+        return "SUGOD\nMUGNA " + type + " x = " + value + "\nIPAKITA: " + "(x + ".repeat(depth) + "x" + ")".repeat(depth) + "\nKATAPUSAN";
+    }
+
+    private static String nestedConcat(int depth) {
+        return "SUGOD\nMUGNA LETRA c = 'a'\nIPAKITA: " + "(c & ".repeat(depth) + "c" + ")".repeat(depth) + "\nKATAPUSAN";
+    }
+
+    //every block declares its own variable from the one around it
+    private static String nestedBlocks(int depth) {
+        StringBuilder source = new StringBuilder("SUGOD\nMUGNA NUMERO v0 = 0\n");
+        for (int i = 1; i <= depth; i++) {
+            source.append("KUNG (OO)\nPUNDOK{\nMUGNA NUMERO v").append(i).append(" = v").append(i - 1).append(" + 1\n");
+        }
+        source.append("IPAKITA: v").append(depth).append('\n');
+        source.append("}\n".repeat(depth));
+        return source.append("KATAPUSAN").toString();
+    }
+}
@@ -0,0 +1,60 @@
+package bisaya;
+
+//A NUMERO stored into a TIPIK is widened to a double, a TIPIK stored into a NUMERO is cut down,
+//on every backend and in every kind of store: MUGNA, assignment and DAWAT
+//+ with a string shows the Java form of a number, 2.0 stays 2.0, so it tells a widened TIPIK
+//from a NUMERO where IPAKITA would print both as 2
+final class WideningTest {
+    public static void main(String[] args) {
+        expect("widened MUGNA and assignment",
+                "SUGOD\n"
+                        + "MUGNA TIPIK x = 5, w\n"
+                        + "MUGNA NUMERO n = 7\n"
+                        + "IPAKITA: x & $ & x / 2\n"
+                        + "x = 3\n"
+                        + "w = n\n"
+                        + "IPAKITA: $ & x / 2 & $ & w / 2 & $ & (x = 4)\n"
+                        + "x = n + 1\n"
+                        + "IPAKITA: $ & x\n"
+                        + "KATAPUSAN",
+                "", "5\n2.5\n1.5\n3.5\n4\n8\n[No Error]\n");
+
+        expect("a widened value is a TIPIK",
+                "SUGOD\n"
+                        + "MUGNA TIPIK d = 5\n"
+                        + "MUGNA NUMERO n = 2\n"
+                        + "IPAKITA: \"d=\" + d & $\n"
+                        + "d = n\n"
+                        + "IPAKITA: \"d=\" + d & $ & (d == 2.0) & (d == n) & $\n"
+                        + "MUGNA TIPIK e = n + 1\n"
+                        + "IPAKITA: \"e=\" + e & $ & \"e++=\" + e++ & $ & \"e=\" + e\n"
+                        + "KATAPUSAN",
+                "", "d=5.0\nd=2.0\nOODILI\ne=3.0\ne++=3.0\ne=4.0\n[No Error]\n");
+
+        expect("DAWAT into a TIPIK",
+                "SUGOD\n"
+                        + "MUGNA TIPIK d\n"
+                        + "MUGNA NUMERO n\n"
+                        + "DAWAT: d, n\n"
+                        + "IPAKITA: \"\" + d & $ & \"\" + n\n"
+                        + "KATAPUSAN",
+                "4, 6\n", "4.0\n6\n[No Error]\n");
+
+        expect("truncated MUGNA and assignment",
+                "SUGOD\n"
+                        + "MUGNA NUMERO t = 2.7, h = 7 / 2\n"
+                        + "IPAKITA: \"\" + t & $ & \"\" + h & $\n"
+                        + "t = -2.7\n"
+                        + "IPAKITA: \"\" + t & $ & (t = 9.9)\n"
+                        + "KATAPUSAN",
+                "", "2\n3\n-2\n9.9\n[No Error]\n");
+
+        Tests.done("WideningTest");
+    }
+
+    private static void expect(String what, String source, String input, String expected) {
+        for (BisayaEngine.Backend backend : BisayaEngine.Backend.values()) {
+            Tests.equal(what + " on " + backend, expected, Tests.run(backend, source, input, context -> {}).toString());
+        }
+    }
+}